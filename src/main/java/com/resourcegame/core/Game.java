@@ -15,30 +15,69 @@ import com.resourcegame.utils.ResourceType;
 import com.resourcegame.utils.TileType;
 import com.resourcegame.ui.ControlPanel;
 import com.resourcegame.ui.GameUIListener;
+import com.resourcegame.ui.UIEventBus;
+import java.awt.Rectangle;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
 
 import javax.swing.JOptionPane;
 import javax.swing.SwingUtilities;
 
+// All world-changing methods here run on the simulation thread: the UI submits them as
+// commands and reads the published snapshot instead of the live objects
 public class Game {
     private GameMap map;
     private Player player;
     private CraftingSystem craftingSystem;
-    private List<GameUIListener> uiListeners;
+    private final UIEventBus eventBus = new UIEventBus();
     private ControlPanel controlPanel;
     private Market market;
     private MachineManager machineManager;
     private Runnable placementCallback;
     private MachineType pendingPlacement;
+    // The UI reads only the latest published snapshot, never the live objects above
+    private volatile WorldSnapshot snapshot;
+    private WorldSnapshot notifiedSnapshot; // What listeners were last told about
+    private volatile Rectangle interestArea;
+    private final Queue<QueuedCommand<?>> commands = new ConcurrentLinkedQueue<>();
+    private final List<QueuedCommand<?>> executed = new ArrayList<>();
+
+    private static class QueuedCommand<T> {
+        private final GameCommand<T> command;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private T value;
+        private RuntimeException error;
+
+        QueuedCommand(GameCommand<T> command) {
+            this.command = command;
+        }
+
+        void run(Game game) {
+            try {
+                value = command.execute(game);
+            } catch (RuntimeException e) {
+                error = e;
+            }
+        }
+
+        void complete() {
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else {
+                result.complete(value);
+            }
+        }
+    }
 
     public Game() {
-        this.uiListeners = new ArrayList<>();
         initializeGame(new GameMap(20, 20));
     }
 
     public Game(GameMap existingMap) {
-        this.uiListeners = new ArrayList<>();
         initializeGame(existingMap);
     }
 
@@ -49,6 +88,7 @@ public class Game {
         craftingSystem = new CraftingSystem();
         machineManager = new MachineManager(map);
         market.setMachineManager(machineManager);
+        publishSnapshot();
     }
 
     public void setMap(GameMap map) {
@@ -57,6 +97,7 @@ public class Game {
             machineManager = new MachineManager(map);
             market.setMachineManager(machineManager);
         }
+        publishSnapshot();
     }
 
     public void movePlayer(Direction direction) {
@@ -65,20 +106,8 @@ public class Game {
 
         if (isValidMove(newPos)) {
             player.setPosition(newPos);
-            // Clear any selected tile when moving
-            if (map.getSelectedTile() != null) {
-                map.setSelectedTile(null);
-                if (controlPanel != null) {
-                    controlPanel.updateHarvestButton(false);
-                }
-            }
-            notifyUIUpdate();
-        }
-
-        if (player.getPosition().isAdjacent(map.getMarketPosition())) {
-            controlPanel.updateMarketButton(true);
-        } else {
-            controlPanel.updateMarketButton(false);
+            // Clear any selected tile when moving; the UI disables harvesting when it sees the move
+            map.setSelectedTile(null);
         }
     }
 
@@ -128,7 +157,7 @@ public class Game {
                             controlPanel.startMachinePlacement(type);
                         } else {
                             // Cancel placement and return machine to inventory
-                            getPlayer().getInventory().addMachine(type);
+                            submitAction(game -> game.getPlayer().getInventory().addMachine(type));
                         }
                     });
                     return false;
@@ -149,7 +178,7 @@ public class Game {
                             controlPanel.startMachinePlacement(type);
                         } else {
                             // Cancel placement and return machine to inventory
-                            getPlayer().getInventory().addMachine(type);
+                            submitAction(game -> game.getPlayer().getInventory().addMachine(type));
                         }
                     });
                     return false;
@@ -159,7 +188,6 @@ public class Game {
             Machine machine = machineManager.createMachine(type, position);
             if (machine != null) {
                 tile.setMachine(machine);
-                notifyUIUpdate();
 
                 if (placementCallback != null && type == pendingPlacement) {
                     placementCallback.run();
@@ -190,10 +218,9 @@ public class Game {
                 if (player.getInventory().addResource(resourceType, 1)) {
                     tile.getResource().harvest();
                     if (controlPanel != null) {
-                        controlPanel.updateHarvestButton(false);
+                        SwingUtilities.invokeLater(() -> controlPanel.updateHarvestButton(false));
                     }
                     map.setSelectedTile(null);
-                    notifyUIUpdate();
                 } else {
                     // Could notify player that inventory is full
                     System.out.println("Inventory is full!");
@@ -212,10 +239,9 @@ public class Game {
             if (player.getInventory().addResource(resourceType, 1)) {
                 tile.getResource().harvest();
                 if (controlPanel != null) {
-                    controlPanel.updateHarvestButton(false);
+                    SwingUtilities.invokeLater(() -> controlPanel.updateHarvestButton(false));
                 }
                 map.setSelectedTile(null);
-                notifyUIUpdate();
             } else {
                 // Could notify player that inventory is full
                 System.out.println("Inventory is full!");
@@ -232,7 +258,6 @@ public class Game {
             } else if (machine instanceof Factory && configuration instanceof Recipe) {
                 ((Factory) machine).setRecipe((Recipe) configuration);
             }
-            notifyUIUpdate();
         }
     }
 
@@ -242,7 +267,6 @@ public class Game {
         if (tile != null && tile.hasMachine()) {
             machineManager.removeMachine(position);
             tile.setMachine(null);
-            notifyUIUpdate();
         }
     }
 
@@ -268,36 +292,72 @@ public class Game {
         if (adjacentMachine instanceof Factory) {
             // Open factory inventory screen
             if (controlPanel != null) {
-                controlPanel.openFactoryInventory((Factory)adjacentMachine);
+                Position position = adjacentMachine.getPosition();
+                SwingUtilities.invokeLater(() -> controlPanel.openFactoryInventory(position));
             }
             return true;
         }
         return false;
     }
     
-    // Update the game loop or timer
+    // One simulation tick: queued commands first, then the world advances and a snapshot is published
     public void update() {
+        runCommands();
+        craftingSystem.update();
         machineManager.updateMachines();
         notifyUIUpdate();
+
+        // Callers see results only once the snapshot showing them is out
+        for (QueuedCommand<?> queued : executed) {
+            queued.complete();
+        }
+        executed.clear();
+    }
+
+    // Safe to call from any thread; the command runs at the start of the next tick and the
+    // future completes on the simulation thread after that tick's snapshot is published
+    public <T> CompletableFuture<T> submit(GameCommand<T> command) {
+        QueuedCommand<T> queued = new QueuedCommand<>(command);
+        commands.add(queued);
+        return queued.result;
+    }
+
+    public CompletableFuture<Void> submitAction(Consumer<Game> action) {
+        return submit(game -> {
+            action.accept(game);
+            return null;
+        });
+    }
+
+    private void runCommands() {
+        QueuedCommand<?> queued;
+        while ((queued = commands.poll()) != null) {
+            queued.run(this);
+            executed.add(queued);
+        }
     }
 
     // UI Listener methods
     public void addUIListener(GameUIListener listener) {
-        if (listener != null && !uiListeners.contains(listener)) {
-            uiListeners.add(listener);
-        }
+        eventBus.addListener(listener);
     }
 
     public void removeUIListener(GameUIListener listener) {
-        uiListeners.remove(listener);
+        eventBus.removeListener(listener);
     }
 
+    // Publishes a snapshot and tells listeners what changed since the last one they saw. The
+    // diff runs here, off the EDT, and a tick that changed nothing visible posts nothing. The
+    // bus merges batches that arrive faster than the EDT takes them.
     protected void notifyUIUpdate() {
-        for (GameUIListener listener : uiListeners) {
-            if (listener != null) {
-                listener.onGameUpdate();
-            }
+        publishSnapshot();
+        WorldSnapshot current = snapshot;
+        List<GameEvent> events = current.changesSince(notifiedSnapshot);
+        notifiedSnapshot = current;
+        if (events.isEmpty()) {
+            return;
         }
+        eventBus.post(current, events);
     }
 
 
@@ -320,6 +380,20 @@ public class Game {
         notifyUIUpdate();
     }
     
+    // Called at the end of every tick on the simulation thread, or before the loop starts
+    public void publishSnapshot() {
+        snapshot = WorldSnapshot.capture(this, snapshot, interestArea);
+    }
+
+    public WorldSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    // Tiles the UI can currently see; only these are copied into each snapshot
+    public void setInterestArea(int x, int y, int width, int height) {
+        interestArea = new Rectangle(x, y, width, height);
+    }
+
     // Getters
     public GameMap getMap() {
         return map;
@@ -0,0 +1,9 @@
+package com.resourcegame.core;
+
+// A change to the world, queued from any thread and run on the simulation thread at the
+// start of the next tick. Commands should capture plain values (coordinates, types, amounts)
+// and reach everything else through the game they are given.
+@FunctionalInterface
+public interface GameCommand<T> {
+    T execute(Game game);
+}
@@ -0,0 +1,103 @@
+package com.resourcegame.core;
+
+import com.resourcegame.core.WorldSnapshot.MachineView;
+import com.resourcegame.utils.MachineStatus;
+import com.resourcegame.utils.Position;
+import com.resourcegame.utils.ResourceType;
+
+// One change between two published snapshots, worked out on the simulation thread so
+// listeners only touch what the event names
+public abstract class GameEvent {
+
+    // A tile draws differently: its resource, regrowth, machine, selection or player neighbourhood
+    public static final class TileChanged extends GameEvent {
+        private final int x;
+        private final int y;
+        private final boolean terrainChanged;
+
+        public TileChanged(int x, int y, boolean terrainChanged) {
+            this.x = x;
+            this.y = y;
+            this.terrainChanged = terrainChanged;
+        }
+
+        public int getX() { return x; }
+        public int getY() { return y; }
+        public boolean isTerrainChanged() { return terrainChanged; }
+    }
+
+    // Machines are identified by their tile. A placed machine has no old status, a removed one
+    // no new status or view. Also sent when only the machine's other state changed.
+    public static final class MachineStatusChanged extends GameEvent {
+        private final Position position;
+        private final MachineStatus oldStatus;
+        private final MachineStatus newStatus;
+        private final MachineView machine;
+
+        public MachineStatusChanged(Position position, MachineStatus oldStatus, MachineStatus newStatus, MachineView machine) {
+            this.position = position;
+            this.oldStatus = oldStatus;
+            this.newStatus = newStatus;
+            this.machine = machine;
+        }
+
+        public Position getPosition() { return position; }
+        public MachineStatus getOldStatus() { return oldStatus; }
+        public MachineStatus getNewStatus() { return newStatus; }
+        public MachineView getMachine() { return machine; }
+        public boolean isPlaced() { return oldStatus == null; }
+        public boolean isRemoved() { return newStatus == null; }
+        public boolean isStatusChanged() { return oldStatus != newStatus; }
+    }
+
+    // The owner is a machine's tile, or null for the player. The mask has a bit per
+    // ResourceType ordinal whose count changed.
+    public static final class InventoryChanged extends GameEvent {
+        private final Position owner;
+        private final int resourceMask;
+        private final boolean moneyChanged;
+        private final boolean unplacedMachinesChanged;
+
+        public InventoryChanged(Position owner, int resourceMask, boolean moneyChanged, boolean unplacedMachinesChanged) {
+            this.owner = owner;
+            this.resourceMask = resourceMask;
+            this.moneyChanged = moneyChanged;
+            this.unplacedMachinesChanged = unplacedMachinesChanged;
+        }
+
+        public Position getOwner() { return owner; }
+        public boolean isPlayer() { return owner == null; }
+        public int getResourceMask() { return resourceMask; }
+        public boolean isChanged(ResourceType type) { return (resourceMask & (1 << type.ordinal())) != 0; }
+        public boolean isMoneyChanged() { return moneyChanged; }
+        public boolean isUnplacedMachinesChanged() { return unplacedMachinesChanged; }
+    }
+
+    // Stock or either price of one resource changed
+    public static final class MarketChanged extends GameEvent {
+        private final ResourceType type;
+
+        public MarketChanged(ResourceType type) {
+            this.type = type;
+        }
+
+        public ResourceType getType() { return type; }
+    }
+
+    public static final class PlayerMoved extends GameEvent {
+        private final Position from;
+        private final Position to;
+
+        public PlayerMoved(Position from, Position to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        public Position getFrom() { return from; }
+        public Position getTo() { return to; }
+    }
+
+    // The snapshots can't be compared, e.g. after loading another map; listeners redraw everything
+    public static final class WorldReset extends GameEvent {
+    }
+}
@@ -0,0 +1,54 @@
+package com.resourcegame.core;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// The single simulation thread. Each tick runs the queued commands, advances machines and
+// crafting, and publishes a new snapshot; nothing else writes to the world while it runs.
+public class GameLoop {
+    public static final long TICK_MILLIS = 100;
+
+    private final Game game;
+    private ScheduledExecutorService executor;
+
+    public GameLoop(Game game) {
+        this.game = game;
+    }
+
+    public synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "simulation");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleAtFixedRate(this::tick, 0, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    // Waits for the running tick to finish, after which the caller may touch the world directly
+    public synchronized void stop() {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        executor = null;
+    }
+
+    private void tick() {
+        try {
+            game.update();
+        } catch (RuntimeException e) {
+            // A failing tick must not cancel the schedule
+            System.err.println("Game tick failed: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+}
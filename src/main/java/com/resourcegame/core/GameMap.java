@@ -6,11 +6,25 @@ import com.resourcegame.entities.Resource;
 import com.resourcegame.utils.ResourceType;
 import java.util.Random;
 import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.IntStream;
 
 public class GameMap {
-    private Tile[][] grid;
+    // Tiles are stored in square regions so large saved worlds can be paged in lazily
+    public static final int REGION_SHIFT = 5;
+    public static final int REGION_SIZE = 1 << REGION_SHIFT;
+    private static final int REGION_MASK = REGION_SIZE - 1;
+
+    private final AtomicReferenceArray<Tile[]> regions; // Published once filled, read without locking
     private final int width;
     private final int height;
+    private final int regionsX;
+    private final int regionsY;
+    private RegionLoader regionLoader;
+    private int loadedRegions;
+    private final List<RegionListener> regionListeners = new CopyOnWriteArrayList<>();
     private Position startingPosition;
     private Position selectedTile;
     // Define set of base resources that can be harvested
@@ -23,29 +37,108 @@ public class GameMap {
     );
 
     public GameMap(int width, int height) {
+        this(width, height, null);
+        generateMap();
+    }
+
+    // Map whose tiles come from a loader on first access instead of being generated.
+    // Regions without a loader start out as empty tiles.
+    public GameMap(int width, int height, RegionLoader regionLoader) {
         this.width = width;
         this.height = height;
-        this.grid = new Tile[width][height];
+        this.regionsX = (width + REGION_MASK) >> REGION_SHIFT;
+        this.regionsY = (height + REGION_MASK) >> REGION_SHIFT;
+        this.regions = new AtomicReferenceArray<>(regionsX * regionsY);
+        this.regionLoader = regionLoader;
+        this.startingPosition = new Position(0, 0);
         this.selectedTile = null;
-        generateMap();
     }
 
-    private void generateMap() {
-        Random random = new Random();
-        
-        // Initialize all tiles as empty
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                grid[x][y] = new Tile(TileType.EMPTY);
+    private Tile tileAt(int x, int y) {
+        return regionOf(x, y)[tileIndex(x, y)];
+    }
+
+    private Tile[] regionOf(int x, int y) {
+        int index = (y >> REGION_SHIFT) * regionsX + (x >> REGION_SHIFT);
+        Tile[] region = regions.get(index);
+        return region != null ? region : loadRegion(index);
+    }
+
+    private static int tileIndex(int x, int y) {
+        return ((y & REGION_MASK) << REGION_SHIFT) | (x & REGION_MASK);
+    }
+
+    // Decoding happens outside the lock so several threads can page regions in at once;
+    // if two threads race on the same region the first one to publish wins
+    private Tile[] loadRegion(int index) {
+        RegionLoader loader;
+        synchronized (this) {
+            if (regions.get(index) != null) {
+                return regions.get(index);
             }
+            loader = regionLoader;
         }
+        int regionX = index % regionsX;
+        int regionY = index / regionsX;
+        int regionWidth = Math.min(REGION_SIZE, width - (regionX << REGION_SHIFT));
+        int regionHeight = Math.min(REGION_SIZE, height - (regionY << REGION_SHIFT));
+        Tile[] region = new Tile[REGION_SIZE * REGION_SIZE];
 
+        if (loader != null) {
+            loader.loadRegion(regionX, regionY, regionWidth, regionHeight, region);
+        }
+        for (int y = 0; y < regionHeight; y++) {
+            for (int x = 0; x < regionWidth; x++) {
+                if (region[tileIndex(x, y)] == null) {
+                    region[tileIndex(x, y)] = new Tile(TileType.EMPTY);
+                }
+            }
+        }
+
+        synchronized (this) {
+            if (regions.get(index) != null) {
+                return regions.get(index);
+            }
+            regions.set(index, region);
+            loadedRegions++;
+            if (loadedRegions == regions.length()) {
+                regionLoader = null; // Everything is resident, let go of the backing file
+            }
+        }
+        for (RegionListener listener : regionListeners) {
+            listener.regionLoaded(regionX, regionY);
+        }
+        return region;
+    }
+
+    // Pages in every region overlapping the given tile rectangle, decoding them in
+    // parallel on the common fork-join pool
+    public void preloadRegions(int x, int y, int w, int h) {
+        int x0 = Math.max(0, x) >> REGION_SHIFT;
+        int y0 = Math.max(0, y) >> REGION_SHIFT;
+        int x1 = (Math.min(width, x + w) - 1) >> REGION_SHIFT;
+        int y1 = (Math.min(height, y + h) - 1) >> REGION_SHIFT;
+        if (x1 < x0 || y1 < y0) {
+            return;
+        }
+        int columns = x1 - x0 + 1;
+        IntStream.range(0, columns * (y1 - y0 + 1)).parallel().forEach(i -> {
+            int index = (y0 + i / columns) * regionsX + x0 + i % columns;
+            if (regions.get(index) == null) {
+                loadRegion(index);
+            }
+        });
+    }
+
+    private void generateMap() {
+        Random random = new Random();
+        
         // Set starting position at top-left
         startingPosition = new Position(0, 0);
-        grid[0][0].setType(TileType.STARTING);
+        tileAt(0, 0).setType(TileType.STARTING);
 
         // Set market at bottom-right
-        grid[width-1][height-1].setType(TileType.MARKET);
+        tileAt(width-1, height-1).setType(TileType.MARKET);
 
         // Create a path from start to market
         ensurePathExists();
@@ -60,13 +153,13 @@ public class GameMap {
             // 1. Tile is empty
             // 2. Not adjacent to start or market
             // 3. Won't block the path
-            if (grid[x][y].getType() == TileType.EMPTY &&
+            if (tileAt(x, y).getType() == TileType.EMPTY &&
                 !pos.isAdjacent(startingPosition) &&
                 !pos.isAdjacent(new Position(width-1, height-1)) &&
                 !wouldBlockPath(pos)) {
                 
-                grid[x][y].setType(TileType.RESOURCE);
-                grid[x][y].setResource(new Resource(getRandomBaseResource()));
+                tileAt(x, y).setType(TileType.RESOURCE);
+                tileAt(x, y).setResource(new Resource(getRandomBaseResource()));
             }
         }
     }
@@ -77,27 +170,28 @@ public class GameMap {
         
         // Move right
         while (x < width - 1) {
-            grid[x][y].setType(TileType.EMPTY);
+            tileAt(x, y).setType(TileType.EMPTY);
             x++;
         }
         
         // Move down
         while (y < height - 1) {
-            grid[x][y].setType(TileType.EMPTY);
+            tileAt(x, y).setType(TileType.EMPTY);
             y++;
         }
     }
 
     private boolean wouldBlockPath(Position pos) {
         // Temporarily make the tile unwalkable
-        TileType originalType = grid[pos.getX()][pos.getY()].getType();
-        grid[pos.getX()][pos.getY()].setType(TileType.RESOURCE);
+        Tile tile = tileAt(pos.getX(), pos.getY());
+        TileType originalType = tile.getType();
+        tile.setType(TileType.RESOURCE);
 
         // Check if path still exists
         boolean pathExists = pathExists(startingPosition, new Position(width-1, height-1));
 
         // Restore original tile type
-        grid[pos.getX()][pos.getY()].setType(originalType);
+        tile.setType(originalType);
 
         return !pathExists;
     }
@@ -111,7 +205,7 @@ public class GameMap {
         if (current.getX() < 0 || current.getX() >= width ||
             current.getY() < 0 || current.getY() >= height ||
             visited[current.getX()][current.getY()] ||
-            !grid[current.getX()][current.getY()].isWalkable()) {
+            !tileAt(current.getX(), current.getY()).isWalkable()) {
             return false;
         }
 
@@ -159,34 +253,58 @@ public class GameMap {
 
     public Tile getTile(Position pos) {
         if (pos.getX() >= 0 && pos.getX() < width && pos.getY() >= 0 && pos.getY() < height) {
-            return grid[pos.getX()][pos.getY()];
+            return tileAt(pos.getX(), pos.getY());
+        }
+        return null;
+    }
+
+    public Tile getTile(int x, int y) {
+        if (x >= 0 && x < width && y >= 0 && y < height) {
+            return tileAt(x, y);
         }
         return null;
     }
 
     public int getWidth() { return width; }
     public int getHeight() { return height; }
-    public Position getMarketPosition() {
-        // Market is at bottom-right corner as defined in generateMap()
-        return new Position(width - 1, height - 1);
+    public int getRegionsX() { return regionsX; }
+    public int getRegionsY() { return regionsY; }
+
+    public boolean isRegionLoaded(int regionX, int regionY) {
+        return regions.get(regionY * regionsX + regionX) != null;
     }
 
+    // Only regions paged in after this call are reported; isRegionLoaded covers the rest
+    public void addRegionListener(RegionListener listener) {
+        regionListeners.add(listener);
+    }
 
-    public void loadTile(int x, int y, TileType type, ResourceType resourceType) {
-        if (x >= 0 && x < width && y >= 0 && y < height) {
-            grid[x][y] = new Tile(type);
-            if (resourceType != null) {
-                grid[x][y].setResource(new Resource(resourceType));
-            }
-        }
+    public void removeRegionListener(RegionListener listener) {
+        regionListeners.remove(listener);
     }
 
-    public void clear() {
-        // Clear existing tiles before loading
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                grid[x][y] = new Tile(TileType.EMPTY);
-            }
+    // Point-in-time copy of the region table for saving off the game thread. The region
+    // arrays themselves are shared with the live map: a save only reads tile type and
+    // resource, which never change after generation or loading. Regions not yet paged in
+    // are null; they are still unchanged in the loader's source.
+    public Tile[][] snapshotRegions() {
+        Tile[][] copy = new Tile[regions.length()][];
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] = regions.get(i);
         }
+        return copy;
+    }
+
+    public synchronized int getLoadedRegionCount() {
+        return loadedRegions;
+    }
+
+    // The loader still backing unloaded regions, or null once everything is resident
+    public synchronized RegionLoader getRegionLoader() {
+        return regionLoader;
+    }
+    public Position getMarketPosition() {
+        // Market is at bottom-right corner as defined in generateMap()
+        return new Position(width - 1, height - 1);
     }
-}
\ No newline at end of file
+}
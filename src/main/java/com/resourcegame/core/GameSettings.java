@@ -13,6 +13,8 @@ public class GameSettings {
     public static final String MUSIC_ENABLED = "music.enabled";
     public static final String VOLUME_LEVEL = "volume.level";
     public static final String AUTOSAVE_INTERVAL = "autosave.interval"; // in minutes
+    public static final String JOURNAL_INTERVAL = "autosave.journal.interval"; // in seconds
+    public static final String SAVE_COMPRESSION = "save.compression";
     
     private GameSettings() {
         properties = new Properties();
@@ -32,6 +34,8 @@ public class GameSettings {
         properties.setProperty(MUSIC_ENABLED, "true");
         properties.setProperty(VOLUME_LEVEL, "50");
         properties.setProperty(AUTOSAVE_INTERVAL, "5");
+        properties.setProperty(JOURNAL_INTERVAL, "5");
+        properties.setProperty(SAVE_COMPRESSION, "true");
     }
     
     private void loadSettings() {
@@ -81,4 +85,20 @@ public class GameSettings {
     public void setAutosaveInterval(int minutes) {
         properties.setProperty(AUTOSAVE_INTERVAL, String.valueOf(minutes));
     }
+
+    public int getJournalInterval() {
+        return Integer.parseInt(properties.getProperty(JOURNAL_INTERVAL));
+    }
+
+    public void setJournalInterval(int seconds) {
+        properties.setProperty(JOURNAL_INTERVAL, String.valueOf(seconds));
+    }
+
+    public boolean isSaveCompressionEnabled() {
+        return Boolean.parseBoolean(properties.getProperty(SAVE_COMPRESSION));
+    }
+
+    public void setSaveCompressionEnabled(boolean enabled) {
+        properties.setProperty(SAVE_COMPRESSION, String.valueOf(enabled));
+    }
 }
\ No newline at end of file
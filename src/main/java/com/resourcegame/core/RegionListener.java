@@ -0,0 +1,7 @@
+package com.resourcegame.core;
+
+// Told once per region when its tiles become readable, on whichever thread paged it in.
+// Tiles in the region can be read from the map without loading anything else.
+public interface RegionListener {
+    void regionLoaded(int regionX, int regionY);
+}
@@ -0,0 +1,8 @@
+package com.resourcegame.core;
+
+// Supplies the tiles of one map region the first time any tile in it is touched.
+// Tiles are laid out row by row, GameMap.REGION_SIZE to a row; only the
+// regionWidth x regionHeight corner that lies inside the map needs filling.
+public interface RegionLoader {
+    void loadRegion(int regionX, int regionY, int regionWidth, int regionHeight, Tile[] tiles);
+}
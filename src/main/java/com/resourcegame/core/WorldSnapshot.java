@@ -0,0 +1,488 @@
+package com.resourcegame.core;
+
+import com.resourcegame.entities.Factory;
+import com.resourcegame.entities.Harvester;
+import com.resourcegame.entities.Inventory;
+import com.resourcegame.entities.Machine;
+import com.resourcegame.entities.MachineManager;
+import com.resourcegame.entities.Resource;
+import com.resourcegame.systems.Market;
+import com.resourcegame.systems.Recipe;
+import com.resourcegame.utils.MachineStatus;
+import com.resourcegame.utils.MachineType;
+import com.resourcegame.utils.Position;
+import com.resourcegame.utils.ResourceType;
+import com.resourcegame.utils.TileType;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Immutable copy of everything the UI draws, taken by the simulation at the end of a tick.
+// Only tiles inside the interest area are copied; machines, player and market are complete.
+public final class WorldSnapshot {
+    private static final TileType[] TILE_TYPES = TileType.values();
+    private static final ResourceType[] RESOURCE_TYPES = ResourceType.values();
+    private static final MachineType[] MACHINE_TYPES = MachineType.values();
+    private static final MachineStatus[] MACHINE_STATUSES = MachineStatus.values();
+    private static final int DEFAULT_AREA_SIZE = 128; // Tiles around the player until the UI says otherwise
+    public static final int HARVESTABLE = 255;
+
+    private final long sequence;
+    private final int mapWidth;
+    private final int mapHeight;
+    private final int areaX;
+    private final int areaY;
+    private final int areaWidth;
+    private final int areaHeight;
+    private final byte[] tileTypes;
+    private final byte[] resources;       // ResourceType ordinal + 1, 0 = none
+    private final byte[] harvestProgress; // 0..HARVESTABLE
+    private final int[] machineAt;        // Index into machines, -1 = none
+
+    private final MachineView[] machines;
+    private volatile Map<Long, MachineView> machinesByTile; // Built on the first lookup outside the area
+    private final int structureVersion;
+    private final Position playerPosition;
+    private final Position selectedTile;
+    private final int money;
+    private final int[] playerResources;
+    private final int playerItems;
+    private final int playerCapacity;
+    private final int[] unplacedMachines;
+    private final int[] machinesByStatus;
+    private final int[] machinesByType;
+    private final int machinesNeedingMaintenance;
+    private final int[] marketStock;
+    private final int[] marketBuyPrices;
+    private final int[] marketSellPrices;
+    private final Map<String, Float> craftingProgress;
+
+    private WorldSnapshot(long sequence, GameMap map, Rectangle area, MachineView[] machines, int structureVersion,
+                          Game game) {
+        this.sequence = sequence;
+        this.mapWidth = map.getWidth();
+        this.mapHeight = map.getHeight();
+        this.areaX = area.x;
+        this.areaY = area.y;
+        this.areaWidth = area.width;
+        this.areaHeight = area.height;
+        this.machines = machines;
+        this.structureVersion = structureVersion;
+
+        int size = areaWidth * areaHeight;
+        this.tileTypes = new byte[size];
+        this.resources = new byte[size];
+        this.harvestProgress = new byte[size];
+        this.machineAt = new int[size];
+        Arrays.fill(machineAt, -1);
+        for (int y = 0; y < areaHeight; y++) {
+            for (int x = 0; x < areaWidth; x++) {
+                int i = y * areaWidth + x;
+                Tile tile = map.getTile(areaX + x, areaY + y);
+                tileTypes[i] = (byte) tile.getType().ordinal();
+                Resource resource = tile.getResource();
+                if (resource != null) {
+                    resources[i] = (byte) (resource.getType().ordinal() + 1);
+                    harvestProgress[i] = (byte) (resource.canHarvest()
+                            ? HARVESTABLE : Math.min(HARVESTABLE - 1, (int) (resource.getHarvestProgress() * HARVESTABLE)));
+                }
+            }
+        }
+        for (int m = 0; m < machines.length; m++) {
+            int x = machines[m].x - areaX;
+            int y = machines[m].y - areaY;
+            if (x >= 0 && x < areaWidth && y >= 0 && y < areaHeight) {
+                machineAt[y * areaWidth + x] = m;
+            }
+        }
+
+        this.playerPosition = game.getPlayer().getPosition();
+        this.selectedTile = map.getSelectedTile();
+        Inventory inventory = game.getPlayer().getInventory();
+        this.money = inventory.getMoney();
+        this.playerResources = new int[RESOURCE_TYPES.length];
+        for (ResourceType type : RESOURCE_TYPES) {
+            playerResources[type.ordinal()] = inventory.getResourceCount(type);
+        }
+        this.playerItems = inventory.getTotalItems();
+        this.playerCapacity = inventory.getCapacity();
+        this.unplacedMachines = new int[MACHINE_TYPES.length];
+        for (MachineType type : MACHINE_TYPES) {
+            unplacedMachines[type.ordinal()] = inventory.getUnplacedMachineCount(type);
+        }
+
+        // Fleet counters kept by the machine manager, copied rather than counted
+        MachineManager machineManager = game.getMachineManager();
+        this.machinesByStatus = new int[MACHINE_STATUSES.length];
+        for (MachineStatus status : MACHINE_STATUSES) {
+            machinesByStatus[status.ordinal()] = machineManager.getMachineCount(status);
+        }
+        this.machinesByType = new int[MACHINE_TYPES.length];
+        for (MachineType type : MACHINE_TYPES) {
+            machinesByType[type.ordinal()] = machineManager.getMachineCount(type);
+        }
+        this.machinesNeedingMaintenance = machineManager.getMaintenanceDueCount();
+
+        Market market = game.getMarket();
+        this.marketStock = new int[RESOURCE_TYPES.length];
+        this.marketBuyPrices = new int[RESOURCE_TYPES.length];
+        this.marketSellPrices = new int[RESOURCE_TYPES.length];
+        for (ResourceType type : RESOURCE_TYPES) {
+            marketStock[type.ordinal()] = market.getStock(type);
+            marketBuyPrices[type.ordinal()] = market.getBuyPrice(type);
+            marketSellPrices[type.ordinal()] = market.getSellPrice(type);
+        }
+        this.craftingProgress = Collections.unmodifiableMap(game.getCraftingSystem().getActiveProgress());
+    }
+
+    // Runs on the simulation thread. Machine views whose machine has not changed since the
+    // previous snapshot are carried over instead of rebuilt.
+    static WorldSnapshot capture(Game game, WorldSnapshot previous, Rectangle interestArea) {
+        GameMap map = game.getMap();
+        Rectangle area = clampArea(map, interestArea, game.getPlayer().getPosition());
+
+        List<Machine> live = game.getMachineManager().getAllMachines();
+        int structureVersion = game.getMachineManager().getStructureVersion();
+        boolean sameMachines = previous != null && previous.structureVersion == structureVersion
+                && previous.machines.length == live.size();
+        MachineView[] machines = new MachineView[live.size()];
+        for (int i = 0; i < machines.length; i++) {
+            Machine machine = live.get(i);
+            MachineView old = sameMachines ? previous.machines[i] : null;
+            machines[i] = old != null && old.isCurrent(machine) ? old : new MachineView(machine);
+        }
+
+        long sequence = previous != null ? previous.sequence + 1 : 0;
+        return new WorldSnapshot(sequence, map, area, machines, structureVersion, game);
+    }
+
+    private static Rectangle clampArea(GameMap map, Rectangle requested, Position player) {
+        Rectangle area = requested != null ? new Rectangle(requested) : new Rectangle(
+                player.getX() - DEFAULT_AREA_SIZE / 2, player.getY() - DEFAULT_AREA_SIZE / 2,
+                DEFAULT_AREA_SIZE, DEFAULT_AREA_SIZE);
+        Rectangle clamped = area.intersection(new Rectangle(0, 0, map.getWidth(), map.getHeight()));
+        return clamped.isEmpty() ? new Rectangle(0, 0, 0, 0) : clamped;
+    }
+
+    public long getSequence() { return sequence; }
+    // Changes only when machines are placed or removed
+    public int getStructureVersion() { return structureVersion; }
+    public int getMapWidth() { return mapWidth; }
+    public int getMapHeight() { return mapHeight; }
+    public Rectangle getArea() { return new Rectangle(areaX, areaY, areaWidth, areaHeight); }
+
+    public boolean contains(int x, int y) {
+        return x >= areaX && x < areaX + areaWidth && y >= areaY && y < areaY + areaHeight;
+    }
+
+    private int index(int x, int y) {
+        return (y - areaY) * areaWidth + (x - areaX);
+    }
+
+    // Tile accessors return null / false for tiles outside the interest area
+    public TileType getTileType(int x, int y) {
+        return contains(x, y) ? TILE_TYPES[tileTypes[index(x, y)]] : null;
+    }
+
+    public ResourceType getResourceType(int x, int y) {
+        if (!contains(x, y)) {
+            return null;
+        }
+        int resource = resources[index(x, y)];
+        return resource == 0 ? null : RESOURCE_TYPES[resource - 1];
+    }
+
+    public boolean canHarvest(int x, int y) {
+        return contains(x, y) && resources[index(x, y)] != 0
+                && (harvestProgress[index(x, y)] & 0xFF) == HARVESTABLE;
+    }
+
+    public float getHarvestProgress(int x, int y) {
+        return contains(x, y) ? (harvestProgress[index(x, y)] & 0xFF) / (float) HARVESTABLE : 0f;
+    }
+
+    // Indexed inside the interest area; outside it a map of all machines is built once per snapshot
+    public MachineView getMachineAt(int x, int y) {
+        if (!contains(x, y)) {
+            Map<Long, MachineView> byTile = machinesByTile;
+            if (byTile == null) {
+                byTile = new HashMap<>();
+                for (MachineView machine : machines) {
+                    byTile.put(Position.key(machine.x, machine.y), machine);
+                }
+                machinesByTile = byTile;
+            }
+            return byTile.get(Position.key(x, y));
+        }
+        int machine = machineAt[index(x, y)];
+        return machine < 0 ? null : machines[machine];
+    }
+
+    public List<MachineView> getMachines() {
+        return Collections.unmodifiableList(Arrays.asList(machines));
+    }
+
+    public Position getPlayerPosition() { return playerPosition; }
+    public Position getSelectedTile() { return selectedTile; }
+    public int getMoney() { return money; }
+    public int getResourceCount(ResourceType type) { return playerResources[type.ordinal()]; }
+    public int getPlayerItems() { return playerItems; }
+    public int getPlayerCapacity() { return playerCapacity; }
+
+    public boolean hasSpace(int items) {
+        return playerItems + items <= playerCapacity;
+    }
+
+    public int getUnplacedMachineCount(MachineType type) { return unplacedMachines[type.ordinal()]; }
+    public int getMachineCount() { return machines.length; }
+    public int getMachineCount(MachineStatus status) { return machinesByStatus[status.ordinal()]; }
+    public int getMachineCount(MachineType type) { return machinesByType[type.ordinal()]; }
+    public int getMachinesNeedingMaintenance() { return machinesNeedingMaintenance; }
+    public int getMarketStock(ResourceType type) { return marketStock[type.ordinal()]; }
+    public int getMarketBuyPrice(ResourceType type) { return marketBuyPrices[type.ordinal()]; }
+    public int getMarketSellPrice(ResourceType type) { return marketSellPrices[type.ordinal()]; }
+
+    // Progress of the player's timed crafts by crafting id; finished crafts are absent
+    public Map<String, Float> getCraftingProgress() { return craftingProgress; }
+
+    public String getInventoryDisplay() {
+        return Inventory.formatDisplay(playerResources, playerItems, playerCapacity);
+    }
+
+    public interface TileVisitor {
+        void visit(int x, int y, boolean terrainChanged);
+    }
+
+    // Reports every tile that draws differently than in the previous snapshot: resources, machines,
+    // the player with its neighbours and the selection. Terrain is only compared where both
+    // snapshots' areas overlap. Tiles may be reported more than once or lie outside the map.
+    // Returns false if there is nothing to compare against.
+    public boolean forEachChangedTile(WorldSnapshot previous, TileVisitor visitor) {
+        if (previous == null || previous.mapWidth != mapWidth || previous.mapHeight != mapHeight) {
+            return false;
+        }
+
+        int startX = Math.max(areaX, previous.areaX);
+        int startY = Math.max(areaY, previous.areaY);
+        int endX = Math.min(areaX + areaWidth, previous.areaX + previous.areaWidth);
+        int endY = Math.min(areaY + areaHeight, previous.areaY + previous.areaHeight);
+        for (int y = startY; y < endY; y++) {
+            for (int x = startX; x < endX; x++) {
+                int i = index(x, y);
+                int p = previous.index(x, y);
+                boolean terrain = tileTypes[i] != previous.tileTypes[p] || resources[i] != previous.resources[p];
+                if (terrain || harvestProgress[i] != previous.harvestProgress[p]) {
+                    visitor.visit(x, y, terrain);
+                }
+            }
+        }
+
+        // Unchanged machines keep their view, so identity is enough while the fleet is the same
+        if (structureVersion == previous.structureVersion && machines.length == previous.machines.length) {
+            for (int m = 0; m < machines.length; m++) {
+                if (machines[m] != previous.machines[m]) {
+                    visitor.visit(previous.machines[m].x, previous.machines[m].y, false);
+                    visitor.visit(machines[m].x, machines[m].y, false);
+                }
+            }
+        } else {
+            for (MachineView machine : previous.machines) {
+                visitor.visit(machine.x, machine.y, false);
+            }
+            for (MachineView machine : machines) {
+                visitor.visit(machine.x, machine.y, false);
+            }
+        }
+
+        if (!samePosition(playerPosition, previous.playerPosition)) {
+            visitNeighbourhood(previous.playerPosition, visitor);
+            visitNeighbourhood(playerPosition, visitor);
+        }
+        if (!samePosition(selectedTile, previous.selectedTile)) {
+            if (previous.selectedTile != null) {
+                visitor.visit(previous.selectedTile.getX(), previous.selectedTile.getY(), false);
+            }
+            if (selectedTile != null) {
+                visitor.visit(selectedTile.getX(), selectedTile.getY(), false);
+            }
+        }
+        return true;
+    }
+
+    // Everything that differs from the previous snapshot as typed events, in no particular order
+    public List<GameEvent> changesSince(WorldSnapshot previous) {
+        List<GameEvent> events = new ArrayList<>();
+        if (!forEachChangedTile(previous, (x, y, terrainChanged) -> events.add(new GameEvent.TileChanged(x, y, terrainChanged)))) {
+            events.add(new GameEvent.WorldReset());
+            return events;
+        }
+
+        if (structureVersion == previous.structureVersion && machines.length == previous.machines.length) {
+            for (int m = 0; m < machines.length; m++) {
+                if (machines[m] != previous.machines[m]) {
+                    addMachineChanges(previous.machines[m], machines[m], events);
+                }
+            }
+        } else {
+            Map<Long, MachineView> before = new HashMap<>();
+            for (MachineView machine : previous.machines) {
+                before.put(Position.key(machine.x, machine.y), machine);
+            }
+            // Views are rebuilt when the fleet changes, so compare what they show
+            for (MachineView machine : machines) {
+                MachineView old = before.remove(Position.key(machine.x, machine.y));
+                if (old == null || !old.showsSameAs(machine)) {
+                    addMachineChanges(old, machine, events);
+                }
+            }
+            for (MachineView removed : before.values()) {
+                events.add(new GameEvent.MachineStatusChanged(removed.getPosition(), removed.status, null, null));
+            }
+        }
+
+        if (!samePosition(playerPosition, previous.playerPosition)) {
+            events.add(new GameEvent.PlayerMoved(previous.playerPosition, playerPosition));
+        }
+        int resourceMask = changedMask(previous.playerResources, playerResources);
+        boolean moneyChanged = money != previous.money;
+        boolean unplacedChanged = !Arrays.equals(unplacedMachines, previous.unplacedMachines);
+        if (resourceMask != 0 || moneyChanged || unplacedChanged || playerCapacity != previous.playerCapacity) {
+            events.add(new GameEvent.InventoryChanged(null, resourceMask, moneyChanged, unplacedChanged));
+        }
+        for (ResourceType type : RESOURCE_TYPES) {
+            int i = type.ordinal();
+            if (marketStock[i] != previous.marketStock[i] || marketBuyPrices[i] != previous.marketBuyPrices[i]
+                    || marketSellPrices[i] != previous.marketSellPrices[i]) {
+                events.add(new GameEvent.MarketChanged(type));
+            }
+        }
+        return events;
+    }
+
+    private static void addMachineChanges(MachineView old, MachineView machine, List<GameEvent> events) {
+        events.add(new GameEvent.MachineStatusChanged(machine.getPosition(), old != null ? old.status : null,
+                machine.status, machine));
+        int resourceMask = changedMask(old != null ? old.inventory : null, machine.inventory);
+        if (resourceMask != 0) {
+            events.add(new GameEvent.InventoryChanged(machine.getPosition(), resourceMask, false, false));
+        }
+    }
+
+    private static int changedMask(int[] before, int[] after) {
+        int mask = 0;
+        for (int i = 0; i < after.length; i++) {
+            if (before == null ? after[i] != 0 : before[i] != after[i]) {
+                mask |= 1 << i;
+            }
+        }
+        return mask;
+    }
+
+    private static boolean samePosition(Position a, Position b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        return a.getX() == b.getX() && a.getY() == b.getY();
+    }
+
+    private static void visitNeighbourhood(Position center, TileVisitor visitor) {
+        for (int dy = -1; dy <= 1; dy++) {
+            for (int dx = -1; dx <= 1; dx++) {
+                visitor.visit(center.getX() + dx, center.getY() + dy, false);
+            }
+        }
+    }
+
+    // Read-only view of one placed machine
+    public static final class MachineView {
+        private final int x;
+        private final int y;
+        private final MachineType type;
+        private final MachineStatus status;
+        private final String statusMessage;
+        private final boolean working;
+        private final boolean needsMaintenance;
+        private final int operationsSinceMaintenance;
+        private final int remainingConfigurations;
+        private final boolean reconfigurable;
+        private final int inventoryItems;
+        private final int inventoryCapacity;
+        private final int[] inventory;
+        private final ResourceType targetResource;
+        private final String recipeName;
+        private final float craftingProgress;
+        private final long stateVersion;
+
+        public MachineView(Machine machine) {
+            this.x = machine.getPosition().getX();
+            this.y = machine.getPosition().getY();
+            this.type = machine.getType();
+            this.status = machine.getStatus();
+            this.statusMessage = machine.getStatusMessage();
+            this.working = machine.isWorking();
+            this.needsMaintenance = machine.needsMaintenance();
+            this.operationsSinceMaintenance = machine.getOperationsSinceMaintenance();
+            this.remainingConfigurations = machine.getRemainingConfigurations();
+            this.reconfigurable = machine.canBeReconfigured();
+            Inventory machineInventory = machine.getInventory();
+            this.inventoryItems = machineInventory.getTotalItems();
+            this.inventoryCapacity = machine.getInventoryCapacity();
+            this.inventory = new int[RESOURCE_TYPES.length];
+            for (ResourceType resourceType : RESOURCE_TYPES) {
+                inventory[resourceType.ordinal()] = machineInventory.getResourceCount(resourceType);
+            }
+            if (machine instanceof Harvester) {
+                this.targetResource = ((Harvester) machine).getTargetResource();
+                this.recipeName = null;
+                this.craftingProgress = 0f;
+            } else if (machine instanceof Factory) {
+                Recipe recipe = ((Factory) machine).getSelectedRecipe();
+                this.targetResource = null;
+                this.recipeName = recipe != null ? recipe.getName() : null;
+                this.craftingProgress = ((Factory) machine).getCraftingProgress();
+            } else {
+                this.targetResource = null;
+                this.recipeName = null;
+                this.craftingProgress = 0f;
+            }
+            this.stateVersion = machine.getStateVersion();
+        }
+
+        // Everything shown is covered by the state version except status and crafting progress
+        boolean isCurrent(Machine machine) {
+            return machine.getStateVersion() == stateVersion
+                    && machine.getStatus() == status
+                    && machine.isWorking() == working
+                    && (!(machine instanceof Factory) || ((Factory) machine).getCraftingProgress() == craftingProgress);
+        }
+
+        boolean showsSameAs(MachineView other) {
+            return type == other.type && stateVersion == other.stateVersion && status == other.status
+                    && working == other.working && craftingProgress == other.craftingProgress;
+        }
+
+        public int getX() { return x; }
+        public int getY() { return y; }
+        public Position getPosition() { return new Position(x, y); }
+        public MachineType getType() { return type; }
+        public boolean isHarvester() { return type.toString().contains("HARVESTER"); }
+        public boolean isFactory() { return type.toString().contains("FACTORY"); }
+        public MachineStatus getStatus() { return status; }
+        public String getStatusMessage() { return statusMessage; }
+        public boolean isWorking() { return working; }
+        public boolean needsMaintenance() { return needsMaintenance; }
+        public int getOperationsSinceMaintenance() { return operationsSinceMaintenance; }
+        public int getRemainingConfigurations() { return remainingConfigurations; }
+        public boolean canBeReconfigured() { return reconfigurable; }
+        public int getInventoryItems() { return inventoryItems; }
+        public int getInventoryCapacity() { return inventoryCapacity; }
+        public int getResourceCount(ResourceType resourceType) { return inventory[resourceType.ordinal()]; }
+        public ResourceType getTargetResource() { return targetResource; }
+        public String getRecipeName() { return recipeName; }
+        public float getCraftingProgress() { return craftingProgress; }
+    }
+}
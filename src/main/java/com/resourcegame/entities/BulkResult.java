@@ -0,0 +1,37 @@
+package com.resourcegame.entities;
+
+import com.resourcegame.utils.ResourceType;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+// Outcome of one bulk operation on the fleet. A failed operation changed nothing.
+public class BulkResult {
+    public enum Failure { NONE, INSUFFICIENT_FUNDS, INVENTORY_FULL }
+
+    private final int matched;
+    private final int affected;
+    private final int cost;
+    private final Map<ResourceType, Integer> moved;
+    private final Failure failure;
+
+    BulkResult(int matched, int affected, int cost, EnumMap<ResourceType, Integer> moved, Failure failure) {
+        this.matched = matched;
+        this.affected = affected;
+        this.cost = cost;
+        this.moved = Collections.unmodifiableMap(new EnumMap<>(moved));
+        this.failure = failure;
+    }
+
+    static BulkResult failed(int matched, int cost, Failure failure) {
+        return new BulkResult(matched, 0, cost, new EnumMap<>(ResourceType.class), failure);
+    }
+
+    public int getMatched() { return matched; }
+    public int getAffected() { return affected; }
+    public int getCost() { return cost; }
+    public Map<ResourceType, Integer> getMoved() { return moved; }
+    public Failure getFailure() { return failure; }
+    public boolean isSuccess() { return failure == Failure.NONE; }
+}
@@ -145,6 +145,7 @@ public class Factory extends Machine {
         if (this.selectedRecipe != recipe) {
             this.selectedRecipe = recipe;
             incrementConfigurationCount();
+            markStateChanged();
             setStatus(recipe != null ? MachineStatus.IDLE : MachineStatus.NEEDS_CONFIG);
             
             // Clear any in-progress crafting when recipe changes
@@ -115,6 +115,7 @@ public class Harvester extends Machine {
         if (this.targetResource != resource) {
             this.targetResource = resource;
             incrementConfigurationCount();
+            markStateChanged();
             setStatus(resource != null ? MachineStatus.IDLE : MachineStatus.NEEDS_CONFIG);
         }
     }
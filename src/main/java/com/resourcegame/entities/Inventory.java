@@ -10,6 +10,7 @@ public class Inventory {
     private Map<MachineType, Integer> unplacedMachines; // Storage for machines
     private int capacity;
     private int money;
+    private int modCount; // Bumped on every change so savers can skip untouched inventories
 
     public Inventory() {
         this(100); // Default capacity of 100 for player inventory
@@ -27,12 +28,43 @@ public class Inventory {
             return false;
         }
         resources.merge(type, quantity, Integer::sum);
+        modCount++;
         return true;
     }
 
+    // All or nothing: either every amount fits or the inventory is left unchanged
+    public boolean addResources(Map<ResourceType, Integer> amounts) {
+        int total = 0;
+        for (int amount : amounts.values()) {
+            total += amount;
+        }
+        if (getTotalItems() + total > capacity) {
+            return false;
+        }
+        for (Map.Entry<ResourceType, Integer> entry : amounts.entrySet()) {
+            if (entry.getValue() > 0) {
+                resources.merge(entry.getKey(), entry.getValue(), Integer::sum);
+            }
+        }
+        modCount++;
+        return true;
+    }
+
+    // Empties the resources into the given map, adding to what it already holds
+    public void takeAllResources(Map<ResourceType, Integer> into) {
+        if (resources.isEmpty()) {
+            return;
+        }
+        for (Map.Entry<ResourceType, Integer> entry : resources.entrySet()) {
+            into.merge(entry.getKey(), entry.getValue(), Integer::sum);
+        }
+        resources.clear();
+        modCount++;
+    }
 
     public void addMachine(MachineType type) {
         unplacedMachines.merge(type, 1, Integer::sum);
+        modCount++;
     }
 
     public boolean removeResource(ResourceType type, int quantity) {
@@ -46,16 +78,19 @@ public class Inventory {
         } else {
             resources.put(type, current - quantity);
         }
+        modCount++;
         return true;
     }
 
     public void addMoney(int amount) {
         this.money += amount;
+        modCount++;
     }
 
     public boolean removeMoney(int amount) {
         if (money >= amount) {
             money -= amount;
+            modCount++;
             return true;
         }
         return false;
@@ -65,6 +100,10 @@ public class Inventory {
         return money;
     }
 
+    public int getModCount() {
+        return modCount;
+    }
+
     public int getCapacity() {
         return capacity;
     }
@@ -93,6 +132,7 @@ public class Inventory {
             } else {
                 unplacedMachines.put(type, count - 1);
             }
+            modCount++;
             return true;
         }
         return false;
@@ -107,11 +147,20 @@ public class Inventory {
     }
 
     public String getInventoryDisplay() {
+        int[] counts = new int[ResourceType.values().length];
+        for (Map.Entry<ResourceType, Integer> entry : resources.entrySet()) {
+            counts[entry.getKey().ordinal()] = entry.getValue();
+        }
+        return formatDisplay(counts, getTotalItems(), capacity);
+    }
+
+    // Shared with the world snapshot, which has the counts by ResourceType ordinal but no Inventory
+    public static String formatDisplay(int[] counts, int items, int capacity) {
         StringBuilder sb = new StringBuilder();
         boolean hasItems = false;
 
         for (ResourceType type : ResourceType.values()) {
-            int count = getResourceCount(type);
+            int count = counts[type.ordinal()];
             if (count > 0) {
                 if (hasItems) {
                     sb.append("\n");
@@ -125,8 +174,8 @@ public class Inventory {
             sb.append("Empty");
         }
 
-        sb.append("\nSpace: ").append(getTotalItems()).append("/").append(capacity);
+        sb.append("\nSpace: ").append(items).append("/").append(capacity);
 
         return sb.toString();
     }
-}
\ No newline at end of file
+}
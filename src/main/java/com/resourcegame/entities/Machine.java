@@ -25,6 +25,8 @@ public abstract class Machine {
     private static final double WARNING_THRESHOLD_PERCENTAGE = 0.7;
     private static final long OPERATION_COOLDOWN = 1000;
     protected long lastOperationTime;
+    private int stateVersion; // Bumped when any saved field changes
+    private MachineIndex index; // Set while the machine is placed
 
     public Machine(Position position, MachineType type) {
         this.position = position;
@@ -75,6 +77,7 @@ public abstract class Machine {
 
             if (random.nextFloat() < breakdownChance) {
                 needsMaintenance = true;
+                markStateChanged();
                 setStatus(MachineStatus.NEEDS_MAINTENANCE);
                 return false;
             }
@@ -95,6 +98,7 @@ public abstract class Machine {
         if (needsMaintenance) {
             needsMaintenance = false;
             operationsSinceMaintenance = 0;
+            markStateChanged();
             setStatus(MachineStatus.IDLE);
             return true;
         }
@@ -111,6 +115,38 @@ public abstract class Machine {
         }
     }
 
+    protected void markStateChanged() {
+        stateVersion++;
+        if (index != null) {
+            index.update(this);
+        }
+    }
+
+    void setIndex(MachineIndex index) {
+        this.index = index;
+    }
+
+    // Changes whenever the machine's saved state (including its inventory) changes
+    public long getStateVersion() {
+        return ((long) stateVersion << 32) + inventory.getModCount();
+    }
+
+    public int getTimesConfigured() {
+        return timesConfigured;
+    }
+
+    // Used when loading a save, after the configuration itself has been applied,
+    // so restoring a recipe or target does not count against the configuration limit
+    public void restoreState(int timesConfigured, int operationsSinceMaintenance, boolean needsMaintenance) {
+        this.timesConfigured = timesConfigured;
+        this.operationsSinceMaintenance = operationsSinceMaintenance;
+        this.needsMaintenance = needsMaintenance;
+        markStateChanged();
+        if (needsMaintenance) {
+            setStatus(MachineStatus.NEEDS_MAINTENANCE);
+        }
+    }
+
     public int getRemainingConfigurations() {
         if (type.getConfigurationLimit() == 0) {
             return Integer.MAX_VALUE;
@@ -142,6 +178,9 @@ public abstract class Machine {
         if (this.status != newStatus) {
             this.status = newStatus;
             isWorking = (newStatus == MachineStatus.WORKING);
+            if (index != null) {
+                index.update(this);
+            }
         }
     }
 
@@ -167,6 +206,18 @@ public abstract class Machine {
         return type.isFragile() ? FRAGILE_MAINTENANCE_THRESHOLD : NORMAL_MAINTENANCE_THRESHOLD;
     }
 
+    public static int getMaintenanceCost(MachineType type, int operationsSinceMaintenance) {
+        // Base cost is 10% of machine's original price
+        int baseCost = (int) (type.getBasePrice() * 0.1);
+        // Add additional cost based on operations since last maintenance
+        int operationsCost = operationsSinceMaintenance * 2;
+        return baseCost + operationsCost;
+    }
+
+    public int getMaintenanceCost() {
+        return getMaintenanceCost(type, operationsSinceMaintenance);
+    }
+
     public static int getFragileMaintenanceThreshold() {
         return FRAGILE_MAINTENANCE_THRESHOLD;
     }
@@ -177,6 +228,7 @@ public abstract class Machine {
         if (currentTime - lastOperationTime >= OPERATION_COOLDOWN) {
             operationsSinceMaintenance++;
             lastOperationTime = currentTime;
+            markStateChanged();
         }
     }
 
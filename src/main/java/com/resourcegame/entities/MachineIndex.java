@@ -0,0 +1,229 @@
+package com.resourcegame.entities;
+
+import com.resourcegame.systems.Recipe;
+import com.resourcegame.utils.MachineStatus;
+import com.resourcegame.utils.MachineType;
+import com.resourcegame.utils.Position;
+import com.resourcegame.utils.ResourceType;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Secondary indexes over the placed machines: by tile, map region, type, status,
+// maintenance and configuration. Machines report their own changes through update().
+class MachineIndex {
+    private static final int CELL_SIZE = 16;
+
+    private final Map<Long, Machine> byTile = new HashMap<>();
+    private final Map<Long, Set<Machine>> byCell = new HashMap<>();
+    private final Map<MachineType, Set<Machine>> byType = new EnumMap<>(MachineType.class);
+    private final Map<MachineStatus, Set<Machine>> byStatus = new EnumMap<>(MachineStatus.class);
+    private final Set<Machine> needingMaintenance = new HashSet<>();
+    private final Map<ResourceType, Set<Machine>> byTarget = new EnumMap<>(ResourceType.class);
+    private final Map<String, Set<Machine>> byRecipe = new HashMap<>();
+    // What each machine is currently filed under, so a change moves it out of the old sets
+    private final Map<Machine, Keys> keys = new HashMap<>();
+
+    private static class Keys {
+        MachineStatus status;
+        boolean needsMaintenance;
+        ResourceType target;
+        String recipeName;
+    }
+
+    void add(Machine machine) {
+        byTile.put(Position.key(machine.getPosition().getX(), machine.getPosition().getY()), machine);
+        addTo(byCell, cellKey(machine), machine);
+        addTo(byType, machine.getType(), machine);
+        keys.put(machine, new Keys());
+        update(machine);
+    }
+
+    void remove(Machine machine) {
+        Keys old = keys.remove(machine);
+        if (old == null) {
+            return;
+        }
+        byTile.remove(Position.key(machine.getPosition().getX(), machine.getPosition().getY()));
+        removeFrom(byCell, cellKey(machine), machine);
+        removeFrom(byType, machine.getType(), machine);
+        removeFrom(byStatus, old.status, machine);
+        needingMaintenance.remove(machine);
+        removeFrom(byTarget, old.target, machine);
+        removeFrom(byRecipe, old.recipeName, machine);
+    }
+
+    // Cheap when nothing indexed changed, which is the common case
+    void update(Machine machine) {
+        Keys current = keys.get(machine);
+        if (current == null) {
+            return;
+        }
+        if (current.status != machine.getStatus()) {
+            removeFrom(byStatus, current.status, machine);
+            current.status = machine.getStatus();
+            addTo(byStatus, current.status, machine);
+        }
+        if (current.needsMaintenance != machine.needsMaintenance()) {
+            current.needsMaintenance = machine.needsMaintenance();
+            if (current.needsMaintenance) {
+                needingMaintenance.add(machine);
+            } else {
+                needingMaintenance.remove(machine);
+            }
+        }
+        ResourceType target = targetOf(machine);
+        if (current.target != target) {
+            removeFrom(byTarget, current.target, machine);
+            current.target = target;
+            addTo(byTarget, target, machine);
+        }
+        String recipeName = recipeOf(machine);
+        if (current.recipeName == null ? recipeName != null : !current.recipeName.equals(recipeName)) {
+            removeFrom(byRecipe, current.recipeName, machine);
+            current.recipeName = recipeName;
+            addTo(byRecipe, recipeName, machine);
+        }
+    }
+
+    // The index sets double as fleet counters, so these are O(1)
+    int count(MachineStatus status) {
+        return sizeOf(byStatus.get(status));
+    }
+
+    int count(MachineType type) {
+        return sizeOf(byType.get(type));
+    }
+
+    int countNeedingMaintenance() {
+        return needingMaintenance.size();
+    }
+
+    Machine getMachineAt(int x, int y) {
+        return byTile.get(Position.key(x, y));
+    }
+
+    // Walks the smallest index the query allows and checks the other criteria per machine,
+    // so the cost follows that index's size rather than the fleet's
+    List<Machine> query(MachineQuery query, Collection<Machine> all) {
+        List<Collection<Machine>> best = Collections.singletonList(all);
+        int bestSize = all.size();
+
+        if (query.types != null) {
+            List<Collection<Machine>> parts = new ArrayList<>();
+            int size = 0;
+            for (MachineType type : query.types) {
+                Set<Machine> machines = byType.get(type);
+                if (machines != null) {
+                    parts.add(machines);
+                    size += machines.size();
+                }
+            }
+            if (size < bestSize) {
+                best = parts;
+                bestSize = size;
+            }
+        }
+        if (query.status != null && sizeOf(byStatus.get(query.status)) < bestSize) {
+            best = partsOf(byStatus.get(query.status));
+            bestSize = sizeOf(byStatus.get(query.status));
+        }
+        if (query.needingMaintenance && needingMaintenance.size() < bestSize) {
+            best = Collections.singletonList(needingMaintenance);
+            bestSize = needingMaintenance.size();
+        }
+        if (query.target != null && sizeOf(byTarget.get(query.target)) < bestSize) {
+            best = partsOf(byTarget.get(query.target));
+            bestSize = sizeOf(byTarget.get(query.target));
+        }
+        if (query.recipeName != null && sizeOf(byRecipe.get(query.recipeName)) < bestSize) {
+            best = partsOf(byRecipe.get(query.recipeName));
+            bestSize = sizeOf(byRecipe.get(query.recipeName));
+        }
+        if (query.hasArea && query.areaWidth > 0 && query.areaHeight > 0) {
+            List<Collection<Machine>> parts = new ArrayList<>();
+            int size = 0;
+            int cellX0 = Math.floorDiv(query.areaX, CELL_SIZE);
+            int cellY0 = Math.floorDiv(query.areaY, CELL_SIZE);
+            int cellX1 = Math.floorDiv(query.areaX + query.areaWidth - 1, CELL_SIZE);
+            int cellY1 = Math.floorDiv(query.areaY + query.areaHeight - 1, CELL_SIZE);
+            // A huge area has more cells than machines; the other indexes cover it then
+            if ((long) (cellX1 - cellX0 + 1) * (cellY1 - cellY0 + 1) <= bestSize) {
+                for (int cellY = cellY0; cellY <= cellY1; cellY++) {
+                    for (int cellX = cellX0; cellX <= cellX1; cellX++) {
+                        Set<Machine> machines = byCell.get(Position.key(cellX, cellY));
+                        if (machines != null) {
+                            parts.add(machines);
+                            size += machines.size();
+                        }
+                    }
+                }
+                if (size < bestSize) {
+                    best = parts;
+                }
+            }
+        }
+
+        List<Machine> result = new ArrayList<>();
+        for (Collection<Machine> part : best) {
+            for (Machine machine : part) {
+                if (query.matches(machine)) {
+                    result.add(machine);
+                }
+            }
+        }
+        return result;
+    }
+
+    static ResourceType targetOf(Machine machine) {
+        return machine instanceof Harvester ? ((Harvester) machine).getTargetResource() : null;
+    }
+
+    static String recipeOf(Machine machine) {
+        if (machine instanceof Factory) {
+            Recipe recipe = ((Factory) machine).getSelectedRecipe();
+            return recipe != null ? recipe.getName() : null;
+        }
+        return null;
+    }
+
+    // Unconfigured machines have a null target or recipe and aren't filed
+    private static <K> void addTo(Map<K, Set<Machine>> index, K key, Machine machine) {
+        if (key != null) {
+            index.computeIfAbsent(key, k -> new HashSet<>()).add(machine);
+        }
+    }
+
+    private static <K> void removeFrom(Map<K, Set<Machine>> index, K key, Machine machine) {
+        if (key == null) {
+            return;
+        }
+        Set<Machine> machines = index.get(key);
+        if (machines != null) {
+            machines.remove(machine);
+            if (machines.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private static int sizeOf(Set<Machine> machines) {
+        return machines == null ? 0 : machines.size();
+    }
+
+    private static List<Collection<Machine>> partsOf(Set<Machine> machines) {
+        return machines == null ? Collections.emptyList() : Collections.singletonList(machines);
+    }
+
+    private static long cellKey(Machine machine) {
+        return Position.key(Math.floorDiv(machine.getPosition().getX(), CELL_SIZE),
+                Math.floorDiv(machine.getPosition().getY(), CELL_SIZE));
+    }
+}
@@ -1,14 +1,20 @@
 package com.resourcegame.entities;
 
 import com.resourcegame.utils.Position;
+import com.resourcegame.utils.MachineStatus;
 import com.resourcegame.utils.MachineType;
+import com.resourcegame.utils.ResourceType;
+import com.resourcegame.systems.Recipe;
 import com.resourcegame.core.GameMap;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.EnumMap;
 
 public class MachineManager {
     private List<Machine> machines;
     private GameMap gameMap;
+    private final MachineIndex index = new MachineIndex();
+    private int structureVersion; // Bumped when machines are added or removed
     
     public MachineManager(GameMap gameMap) {
         this.machines = new ArrayList<>();
@@ -24,7 +30,11 @@ public class MachineManager {
         }
         
         if (machine != null) {
+            removeMachine(position); // One machine per tile
             machines.add(machine);
+            index.add(machine);
+            machine.setIndex(index);
+            structureVersion++;
         }
         return machine;
     }
@@ -36,14 +46,118 @@ public class MachineManager {
     }
     
     public Machine getMachineAt(Position position) {
-        return machines.stream()
-            .filter(m -> m.getPosition().equals(position))
-            .findFirst()
-            .orElse(null);
+        return getMachineAt(position.getX(), position.getY());
+    }
+    
+    public Machine getMachineAt(int x, int y) {
+        return index.getMachineAt(x, y);
     }
     
     public void removeMachine(Position position) {
-        machines.removeIf(m -> m.getPosition().equals(position));
+        Machine machine = index.getMachineAt(position.getX(), position.getY());
+        if (machine != null) {
+            machines.remove(machine);
+            index.remove(machine);
+            machine.setIndex(null);
+            structureVersion++;
+        }
+    }
+
+    // Matching placed machines, found through the indexes rather than a scan of the fleet
+    public List<Machine> query(MachineQuery query) {
+        return index.query(query, machines);
+    }
+
+    // Bulk operations: one pass over the machines the query matches. Money and items move
+    // through the player's inventory once for the whole batch, so the batch either goes
+    // through completely or not at all, and it shows up as a single change. Each operation
+    // narrows a copy of the query to the machines it applies to; the caller's is left as is.
+
+    public BulkResult maintain(MachineQuery query, Inventory payer) {
+        List<Machine> due = index.query(query.copy().needingMaintenance(), machines);
+        int cost = 0;
+        for (Machine machine : due) {
+            cost += machine.getMaintenanceCost();
+        }
+        if (due.isEmpty()) {
+            return new BulkResult(0, 0, 0, new EnumMap<>(ResourceType.class), BulkResult.Failure.NONE);
+        }
+        if (!payer.removeMoney(cost)) {
+            return BulkResult.failed(due.size(), cost, BulkResult.Failure.INSUFFICIENT_FUNDS);
+        }
+        for (Machine machine : due) {
+            machine.performMaintenance();
+        }
+        return new BulkResult(due.size(), due.size(), cost, new EnumMap<>(ResourceType.class), BulkResult.Failure.NONE);
+    }
+
+    public BulkResult collect(MachineQuery query, Inventory into) {
+        List<Machine> matched = index.query(query, machines);
+        int items = 0;
+        int holding = 0;
+        for (Machine machine : matched) {
+            int machineItems = machine.getInventory().getTotalItems();
+            if (machineItems > 0) {
+                items += machineItems;
+                holding++;
+            }
+        }
+        if (!into.hasSpace(items)) {
+            return BulkResult.failed(matched.size(), 0, BulkResult.Failure.INVENTORY_FULL);
+        }
+        EnumMap<ResourceType, Integer> moved = new EnumMap<>(ResourceType.class);
+        for (Machine machine : matched) {
+            machine.getInventory().takeAllResources(moved);
+        }
+        into.addResources(moved);
+        return new BulkResult(matched.size(), holding, 0, moved, BulkResult.Failure.NONE);
+    }
+
+    // Machines that can't be reconfigured any more, or already have the target, are skipped
+    public BulkResult setTarget(MachineQuery query, ResourceType target) {
+        List<Machine> matched = index.query(query.copy().harvesters(), machines);
+        int changed = 0;
+        for (Machine machine : matched) {
+            Harvester harvester = (Harvester) machine;
+            if (harvester.getTargetResource() != target && harvester.canBeReconfigured()) {
+                harvester.setTargetResource(target);
+                changed++;
+            }
+        }
+        return new BulkResult(matched.size(), changed, 0, new EnumMap<>(ResourceType.class), BulkResult.Failure.NONE);
+    }
+
+    public BulkResult setRecipe(MachineQuery query, Recipe recipe) {
+        List<Machine> matched = index.query(query.copy().factories(), machines);
+        int changed = 0;
+        for (Machine machine : matched) {
+            Factory factory = (Factory) machine;
+            if (factory.getSelectedRecipe() != recipe && factory.canBeReconfigured()) {
+                factory.setRecipe(recipe);
+                changed++;
+            }
+        }
+        return new BulkResult(matched.size(), changed, 0, new EnumMap<>(ResourceType.class), BulkResult.Failure.NONE);
+    }
+
+    public int getMachineCount() {
+        return machines.size();
+    }
+
+    public int getMachineCount(MachineStatus status) {
+        return index.count(status);
+    }
+
+    public int getMachineCount(MachineType type) {
+        return index.count(type);
+    }
+
+    public int getMaintenanceDueCount() {
+        return index.countNeedingMaintenance();
+    }
+
+    public int getStructureVersion() {
+        return structureVersion;
     }
     
     public List<Machine> getAllMachines() {
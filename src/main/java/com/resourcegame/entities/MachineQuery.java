@@ -0,0 +1,135 @@
+package com.resourcegame.entities;
+
+import com.resourcegame.utils.MachineStatus;
+import com.resourcegame.utils.MachineType;
+import com.resourcegame.utils.ResourceType;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+// Criteria for MachineManager.query. Criteria left unset match every machine; each call
+// narrows the query further.
+public class MachineQuery {
+    Set<MachineType> types;
+    MachineStatus status;
+    boolean needingMaintenance;
+    ResourceType target;
+    String recipeName;
+    boolean hasArea;
+    int areaX, areaY, areaWidth, areaHeight;
+
+    // Lets an operation narrow the query further without changing the caller's
+    public MachineQuery copy() {
+        MachineQuery copy = new MachineQuery();
+        copy.types = types != null ? EnumSet.copyOf(types) : null;
+        copy.status = status;
+        copy.needingMaintenance = needingMaintenance;
+        copy.target = target;
+        copy.recipeName = recipeName;
+        copy.hasArea = hasArea;
+        copy.areaX = areaX;
+        copy.areaY = areaY;
+        copy.areaWidth = areaWidth;
+        copy.areaHeight = areaHeight;
+        return copy;
+    }
+
+    public MachineQuery ofTypes(MachineType... types) {
+        Set<MachineType> allowed = EnumSet.noneOf(MachineType.class);
+        for (MachineType type : types) {
+            allowed.add(type);
+        }
+        return restrictTypes(allowed);
+    }
+
+    public MachineQuery harvesters() {
+        return restrictTypes(typesNamed("HARVESTER"));
+    }
+
+    public MachineQuery factories() {
+        return restrictTypes(typesNamed("FACTORY"));
+    }
+
+    public MachineQuery fragile() {
+        Set<MachineType> fragile = EnumSet.noneOf(MachineType.class);
+        for (MachineType type : MachineType.values()) {
+            if (type.isFragile()) {
+                fragile.add(type);
+            }
+        }
+        return restrictTypes(fragile);
+    }
+
+    public MachineQuery withStatus(MachineStatus status) {
+        this.status = status;
+        return this;
+    }
+
+    public MachineQuery needingMaintenance() {
+        this.needingMaintenance = true;
+        return this;
+    }
+
+    public MachineQuery targeting(ResourceType target) {
+        this.target = target;
+        return this;
+    }
+
+    public MachineQuery withRecipe(String recipeName) {
+        this.recipeName = recipeName;
+        return this;
+    }
+
+    // In tiles, like GameMap coordinates
+    public MachineQuery inArea(int x, int y, int width, int height) {
+        this.hasArea = true;
+        this.areaX = x;
+        this.areaY = y;
+        this.areaWidth = width;
+        this.areaHeight = height;
+        return this;
+    }
+
+    public boolean matches(Machine machine) {
+        if (types != null && !types.contains(machine.getType())) {
+            return false;
+        }
+        if (status != null && machine.getStatus() != status) {
+            return false;
+        }
+        if (needingMaintenance && !machine.needsMaintenance()) {
+            return false;
+        }
+        if (target != null && MachineIndex.targetOf(machine) != target) {
+            return false;
+        }
+        if (recipeName != null && !recipeName.equals(MachineIndex.recipeOf(machine))) {
+            return false;
+        }
+        if (hasArea) {
+            int x = machine.getPosition().getX();
+            int y = machine.getPosition().getY();
+            return x >= areaX && y >= areaY && x < areaX + areaWidth && y < areaY + areaHeight;
+        }
+        return true;
+    }
+
+    private MachineQuery restrictTypes(Set<MachineType> allowed) {
+        if (types == null) {
+            types = allowed;
+        } else {
+            types.retainAll(allowed);
+        }
+        return this;
+    }
+
+    private static Set<MachineType> typesNamed(String kind) {
+        Set<MachineType> matching = EnumSet.noneOf(MachineType.class);
+        for (MachineType type : MachineType.values()) {
+            if (type.toString().contains(kind)) {
+                matching.add(type);
+            }
+        }
+        return matching;
+    }
+}
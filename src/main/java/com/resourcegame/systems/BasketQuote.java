@@ -0,0 +1,64 @@
+package com.resourcegame.systems;
+
+import com.resourcegame.utils.ResourceType;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+public class BasketQuote {
+    private final boolean selling;
+    private final Map<ResourceType, Integer> quantities;
+    private final Map<ResourceType, Integer> legTotals;
+    private final int total;
+    private final int totalItems;
+    private final String failureReason;
+
+    BasketQuote(boolean selling, Map<ResourceType, Integer> quantities,
+            Map<ResourceType, Integer> legTotals, String failureReason) {
+        this.selling = selling;
+        this.quantities = Collections.unmodifiableMap(new EnumMap<>(quantities));
+        this.legTotals = Collections.unmodifiableMap(new EnumMap<>(legTotals));
+        this.total = legTotals.values().stream().mapToInt(Integer::intValue).sum();
+        this.totalItems = quantities.values().stream().mapToInt(Integer::intValue).sum();
+        this.failureReason = failureReason;
+    }
+
+    public boolean isSelling() {
+        return selling;
+    }
+
+    public boolean isFeasible() {
+        return failureReason == null;
+    }
+
+    public String getFailureReason() {
+        return failureReason;
+    }
+
+    // Quantity per resource after merging legs of the same type
+    public Map<ResourceType, Integer> getQuantities() {
+        return quantities;
+    }
+
+    // Total cost (buying) or proceeds (selling) per resource, including slippage
+    public Map<ResourceType, Integer> getLegTotals() {
+        return legTotals;
+    }
+
+    public int getLegTotal(ResourceType type) {
+        return legTotals.getOrDefault(type, 0);
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int getTotalItems() {
+        return totalItems;
+    }
+
+    public double getAveragePrice(ResourceType type) {
+        int quantity = quantities.getOrDefault(type, 0);
+        return quantity == 0 ? 0 : (double) getLegTotal(type) / quantity;
+    }
+}
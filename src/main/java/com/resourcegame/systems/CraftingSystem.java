@@ -8,7 +8,6 @@ import java.util.concurrent.*;
 public class CraftingSystem {
     private List<Recipe> recipes;
     private Map<String, CraftingProcess> activeProcesses;
-    private ScheduledExecutorService craftingExecutor;
     private List<CraftingListener> craftingListeners;
     
 
@@ -23,8 +22,7 @@ public class CraftingSystem {
     public CraftingSystem() {
         this.recipes = new ArrayList<>();
         this.activeProcesses = new ConcurrentHashMap<>();
-        this.craftingExecutor = Executors.newScheduledThreadPool(1);
-        this.craftingListeners = new ArrayList<>();
+        this.craftingListeners = new CopyOnWriteArrayList<>(); // Panels come and go on the EDT
         initializeRecipes();
     }
 
@@ -112,6 +110,15 @@ public class CraftingSystem {
         return new ArrayList<>(recipes);
     }
 
+    public Recipe getRecipe(String name) {
+        for (Recipe recipe : recipes) {
+            if (recipe.getName().equals(name)) {
+                return recipe;
+            }
+        }
+        return null;
+    }
+
     public boolean canCraft(Recipe recipe, Inventory inventory) {
         if (recipe == null || inventory == null) {
             return false;
@@ -169,13 +176,10 @@ public class CraftingSystem {
                     removedResources.put(type, amount);
                 }
     
+                // Finished by update() once the crafting time has passed
                 CraftingProcess process = new CraftingProcess(recipe, inventory, craftingId, removedResources);
                 activeProcesses.put(craftingId, process);
     
-                craftingExecutor.schedule(() -> {
-                    completeCrafting(craftingId);
-                }, recipe.getCraftingTime(), TimeUnit.MILLISECONDS);
-    
                 notifyCraftingStarted(recipe);
                 return true;
     
@@ -220,7 +224,6 @@ public class CraftingSystem {
 
         CraftingProcess process = activeProcesses.remove(craftingId);
         if (process == null) {
-            System.out.println("No process found to complete for ID: " + craftingId);
             return;
         }
 
@@ -247,6 +250,22 @@ public class CraftingSystem {
         }
     }
 
+    // Completes crafts whose time is up; runs once per tick on the simulation thread, so
+    // results land in the inventory between ticks rather than from a separate thread
+    public void update() {
+        long currentTime = System.currentTimeMillis();
+        List<String> finished = new ArrayList<>();
+        for (Map.Entry<String, CraftingProcess> entry : activeProcesses.entrySet()) {
+            CraftingProcess process = entry.getValue();
+            if (currentTime - process.getStartTime() >= process.getRecipe().getCraftingTime()) {
+                finished.add(entry.getKey());
+            }
+        }
+        for (String craftingId : finished) {
+            completeCrafting(craftingId);
+        }
+    }
+
     private void rollbackIngredients(Inventory inventory, Map<ResourceType, Integer> removedResources) {
         for (Map.Entry<ResourceType, Integer> entry : removedResources.entrySet()) {
             inventory.addResource(entry.getKey(), entry.getValue());
@@ -259,6 +278,10 @@ public class CraftingSystem {
         }
     }
 
+    public void removeCraftingListener(CraftingListener listener) {
+        craftingListeners.remove(listener);
+    }
+
     private void notifyCraftingStarted(Recipe recipe) {
         for (CraftingListener listener : craftingListeners) {
             listener.onCraftingStarted(recipe);
@@ -280,24 +303,31 @@ public class CraftingSystem {
     public float getCraftingProgress(String craftingId) {
         CraftingProcess process = activeProcesses.get(craftingId);
         if (process == null) {
-            System.out.println("Process not found for ID: " + craftingId); // Debug
-            return 1.0f; // Return complete if process not found
+            return 1.0f; // Finished or never started
         }
 
         long currentTime = System.currentTimeMillis();
         long elapsed = currentTime - process.getStartTime();
         float progress = (float) elapsed / process.getRecipe().getCraftingTime();
-        
-        
         return Math.min(1.0f, progress);
     }
 
-    public void shutdown() {
-        craftingExecutor.shutdown();
-        try {
-            craftingExecutor.awaitTermination(5, TimeUnit.SECONDS);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+    // When the craft started, in System.currentTimeMillis() terms, or -1 if it isn't running;
+    // with the recipe's crafting time this is enough for the UI to animate it locally
+    public long getCraftingStartTime(String craftingId) {
+        CraftingProcess process = activeProcesses.get(craftingId);
+        return process != null ? process.getStartTime() : -1;
+    }
+
+    // Progress of every running craft by id, for the world snapshot
+    public Map<String, Float> getActiveProgress() {
+        Map<String, Float> progress = new HashMap<>();
+        long currentTime = System.currentTimeMillis();
+        for (Map.Entry<String, CraftingProcess> entry : activeProcesses.entrySet()) {
+            CraftingProcess process = entry.getValue();
+            float elapsed = (float) (currentTime - process.getStartTime()) / process.getRecipe().getCraftingTime();
+            progress.put(entry.getKey(), Math.min(1.0f, elapsed));
         }
+        return progress;
     }
 }
\ No newline at end of file
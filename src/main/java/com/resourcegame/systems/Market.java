@@ -6,6 +6,7 @@ import com.resourcegame.entities.Inventory;
 import com.resourcegame.entities.MachineManager;
 
 import java.util.*;
+import java.util.function.LongSupplier;
 
 public class Market {
     private Map<ResourceType, Integer> buyPrices;
@@ -13,11 +14,14 @@ public class Market {
     private Map<ResourceType, Integer> stock;
     private static final int MAX_STOCK = 1000;
     private Map<MachineType, Integer> machinePrices;
+    private final PriceHistory priceHistory;
+    private LongSupplier clock = System::currentTimeMillis;
+    private final int[] versions = new int[ResourceType.values().length]; // Bumped whenever stock or prices move
     public Market() {
         this.buyPrices = new HashMap<>();
         this.sellPrices = new HashMap<>();
         this.stock = new HashMap<>();
-        new CraftingSystem();
+        this.priceHistory = new PriceHistory();
         initializeMarket();
         this.machinePrices = new HashMap<>();
         initializeMachinePrices();
@@ -28,10 +32,11 @@ public class Market {
             buyPrices.put(type, getBasePrice(type));
             sellPrices.put(type, (int) (getBasePrice(type) * 0.7)); // Sell price is 70% of buy price
             stock.put(type, MAX_STOCK / 2); // Start with half stock
+            priceHistory.record(type, clock.getAsLong(), buyPrices.get(type));
         }
     }
 
-    private int getBasePrice(ResourceType type) {
+    public int getBasePrice(ResourceType type) {
         switch (type) {
             case WOOD:
                 return 10;
@@ -48,7 +53,7 @@ public class Market {
         }
     }
 
-    public boolean sellResource(ResourceType type, Inventory playerInventory, int quantity) {
+    public synchronized boolean sellResource(ResourceType type, Inventory playerInventory, int quantity) {
         if (stock.get(type) + quantity > MAX_STOCK) {
             return false;
         }
@@ -63,7 +68,7 @@ public class Market {
         return false;
     }
 
-    public boolean buyResource(ResourceType type, Inventory playerInventory, int quantity) {
+    public synchronized boolean buyResource(ResourceType type, Inventory playerInventory, int quantity) {
         if (stock.get(type) < quantity) {
             return false;
         }
@@ -79,6 +84,131 @@ public class Market {
         return false;
     }
 
+    // Prices a whole basket without touching the market or the inventory
+    public synchronized BasketQuote quoteBasket(List<TradeLeg> legs, boolean isSelling, Inventory playerInventory) {
+        Map<ResourceType, Integer> quantities = mergeLegs(legs);
+        Map<ResourceType, Integer> legTotals = new EnumMap<>(ResourceType.class);
+        String failureReason = null;
+
+        for (Map.Entry<ResourceType, Integer> leg : quantities.entrySet()) {
+            ResourceType type = leg.getKey();
+            int quantity = leg.getValue();
+
+            String legFailure = null;
+            if (isSelling) {
+                if (stock.get(type) + quantity > MAX_STOCK) {
+                    legFailure = "Market cannot hold " + quantity + " more " + type;
+                } else if (playerInventory != null && !playerInventory.hasResource(type, quantity)) {
+                    legFailure = "Not enough " + type + " to sell";
+                }
+            } else if (stock.get(type) < quantity) {
+                legFailure = "Not enough " + type + " in market stock";
+            }
+            // Every leg is still priced, but the first failure is the one reported
+            if (failureReason == null) {
+                failureReason = legFailure;
+            }
+            legTotals.put(type, quoteLeg(type, quantity, isSelling));
+        }
+
+        if (failureReason == null && playerInventory != null && !isSelling) {
+            int totalCost = legTotals.values().stream().mapToInt(Integer::intValue).sum();
+            int totalItems = quantities.values().stream().mapToInt(Integer::intValue).sum();
+            if (playerInventory.getMoney() < totalCost) {
+                failureReason = "Not enough money";
+            } else if (!playerInventory.hasSpace(totalItems)) {
+                failureReason = "Not enough inventory space";
+            }
+        }
+
+        if (failureReason == null && quantities.isEmpty()) {
+            failureReason = "Nothing to trade";
+        }
+        return new BasketQuote(isSelling, quantities, legTotals, failureReason);
+    }
+
+    // Executes every leg or none of them, then reprices each traded resource once
+    // Unlike quoteBasket, this needs the inventory the trade moves money and items through
+    public synchronized BasketQuote executeBasket(List<TradeLeg> legs, boolean isSelling, Inventory playerInventory) {
+        Objects.requireNonNull(playerInventory, "playerInventory");
+        BasketQuote quote = quoteBasket(legs, isSelling, playerInventory);
+        if (!quote.isFeasible()) {
+            return quote;
+        }
+
+        for (Map.Entry<ResourceType, Integer> leg : quote.getQuantities().entrySet()) {
+            ResourceType type = leg.getKey();
+            int quantity = leg.getValue();
+            if (isSelling) {
+                playerInventory.removeResource(type, quantity);
+                stock.put(type, stock.get(type) + quantity);
+            } else {
+                playerInventory.addResource(type, quantity);
+                stock.put(type, stock.get(type) - quantity);
+            }
+        }
+
+        if (isSelling) {
+            playerInventory.addMoney(quote.getTotal());
+        } else {
+            playerInventory.removeMoney(quote.getTotal());
+        }
+
+        for (Map.Entry<ResourceType, Integer> leg : quote.getQuantities().entrySet()) {
+            updatePrices(leg.getKey(), leg.getValue(), isSelling);
+        }
+        return quote;
+    }
+
+    public synchronized BasketQuote quoteSellAll(Inventory playerInventory) {
+        return quoteBasket(getSellAllLegs(playerInventory), true, playerInventory);
+    }
+
+    public synchronized BasketQuote sellAll(Inventory playerInventory) {
+        return executeBasket(getSellAllLegs(playerInventory), true, playerInventory);
+    }
+
+    private List<TradeLeg> getSellAllLegs(Inventory playerInventory) {
+        List<TradeLeg> legs = new ArrayList<>();
+        for (ResourceType type : ResourceType.values()) {
+            int count = playerInventory.getResourceCount(type);
+            if (count > 0) {
+                legs.add(new TradeLeg(type, count));
+            }
+        }
+        return legs;
+    }
+
+    private Map<ResourceType, Integer> mergeLegs(List<TradeLeg> legs) {
+        Map<ResourceType, Integer> quantities = new EnumMap<>(ResourceType.class);
+        for (TradeLeg leg : legs) {
+            quantities.merge(leg.getType(), leg.getQuantity(), Integer::sum);
+        }
+        return quantities;
+    }
+
+    // Closed-form sum over the stock-dependent price curve. Each unit bought
+    // removes one unit of stock and raises the buy price by basePrice / MAX_STOCK;
+    // each unit sold lowers the sell price by 0.7 * basePrice / MAX_STOCK.
+    // The first unit trades at the current listed price, matching buyResource/sellResource.
+    private int quoteLeg(ResourceType type, int quantity, boolean isSelling) {
+        double slope = (double) getBasePrice(type) / MAX_STOCK;
+        double pairs = quantity * (quantity - 1L) / 2.0;
+
+        if (isSelling) {
+            double startPrice = sellPrices.get(type);
+            double sellSlope = slope * 0.7;
+            // Price is floored at zero, so stop integrating once it reaches it
+            int payingUnits = sellSlope > 0
+                    ? (int) Math.min(quantity, Math.floor(startPrice / sellSlope) + 1)
+                    : quantity;
+            double payingPairs = payingUnits * (payingUnits - 1L) / 2.0;
+            return (int) Math.floor(Math.max(0, payingUnits * startPrice - sellSlope * payingPairs));
+        }
+        double startPrice = buyPrices.get(type);
+        return (int) Math.ceil(quantity * startPrice + slope * pairs);
+    }
+
     private void updatePrices(ResourceType type, int quantity, boolean isSelling) {
         // Simple supply-demand price adjustment
         float stockRatio = (float) stock.get(type) / MAX_STOCK;
@@ -93,20 +223,52 @@ public class Market {
             buyPrices.put(type, (int) (basePrice * (2.0f - stockRatio)));
             sellPrices.put(type, (int) (buyPrices.get(type) * 0.7f));
         }
+        versions[type.ordinal()]++;
+        priceHistory.record(type, clock.getAsLong(), buyPrices.get(type));
     }
 
-    public int getBuyPrice(ResourceType type) {
+    public synchronized int getBuyPrice(ResourceType type) {
         return buyPrices.get(type);
     }
 
-    public int getSellPrice(ResourceType type) {
+    public synchronized int getSellPrice(ResourceType type) {
         return sellPrices.get(type);
     }
 
-    public int getStock(ResourceType type) {
+    public synchronized int getStock(ResourceType type) {
         return stock.get(type);
     }
 
+    public synchronized void restoreResource(ResourceType type, int stockLevel, int buyPrice, int sellPrice) {
+        stock.put(type, Math.max(0, Math.min(MAX_STOCK, stockLevel)));
+        buyPrices.put(type, buyPrice);
+        sellPrices.put(type, sellPrice);
+        versions[type.ordinal()]++;
+        priceHistory.record(type, clock.getAsLong(), buyPrice);
+    }
+
+    public synchronized int getVersion(ResourceType type) {
+        return versions[type.ordinal()];
+    }
+
+    // Lets simulations drive price history with a simulated clock
+    public void setClock(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    public synchronized long getLastPriceTime() {
+        return priceHistory.getLatestTime();
+    }
+
+    // A copy taken under the market's lock, so it can be handed to other threads
+    public synchronized List<PriceCandle> getCandles(ResourceType type, PriceHistory.Resolution resolution) {
+        return Collections.unmodifiableList(priceHistory.getCandles(type, resolution));
+    }
+
+    public PriceHistory getPriceHistory() {
+        return priceHistory;
+    }
+
     private void initializeMachinePrices() {
         for (MachineType type : MachineType.values()) {
             machinePrices.put(type, type.getBasePrice());
@@ -0,0 +1,308 @@
+package com.resourcegame.systems;
+
+import com.resourcegame.utils.ResourceType;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class MarketSimulation {
+    private static final long SIMULATED_STEP_MS = 1000;
+    private static final long SIMULATED_DAY_MS = 24L * 60 * 60 * 1000;
+    private static final long SIMULATED_SAMPLE_MS = 60_000;
+    private static final long REALTIME_SAMPLE_MS = 1000;
+
+    private final Market market;
+    private final int threadCount;
+    private final Random seedGenerator;
+    private final List<TraderSlot> slots;
+    private final AtomicLong tradesExecuted;
+    private final AtomicLong tradesRejected;
+    private final PriceStats[] priceStats;
+    private ScheduledExecutorService executor;
+    private long startNanos;
+    private long simulatedTime;
+
+    public MarketSimulation(Market market, long seed, int threadCount) {
+        this.market = market;
+        this.threadCount = Math.max(1, threadCount);
+        this.seedGenerator = new Random(seed);
+        this.slots = new ArrayList<>();
+        this.tradesExecuted = new AtomicLong();
+        this.tradesRejected = new AtomicLong();
+        this.priceStats = new PriceStats[ResourceType.values().length];
+        for (int i = 0; i < priceStats.length; i++) {
+            priceStats[i] = new PriceStats();
+        }
+    }
+
+    public void addTraders(TradingStrategy strategy, int count, double tradesPerSecond, int maxTradeSize) {
+        if (tradesPerSecond <= 0) {
+            throw new IllegalArgumentException("Trade rate must be positive");
+        }
+        for (int i = 0; i < count; i++) {
+            NpcTrader trader = new NpcTrader(slots.size(), strategy, seedGenerator.nextLong(), maxTradeSize);
+            slots.add(new TraderSlot(trader, tradesPerSecond));
+        }
+    }
+
+    public List<NpcTrader> getTraders() {
+        List<NpcTrader> traders = new ArrayList<>();
+        for (TraderSlot slot : slots) {
+            traders.add(slot.trader);
+        }
+        return traders;
+    }
+
+    // Real-time load generator: every trader trades on the pool at its own rate
+    public synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newScheduledThreadPool(threadCount, runnable -> {
+            Thread thread = new Thread(runnable, "npc-trader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        startNanos = System.nanoTime();
+
+        for (TraderSlot slot : slots) {
+            long periodMicros = Math.max(1, (long) (1_000_000 / slot.tradesPerSecond));
+            long initialDelay = (long) (seedGenerator.nextDouble() * periodMicros);
+            executor.scheduleAtFixedRate(() -> {
+                NpcTrader.Decision decision = slot.trader.decide(market);
+                if (decision != null) {
+                    recordResult(slot.trader.execute(market, decision));
+                }
+            }, initialDelay, periodMicros, TimeUnit.MICROSECONDS);
+        }
+        executor.scheduleAtFixedRate(this::samplePrices, 0, REALTIME_SAMPLE_MS, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized SimulationReport stop() {
+        if (executor == null) {
+            return buildReport(0);
+        }
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        executor = null;
+        return buildReport(0);
+    }
+
+    // Reproducible run on a simulated clock. Each step, traders decide in parallel
+    // against the same market state, then trades are applied in trader order, so the
+    // same seed always produces the same prices.
+    public SimulationReport runSimulatedDays(int days) {
+        ExecutorService pool = Executors.newFixedThreadPool(threadCount);
+        // Price history only moves forward, so the simulated clock carries on from the market's
+        // last sample (its wall-clock start included), on a sampling boundary
+        long resumeTime = Math.floorDiv(market.getLastPriceTime(), SIMULATED_SAMPLE_MS) * SIMULATED_SAMPLE_MS
+                + SIMULATED_SAMPLE_MS;
+        simulatedTime = Math.max(simulatedTime, resumeTime);
+        market.setClock(() -> simulatedTime);
+        startNanos = System.nanoTime();
+        long startTime = simulatedTime;
+        long endTime = simulatedTime + days * SIMULATED_DAY_MS;
+
+        try {
+            while (simulatedTime < endTime) {
+                simulatedTime += SIMULATED_STEP_MS;
+                runStep(pool);
+                if (simulatedTime % SIMULATED_SAMPLE_MS == 0) {
+                    samplePrices();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Trader failed during simulation", e.getCause());
+        } finally {
+            pool.shutdown();
+            market.setClock(System::currentTimeMillis);
+        }
+        return buildReport(simulatedTime - startTime);
+    }
+
+    private void runStep(ExecutorService pool) throws InterruptedException, ExecutionException {
+        List<TraderSlot> due = new ArrayList<>();
+        List<Callable<List<NpcTrader.Decision>>> tasks = new ArrayList<>();
+        for (TraderSlot slot : slots) {
+            slot.credit += slot.tradesPerSecond * SIMULATED_STEP_MS / 1000.0;
+            int actions = (int) slot.credit;
+            if (actions > 0) {
+                slot.credit -= actions;
+                due.add(slot);
+                tasks.add(() -> {
+                    List<NpcTrader.Decision> decisions = new ArrayList<>(actions);
+                    for (int i = 0; i < actions; i++) {
+                        decisions.add(slot.trader.decide(market));
+                    }
+                    return decisions;
+                });
+            }
+        }
+        if (tasks.isEmpty()) {
+            return;
+        }
+
+        List<List<NpcTrader.Decision>> results = new ArrayList<>(tasks.size());
+        if (tasks.size() < threadCount * 2) {
+            // Not worth a pool round trip for a handful of traders
+            for (Callable<List<NpcTrader.Decision>> task : tasks) {
+                try {
+                    results.add(task.call());
+                } catch (Exception e) {
+                    throw new ExecutionException(e);
+                }
+            }
+        } else {
+            for (Future<List<NpcTrader.Decision>> future : pool.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        }
+
+        for (int i = 0; i < due.size(); i++) {
+            NpcTrader trader = due.get(i).trader;
+            for (NpcTrader.Decision decision : results.get(i)) {
+                if (decision != null) {
+                    recordResult(trader.execute(market, decision));
+                }
+            }
+        }
+    }
+
+    private void recordResult(boolean success) {
+        if (success) {
+            tradesExecuted.incrementAndGet();
+        } else {
+            tradesRejected.incrementAndGet();
+        }
+    }
+
+    private void samplePrices() {
+        for (ResourceType type : ResourceType.values()) {
+            PriceStats stats = priceStats[type.ordinal()];
+            synchronized (stats) {
+                stats.add(market.getBuyPrice(type));
+            }
+        }
+    }
+
+    private SimulationReport buildReport(long simulatedMs) {
+        long wallMs = Math.max(1, (System.nanoTime() - startNanos) / 1_000_000);
+        Map<ResourceType, PriceStats> stats = new EnumMap<>(ResourceType.class);
+        for (ResourceType type : ResourceType.values()) {
+            PriceStats source = priceStats[type.ordinal()];
+            synchronized (source) {
+                stats.put(type, source.copy());
+            }
+        }
+        return new SimulationReport(simulatedMs, wallMs, tradesExecuted.get(), tradesRejected.get(), stats);
+    }
+
+    private static class TraderSlot {
+        private final NpcTrader trader;
+        private final double tradesPerSecond;
+        private double credit;
+
+        TraderSlot(NpcTrader trader, double tradesPerSecond) {
+            this.trader = trader;
+            this.tradesPerSecond = tradesPerSecond;
+        }
+    }
+
+    // Running mean/variance (Welford) so sampling never stores the samples
+    public static class PriceStats {
+        private long count;
+        private double mean;
+        private double m2;
+        private int min = Integer.MAX_VALUE;
+        private int max = Integer.MIN_VALUE;
+
+        void add(int price) {
+            count++;
+            double delta = price - mean;
+            mean += delta / count;
+            m2 += delta * (price - mean);
+            min = Math.min(min, price);
+            max = Math.max(max, price);
+        }
+
+        PriceStats copy() {
+            PriceStats copy = new PriceStats();
+            copy.count = count;
+            copy.mean = mean;
+            copy.m2 = m2;
+            copy.min = min;
+            copy.max = max;
+            return copy;
+        }
+
+        public long getCount() { return count; }
+        public double getMean() { return mean; }
+        public double getStandardDeviation() { return count > 1 ? Math.sqrt(m2 / (count - 1)) : 0; }
+        public double getCoefficientOfVariation() { return mean > 0 ? getStandardDeviation() / mean : 0; }
+        public int getMin() { return count > 0 ? min : 0; }
+        public int getMax() { return count > 0 ? max : 0; }
+    }
+
+    public static class SimulationReport {
+        private final long simulatedMs;
+        private final long wallMs;
+        private final long tradesExecuted;
+        private final long tradesRejected;
+        private final Map<ResourceType, PriceStats> priceStats;
+
+        SimulationReport(long simulatedMs, long wallMs, long tradesExecuted, long tradesRejected,
+                Map<ResourceType, PriceStats> priceStats) {
+            this.simulatedMs = simulatedMs;
+            this.wallMs = wallMs;
+            this.tradesExecuted = tradesExecuted;
+            this.tradesRejected = tradesRejected;
+            this.priceStats = Collections.unmodifiableMap(priceStats);
+        }
+
+        public long getSimulatedMs() { return simulatedMs; }
+        public long getWallMs() { return wallMs; }
+        public long getTradesExecuted() { return tradesExecuted; }
+        public long getTradesRejected() { return tradesRejected; }
+        public Map<ResourceType, PriceStats> getPriceStats() { return priceStats; }
+
+        public double getTradesPerSecond() {
+            return (tradesExecuted + tradesRejected) * 1000.0 / wallMs;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("Simulated: %.2f days | Wall: %d ms | Trades: %d ok, %d rejected | %.0f trades/sec%n",
+                    simulatedMs / (double) SIMULATED_DAY_MS, wallMs, tradesExecuted, tradesRejected,
+                    getTradesPerSecond()));
+            sb.append(String.format("%-20s %8s %8s %6s %6s %6s%n", "Resource", "Mean", "StdDev", "CV", "Min", "Max"));
+            for (Map.Entry<ResourceType, PriceStats> entry : priceStats.entrySet()) {
+                PriceStats stats = entry.getValue();
+                sb.append(String.format("%-20s %8.2f %8.2f %6.3f %6d %6d%n",
+                        entry.getKey(), stats.getMean(), stats.getStandardDeviation(),
+                        stats.getCoefficientOfVariation(), stats.getMin(), stats.getMax()));
+            }
+            return sb.toString();
+        }
+    }
+
+    // Headless load generator: MarketSimulation [days] [seed] [tradersPerStrategy]
+    public static void main(String[] args) {
+        int days = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42L;
+        int tradersPerStrategy = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        MarketSimulation simulation = new MarketSimulation(new Market(), seed,
+                Runtime.getRuntime().availableProcessors());
+        for (TradingStrategy strategy : TradingStrategy.values()) {
+            simulation.addTraders(strategy, tradersPerStrategy, 0.5, 5);
+        }
+        System.out.print(simulation.runSimulatedDays(days));
+    }
+}
@@ -0,0 +1,98 @@
+package com.resourcegame.systems;
+
+import com.resourcegame.entities.Inventory;
+import com.resourcegame.utils.ResourceType;
+import java.util.Random;
+
+public class NpcTrader {
+    private static final ResourceType[] TRADED_TYPES = ResourceType.values();
+    private static final int STARTING_MONEY = 10_000;
+    private static final int STARTING_STOCK = 50;
+    private static final int INVENTORY_CAPACITY = 100_000;
+    private static final double REVERSION_BAND = 0.2; // Act once price is 20% off base
+
+    private final int id;
+    private final TradingStrategy strategy;
+    private final Inventory inventory;
+    private final Random random;
+    private final int maxTradeSize;
+    private final int[] lastSeenPrices;
+    private int tradesExecuted;
+    private int tradesRejected;
+
+    public NpcTrader(int id, TradingStrategy strategy, long seed, int maxTradeSize) {
+        this.id = id;
+        this.strategy = strategy;
+        this.random = new Random(seed);
+        this.maxTradeSize = Math.max(1, maxTradeSize);
+        this.inventory = new Inventory(INVENTORY_CAPACITY);
+        this.inventory.addMoney(STARTING_MONEY - inventory.getMoney());
+        for (ResourceType type : TRADED_TYPES) {
+            inventory.addResource(type, STARTING_STOCK);
+        }
+        this.lastSeenPrices = new int[TRADED_TYPES.length];
+    }
+
+    // Only reads the market, so decisions for many traders can be made in parallel
+    public Decision decide(Market market) {
+        ResourceType type = TRADED_TYPES[random.nextInt(TRADED_TYPES.length)];
+        int quantity = 1 + random.nextInt(maxTradeSize);
+        int price = market.getBuyPrice(type);
+        int previous = lastSeenPrices[type.ordinal()];
+        lastSeenPrices[type.ordinal()] = price;
+
+        switch (strategy) {
+            case MEAN_REVERSION: {
+                int basePrice = market.getBasePrice(type);
+                if (price > basePrice * (1 + REVERSION_BAND)) {
+                    return new Decision(type, quantity, true);
+                } else if (price < basePrice * (1 - REVERSION_BAND)) {
+                    return new Decision(type, quantity, false);
+                }
+                return null;
+            }
+            case MOMENTUM:
+                if (previous == 0 || price == previous) {
+                    return null;
+                }
+                return new Decision(type, quantity, price < previous);
+            case RANDOM:
+            default:
+                return new Decision(type, quantity, random.nextBoolean());
+        }
+    }
+
+    public boolean execute(Market market, Decision decision) {
+        boolean success = decision.isSelling()
+                ? market.sellResource(decision.getType(), inventory, decision.getQuantity())
+                : market.buyResource(decision.getType(), inventory, decision.getQuantity());
+        if (success) {
+            tradesExecuted++;
+        } else {
+            tradesRejected++;
+        }
+        return success;
+    }
+
+    public int getId() { return id; }
+    public TradingStrategy getStrategy() { return strategy; }
+    public Inventory getInventory() { return inventory; }
+    public int getTradesExecuted() { return tradesExecuted; }
+    public int getTradesRejected() { return tradesRejected; }
+
+    public static class Decision {
+        private final ResourceType type;
+        private final int quantity;
+        private final boolean selling;
+
+        public Decision(ResourceType type, int quantity, boolean selling) {
+            this.type = type;
+            this.quantity = quantity;
+            this.selling = selling;
+        }
+
+        public ResourceType getType() { return type; }
+        public int getQuantity() { return quantity; }
+        public boolean isSelling() { return selling; }
+    }
+}
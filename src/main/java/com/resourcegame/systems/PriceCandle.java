@@ -0,0 +1,32 @@
+package com.resourcegame.systems;
+
+public class PriceCandle {
+    private final long startTime;
+    private final long duration;
+    private final int open;
+    private final int high;
+    private final int low;
+    private final int close;
+
+    public PriceCandle(long startTime, long duration, int open, int high, int low, int close) {
+        this.startTime = startTime;
+        this.duration = duration;
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.close = close;
+    }
+
+    public long getStartTime() { return startTime; }
+    public long getEndTime() { return startTime + duration; }
+    public long getDuration() { return duration; }
+    public int getOpen() { return open; }
+    public int getHigh() { return high; }
+    public int getLow() { return low; }
+    public int getClose() { return close; }
+
+    @Override
+    public String toString() {
+        return String.format("[%d O:%d H:%d L:%d C:%d]", startTime, open, high, low, close);
+    }
+}
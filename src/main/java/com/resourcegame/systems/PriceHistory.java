@@ -0,0 +1,193 @@
+package com.resourcegame.systems;
+
+import com.resourcegame.utils.ResourceType;
+import java.util.ArrayList;
+import java.util.List;
+
+public class PriceHistory {
+    public enum Resolution {
+        SECOND(1000L),
+        MINUTE(60_000L),
+        HOUR(3_600_000L);
+
+        private final long bucketMs;
+
+        Resolution(long bucketMs) {
+            this.bucketMs = bucketMs;
+        }
+
+        public long getBucketMs() {
+            return bucketMs;
+        }
+    }
+
+    // Fixed sizes keep memory constant no matter how long a session runs
+    public static final int RAW_CAPACITY = 1024;
+    public static final int ROLLUP_CAPACITY = 120;
+
+    private final Series[] series;
+
+    public PriceHistory() {
+        ResourceType[] types = ResourceType.values();
+        this.series = new Series[types.length];
+        for (int i = 0; i < types.length; i++) {
+            series[i] = new Series();
+        }
+    }
+
+    // Called on every price change, so nothing in here may allocate
+    public void record(ResourceType type, long timeMs, int price) {
+        Series s = series[type.ordinal()];
+        s.rawTimes[s.rawHead] = timeMs;
+        s.rawPrices[s.rawHead] = price;
+        s.rawHead = (s.rawHead + 1) % RAW_CAPACITY;
+        if (s.rawSize < RAW_CAPACITY) {
+            s.rawSize++;
+        }
+        for (Rollup rollup : s.rollups) {
+            rollup.record(timeMs, price);
+        }
+    }
+
+    // Time of the newest sample of any resource, or 0 before anything is recorded
+    public long getLatestTime() {
+        long latest = 0;
+        for (Series s : series) {
+            if (s.rawSize > 0) {
+                latest = Math.max(latest, s.rawTimes[(s.rawHead - 1 + RAW_CAPACITY) % RAW_CAPACITY]);
+            }
+        }
+        return latest;
+    }
+
+    public int getRawCount(ResourceType type) {
+        return series[type.ordinal()].rawSize;
+    }
+
+    // Copies the raw samples oldest first and returns how many were written
+    public int getRawSamples(ResourceType type, long[] times, int[] prices) {
+        Series s = series[type.ordinal()];
+        int count = Math.min(s.rawSize, Math.min(times.length, prices.length));
+        int start = (s.rawHead - count + RAW_CAPACITY) % RAW_CAPACITY;
+        for (int i = 0; i < count; i++) {
+            int index = (start + i) % RAW_CAPACITY;
+            times[i] = s.rawTimes[index];
+            prices[i] = s.rawPrices[index];
+        }
+        return count;
+    }
+
+    public int getCandleCount(ResourceType type, Resolution resolution) {
+        return series[type.ordinal()].rollups[resolution.ordinal()].size;
+    }
+
+    // Copies the most recent candles oldest first into the given arrays and
+    // returns how many were written. Used by the chart so painting stays allocation-free.
+    public int getCandles(ResourceType type, Resolution resolution, long[] startTimes,
+            int[] open, int[] high, int[] low, int[] close) {
+        Rollup rollup = series[type.ordinal()].rollups[resolution.ordinal()];
+        int limit = Math.min(Math.min(startTimes.length, open.length),
+                Math.min(Math.min(high.length, low.length), close.length));
+        int count = Math.min(rollup.size, limit);
+        int start = (rollup.head - count + 1 + ROLLUP_CAPACITY) % ROLLUP_CAPACITY;
+        for (int i = 0; i < count; i++) {
+            int index = (start + i) % ROLLUP_CAPACITY;
+            startTimes[i] = rollup.start[index];
+            open[i] = rollup.open[index];
+            high[i] = rollup.high[index];
+            low[i] = rollup.low[index];
+            close[i] = rollup.close[index];
+        }
+        return count;
+    }
+
+    public List<PriceCandle> getCandles(ResourceType type, Resolution resolution) {
+        long[] startTimes = new long[ROLLUP_CAPACITY];
+        int[] open = new int[ROLLUP_CAPACITY];
+        int[] high = new int[ROLLUP_CAPACITY];
+        int[] low = new int[ROLLUP_CAPACITY];
+        int[] close = new int[ROLLUP_CAPACITY];
+        int count = getCandles(type, resolution, startTimes, open, high, low, close);
+
+        List<PriceCandle> candles = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            candles.add(new PriceCandle(startTimes[i], resolution.getBucketMs(),
+                    open[i], high[i], low[i], close[i]));
+        }
+        return candles;
+    }
+
+    // Returns candles whose bucket overlaps [fromMs, toMs]
+    public List<PriceCandle> getCandles(ResourceType type, Resolution resolution, long fromMs, long toMs) {
+        List<PriceCandle> result = new ArrayList<>();
+        for (PriceCandle candle : getCandles(type, resolution)) {
+            if (candle.getEndTime() > fromMs && candle.getStartTime() <= toMs) {
+                result.add(candle);
+            }
+        }
+        return result;
+    }
+
+    public PriceCandle getLatestCandle(ResourceType type, Resolution resolution) {
+        Rollup rollup = series[type.ordinal()].rollups[resolution.ordinal()];
+        if (rollup.size == 0) {
+            return null;
+        }
+        int i = rollup.head;
+        return new PriceCandle(rollup.start[i], resolution.getBucketMs(),
+                rollup.open[i], rollup.high[i], rollup.low[i], rollup.close[i]);
+    }
+
+    private static class Series {
+        private final long[] rawTimes = new long[RAW_CAPACITY];
+        private final int[] rawPrices = new int[RAW_CAPACITY];
+        private int rawHead;
+        private int rawSize;
+        private final Rollup[] rollups;
+
+        Series() {
+            Resolution[] resolutions = Resolution.values();
+            rollups = new Rollup[resolutions.length];
+            for (int i = 0; i < resolutions.length; i++) {
+                rollups[i] = new Rollup(resolutions[i].getBucketMs());
+            }
+        }
+    }
+
+    private static class Rollup {
+        private final long bucketMs;
+        private final long[] start = new long[ROLLUP_CAPACITY];
+        private final int[] open = new int[ROLLUP_CAPACITY];
+        private final int[] high = new int[ROLLUP_CAPACITY];
+        private final int[] low = new int[ROLLUP_CAPACITY];
+        private final int[] close = new int[ROLLUP_CAPACITY];
+        private int head = -1;
+        private int size;
+
+        Rollup(long bucketMs) {
+            this.bucketMs = bucketMs;
+        }
+
+        void record(long timeMs, int price) {
+            long bucket = timeMs - Math.floorMod(timeMs, bucketMs);
+
+            // Late samples fold into the current bucket instead of rewriting history
+            if (size > 0 && bucket <= start[head]) {
+                high[head] = Math.max(high[head], price);
+                low[head] = Math.min(low[head], price);
+                close[head] = price;
+                return;
+            }
+
+            head = (head + 1) % ROLLUP_CAPACITY;
+            start[head] = bucket;
+            open[head] = price;
+            high[head] = price;
+            low[head] = price;
+            close[head] = price;
+            if (size < ROLLUP_CAPACITY) {
+                size++;
+            }
+        }
+    }
+}
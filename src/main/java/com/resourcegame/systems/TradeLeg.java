@@ -0,0 +1,32 @@
+package com.resourcegame.systems;
+
+import com.resourcegame.utils.ResourceType;
+
+public class TradeLeg {
+    private final ResourceType type;
+    private final int quantity;
+
+    public TradeLeg(ResourceType type, int quantity) {
+        if (type == null) {
+            throw new IllegalArgumentException("Resource type cannot be null");
+        }
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive");
+        }
+        this.type = type;
+        this.quantity = quantity;
+    }
+
+    public ResourceType getType() {
+        return type;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    @Override
+    public String toString() {
+        return quantity + "x " + type;
+    }
+}
@@ -0,0 +1,17 @@
+package com.resourcegame.systems;
+
+public enum TradingStrategy {
+    MEAN_REVERSION("Buys below the base price and sells above it"),
+    MOMENTUM("Follows the direction of the last observed price move"),
+    RANDOM("Buys or sells a random resource");
+
+    private final String description;
+
+    TradingStrategy(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
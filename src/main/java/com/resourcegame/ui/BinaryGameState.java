@@ -0,0 +1,925 @@
+package com.resourcegame.ui;
+
+import com.resourcegame.core.Game;
+import com.resourcegame.core.GameMap;
+import com.resourcegame.core.GameSettings;
+import com.resourcegame.core.RegionLoader;
+import com.resourcegame.core.Tile;
+import com.resourcegame.entities.*;
+import com.resourcegame.systems.Market;
+import com.resourcegame.systems.Recipe;
+import com.resourcegame.utils.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32C;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/*
+ * Versioned binary save format.
+ *
+ * Header:        int magic "RGSV", short version, short section count
+ * Section table: per section short id, short flags, long offset, long length,
+ *                int uncompressed length, int CRC32C of the stored bytes
+ * Sections:      META, MAP_REGIONS, PLAYER, MACHINES, UNPLACED_MACHINES, MARKET
+ *
+ * Tiles are bit-packed row by row (3 bits tile type, 4 bits resource, 0 = none),
+ * one block per map region so regions can be paged in independently. Everything
+ * else is varint encoded. The section table lets a reader jump straight to any section without decoding
+ * the ones before it.
+ *
+ * A DEFLATE flag means the section is stored compressed. MAP_REGIONS is never
+ * compressed as a whole, as that would defeat paging: with the flag set each
+ * region is compressed on its own, every region entry carries its own CRC32C,
+ * and the section checksum covers only the region index. Files of any other
+ * version are rejected.
+ *
+ * MACHINES starts with the machine count and a table of int record offsets, so
+ * machine records can be decoded in parallel.
+ */
+public class BinaryGameState {
+    static final int MAGIC = 0x52475356; // "RGSV"
+    static final int FORMAT_VERSION = 4;
+    static final int HEADER_SIZE = 8;
+    static final int SECTION_ENTRY_SIZE = 28;
+    static final int FLAG_DEFLATE = 1;
+
+    static final int SECTION_META = 1;
+    static final int SECTION_PLAYER = 3;
+    static final int SECTION_MACHINES = 4;
+    static final int SECTION_UNPLACED_MACHINES = 5;
+    static final int SECTION_MARKET = 6;
+    static final int SECTION_MAP_REGIONS = 7;
+
+    // MAP_REGIONS: int region size, int regions across, int regions down,
+    // then per region int offset, int length, int CRC32C
+    static final int REGION_HEADER_SIZE = 12;
+    static final int REGION_ENTRY_SIZE = 12;
+
+    // TileType needs 3 bits, ResourceType + "none" needs 4
+    private static final int TILE_TYPE_BITS = 3;
+    private static final int TILE_TYPE_MASK = (1 << TILE_TYPE_BITS) - 1;
+    private static final int BITS_PER_TILE = 7;
+
+    private static final TileType[] TILE_TYPES = TileType.values();
+    private static final ResourceType[] RESOURCE_TYPES = ResourceType.values();
+    private static final MachineType[] MACHINE_TYPES = MachineType.values();
+
+    public static boolean isBinarySave(String filename) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(4);
+            while (header.hasRemaining() && channel.read(header) > 0) {
+                // keep reading until the magic is complete or the file ends
+            }
+            return header.position() == 4 && header.getInt(0) == MAGIC;
+        }
+    }
+
+    // Returns the id stamped into the file; a journal only replays onto the save it was started from
+    public static long save(Game game, String filename) throws IOException {
+        return write(capture(game), Paths.get(filename));
+    }
+
+    // Must run on the game thread between ticks. Cheap: map regions are shared, not copied.
+    public static SaveSnapshot capture(Game game) {
+        GameMap gameMap = game.getMap();
+
+        SaveBuffer player = new SaveBuffer(64);
+        writePlayer(player, game.getPlayer());
+
+        List<Machine> allMachines = game.getMachineManager().getAllMachines();
+        SaveBuffer records = new SaveBuffer();
+        int[] recordOffsets = new int[allMachines.size()];
+        for (int i = 0; i < recordOffsets.length; i++) {
+            recordOffsets[i] = records.size();
+            writeMachine(records, allMachines.get(i));
+        }
+        SaveBuffer machines = new SaveBuffer(5 + recordOffsets.length * 4 + records.size());
+        machines.putVarint(recordOffsets.length);
+        for (int offset : recordOffsets) {
+            machines.putInt(offset);
+        }
+        machines.putBytes(records.toReadBuffer());
+
+        SaveBuffer unplaced = new SaveBuffer(32);
+        writeUnplacedMachines(unplaced, game.getPlayer().getInventory());
+
+        SaveBuffer market = new SaveBuffer(128);
+        market.putVarint(RESOURCE_TYPES.length);
+        for (ResourceType type : RESOURCE_TYPES) {
+            writeMarketRow(market, game.getMarket(), type);
+        }
+
+        // Take the loader first: it is only dropped once every region is resident
+        RegionLoader regionSource = gameMap.getRegionLoader();
+        return new SaveSnapshot(gameMap.getWidth(), gameMap.getHeight(), gameMap.getRegionsX(),
+                gameMap.getRegionsY(), gameMap.snapshotRegions(), regionSource,
+                player, machines, unplaced, market, GameSettings.getInstance().isSaveCompressionEnabled());
+    }
+
+    // Safe to call from any thread; touches nothing but the snapshot
+    public static long write(SaveSnapshot snapshot, Path path) throws IOException {
+        long saveId = ThreadLocalRandom.current().nextLong();
+        boolean compress = snapshot.compressed;
+        List<Section> sections = new ArrayList<>();
+        sections.add(Section.encode(SECTION_META, writeMeta(snapshot, saveId), false));
+        sections.add(writeMapRegions(snapshot));
+        sections.add(Section.encode(SECTION_PLAYER, snapshot.player, compress));
+        sections.add(Section.encode(SECTION_MACHINES, snapshot.machines, compress));
+        sections.add(Section.encode(SECTION_UNPLACED_MACHINES, snapshot.unplacedMachines, compress));
+        sections.add(Section.encode(SECTION_MARKET, snapshot.market, compress));
+        writeFile(path, sections);
+        return saveId;
+    }
+
+    static void writeFile(Path path, List<Section> sections) throws IOException {
+        int count = sections.size();
+        ByteBuffer header = ByteBuffer.allocateDirect(HEADER_SIZE + count * SECTION_ENTRY_SIZE);
+        header.putInt(MAGIC);
+        header.putShort((short) FORMAT_VERSION);
+        header.putShort((short) count);
+
+        ByteBuffer[] buffers = new ByteBuffer[count + 1];
+        long offset = header.capacity();
+        int index = 1;
+        for (Section section : sections) {
+            int length = section.data.remaining();
+            header.putShort((short) section.id);
+            header.putShort((short) section.flags);
+            header.putLong(offset);
+            header.putLong(length);
+            header.putInt(section.rawLength);
+            header.putInt(section.checksum);
+            buffers[index++] = section.data;
+            offset += length;
+        }
+        header.flip();
+        buffers[0] = header;
+
+        // Never rewrite the save in place: write alongside it and swap the new file in, so a
+        // crash part way through leaves the previous save intact
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long written = 0;
+            while (written < offset) {
+                written += channel.write(buffers);
+            }
+            channel.force(true); // Data must be on disk before the rename makes it the save
+        }
+        try {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static SaveBuffer writeMeta(SaveSnapshot snapshot, long saveId) {
+        SaveBuffer out = new SaveBuffer(16);
+        out.putVarint(snapshot.width);
+        out.putVarint(snapshot.height);
+        out.putLong(saveId);
+        return out;
+    }
+
+    // Region index (offset, length and checksum per region) followed by each region's packed
+    // tiles. Regions that were never paged in are copied straight from the loaded save's
+    // bytes when it was written the same way.
+    private static Section writeMapRegions(SaveSnapshot snapshot) {
+        int regionCount = snapshot.regionsX * snapshot.regionsY;
+        StoredRegionLoader storedSource = snapshot.regionSource instanceof StoredRegionLoader
+                && ((StoredRegionLoader) snapshot.regionSource).canCopyTo(snapshot.compressed)
+                ? (StoredRegionLoader) snapshot.regionSource : null;
+
+        SaveBuffer payload = new SaveBuffer((int) Math.min(Integer.MAX_VALUE / 2,
+                ((long) snapshot.width * snapshot.height * BITS_PER_TILE + 7) / 8 + regionCount));
+        SaveBuffer packed = new SaveBuffer(GameMap.REGION_SIZE * GameMap.REGION_SIZE);
+        Deflater deflater = snapshot.compressed ? new Deflater(Deflater.BEST_SPEED) : null;
+        byte[] chunk = new byte[4096];
+        int[] offsets = new int[regionCount];
+        int[] lengths = new int[regionCount];
+        int[] checksums = new int[regionCount];
+        int indexSize = REGION_HEADER_SIZE + regionCount * REGION_ENTRY_SIZE;
+
+        try {
+            for (int regionY = 0; regionY < snapshot.regionsY; regionY++) {
+                for (int regionX = 0; regionX < snapshot.regionsX; regionX++) {
+                    int index = regionY * snapshot.regionsX + regionX;
+                    int regionWidth = Math.min(GameMap.REGION_SIZE, snapshot.width - (regionX << GameMap.REGION_SHIFT));
+                    int regionHeight = Math.min(GameMap.REGION_SIZE, snapshot.height - (regionY << GameMap.REGION_SHIFT));
+                    offsets[index] = indexSize + payload.size();
+
+                    Tile[] region = snapshot.regions[index];
+                    if (region == null && storedSource != null) {
+                        payload.putBytes(storedSource.encodedRegion(index));
+                        checksums[index] = storedSource.checksumOf(index);
+                    } else {
+                        if (region == null) {
+                            // Not resident: decode a private copy, or all empty if nothing backs it
+                            region = new Tile[GameMap.REGION_SIZE * GameMap.REGION_SIZE];
+                            if (snapshot.regionSource != null) {
+                                snapshot.regionSource.loadRegion(regionX, regionY, regionWidth, regionHeight, region);
+                            }
+                        }
+                        packed.clear();
+                        packRegion(packed, region, regionWidth, regionHeight);
+                        int start = payload.size();
+                        if (deflater != null) {
+                            deflate(packed.toReadBuffer(), payload, deflater, chunk);
+                        } else {
+                            payload.putBytes(packed.toReadBuffer());
+                        }
+                        ByteBuffer stored = payload.toReadBuffer();
+                        stored.position(start);
+                        checksums[index] = checksum(stored);
+                    }
+                    lengths[index] = indexSize + payload.size() - offsets[index];
+                }
+            }
+        } finally {
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+
+        SaveBuffer out = new SaveBuffer(indexSize + payload.size());
+        out.putInt(GameMap.REGION_SIZE);
+        out.putInt(snapshot.regionsX);
+        out.putInt(snapshot.regionsY);
+        for (int i = 0; i < regionCount; i++) {
+            out.putInt(offsets[i]);
+            out.putInt(lengths[i]);
+            out.putInt(checksums[i]);
+        }
+        ByteBuffer index = out.toReadBuffer();
+        index.limit(indexSize);
+        int indexChecksum = checksum(index);
+        out.putBytes(payload.toReadBuffer());
+        return new Section(SECTION_MAP_REGIONS, snapshot.compressed ? FLAG_DEFLATE : 0,
+                out.toReadBuffer(), out.size(), indexChecksum);
+    }
+
+    static void deflate(ByteBuffer input, SaveBuffer out, Deflater deflater, byte[] chunk) {
+        deflater.reset();
+        deflater.setInput(input);
+        deflater.finish();
+        while (!deflater.finished()) {
+            int length = deflater.deflate(chunk);
+            out.putBytes(chunk, 0, length);
+        }
+    }
+
+    static ByteBuffer inflate(ByteBuffer input, int rawLength) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(input);
+            ByteBuffer out = ByteBuffer.allocate(rawLength);
+            while (!inflater.finished()) {
+                if (inflater.inflate(out) == 0
+                        && (inflater.needsInput() || inflater.needsDictionary() || !out.hasRemaining())) {
+                    throw new IOException("Compressed data does not match its recorded length");
+                }
+            }
+            out.flip();
+            return out;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt compressed data: " + e.getMessage(), e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    static int checksum(ByteBuffer data) {
+        CRC32C crc = new CRC32C();
+        crc.update(data.duplicate());
+        return (int) crc.getValue();
+    }
+
+    private static void packRegion(SaveBuffer out, Tile[] region, int width, int height) {
+        long bitBuffer = 0;
+        int bitCount = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                Tile tile = region[y * GameMap.REGION_SIZE + x];
+                bitBuffer |= (long) (tile != null ? encodeTile(tile) : TileType.EMPTY.ordinal()) << bitCount;
+                bitCount += BITS_PER_TILE;
+                while (bitCount >= 8) {
+                    out.putByte((int) (bitBuffer & 0xFF));
+                    bitBuffer >>>= 8;
+                    bitCount -= 8;
+                }
+            }
+        }
+        if (bitCount > 0) {
+            out.putByte((int) bitBuffer);
+        }
+    }
+
+    static int encodeTile(Tile tile) {
+        int resource = tile.hasResource() ? tile.getResource().getType().ordinal() + 1 : 0;
+        return tile.getType().ordinal() | (resource << TILE_TYPE_BITS);
+    }
+
+    static void writePlayer(SaveBuffer out, Player player) {
+        out.putSignedVarint(player.getPosition().getX());
+        out.putSignedVarint(player.getPosition().getY());
+        writeInventory(out, player.getInventory(), true);
+    }
+
+    private static void writeInventory(SaveBuffer out, Inventory inventory, boolean includeMoney) {
+        if (includeMoney) {
+            out.putSignedVarint(inventory.getMoney());
+        }
+        int kinds = 0;
+        for (ResourceType type : RESOURCE_TYPES) {
+            if (inventory.getResourceCount(type) > 0) {
+                kinds++;
+            }
+        }
+        out.putVarint(kinds);
+        for (ResourceType type : RESOURCE_TYPES) {
+            int count = inventory.getResourceCount(type);
+            if (count > 0) {
+                out.putVarint(type.ordinal());
+                out.putVarint(count);
+            }
+        }
+    }
+
+    static void writeMachine(SaveBuffer out, Machine machine) {
+        out.putVarint(machine.getType().ordinal());
+        out.putSignedVarint(machine.getPosition().getX());
+        out.putSignedVarint(machine.getPosition().getY());
+
+        if (machine instanceof Harvester) {
+            ResourceType target = ((Harvester) machine).getTargetResource();
+            out.putVarint(target != null ? target.ordinal() + 1 : 0);
+        } else if (machine instanceof Factory) {
+            Recipe recipe = ((Factory) machine).getSelectedRecipe();
+            out.putString(recipe != null ? recipe.getName() : "");
+        }
+
+        out.putVarint(machine.getTimesConfigured());
+        out.putVarint(machine.getOperationsSinceMaintenance());
+        out.putByte(machine.needsMaintenance() ? 1 : 0);
+        writeInventory(out, machine.getInventory(), false);
+    }
+
+    static void writeUnplacedMachines(SaveBuffer out, Inventory inventory) {
+        Map<MachineType, Integer> unplaced = inventory.getUnplacedMachines();
+        out.putVarint(unplaced.size());
+        for (Map.Entry<MachineType, Integer> entry : unplaced.entrySet()) {
+            out.putVarint(entry.getKey().ordinal());
+            out.putVarint(entry.getValue());
+        }
+    }
+
+    static void writeMarketRow(SaveBuffer out, Market market, ResourceType type) {
+        out.putVarint(type.ordinal());
+        out.putVarint(market.getStock(type));
+        out.putVarint(market.getBuyPrice(type));
+        out.putVarint(market.getSellPrice(type));
+    }
+
+    // Loads into an existing game, replacing its map
+    public static long load(Game game, String filename) throws IOException {
+        LoadedSave save = read(filename);
+        game.setMap(save.getMap());
+        save.apply(game);
+        return save.getSaveId();
+    }
+
+    // The file is read in one pass and closed; nothing keeps it open or mapped, so later
+    // saves can replace it on every platform. Only the packed bytes are held: the map is
+    // built empty at its saved size with no generation and its regions are decoded the
+    // first time they are touched, or all at once on the fork-join pool through
+    // GameMap.preloadRegions. Machine records are parsed on the pool too while the rest of
+    // the load goes on; only attaching them to the game (LoadedSave.apply) is single threaded.
+    static LoadedSave read(String filename) throws IOException {
+        ByteBuffer file;
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Save file too large: " + size + " bytes");
+            }
+            file = ByteBuffer.allocate((int) size);
+            while (file.hasRemaining()) {
+                if (channel.read(file) < 0) {
+                    throw new IOException("Save file ended early");
+                }
+            }
+            file.flip();
+        }
+
+        Map<Integer, Section> sections = readSectionTable(file);
+
+        // Checksums and decompression of the small sections run in parallel; the map
+        // regions are verified and inflated one at a time as they are paged in
+        Map<Integer, CompletableFuture<ByteBuffer>> decoded = new HashMap<>();
+        for (Section section : sections.values()) {
+            if (section.id != SECTION_MAP_REGIONS) {
+                decoded.put(section.id, CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return section.decode();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }));
+            }
+        }
+
+        ByteBuffer meta = requireSection(decoded, SECTION_META);
+        int width = SaveBuffer.getVarint(meta);
+        int height = SaveBuffer.getVarint(meta);
+        long saveId = meta.getLong();
+
+        CompletableFuture<MachineRecord[]> machines = decoded.containsKey(SECTION_MACHINES)
+                ? decoded.get(SECTION_MACHINES).thenApplyAsync(data -> {
+                    try {
+                        return parseMachines(data);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                })
+                : null;
+
+        Section regions = sections.get(SECTION_MAP_REGIONS);
+        if (regions == null) {
+            throw new IOException("Save file is missing section " + SECTION_MAP_REGIONS);
+        }
+        RegionLoader regionLoader = new StoredRegionLoader(regions, width, height);
+        return new LoadedSave(new GameMap(width, height, regionLoader), saveId, decoded, machines);
+    }
+
+    // A parsed save whose map is ready; the rest is applied once a Game exists around the map
+    static class LoadedSave {
+        private final GameMap map;
+        private final long saveId;
+        private final Map<Integer, CompletableFuture<ByteBuffer>> sections;
+        private final CompletableFuture<MachineRecord[]> machines;
+
+        LoadedSave(GameMap map, long saveId, Map<Integer, CompletableFuture<ByteBuffer>> sections,
+                   CompletableFuture<MachineRecord[]> machines) {
+            this.map = map;
+            this.saveId = saveId;
+            this.sections = sections;
+            this.machines = machines;
+        }
+
+        GameMap getMap() { return map; }
+        long getSaveId() { return saveId; }
+
+        void apply(Game game) throws IOException {
+            readPlayer(requireSection(sections, SECTION_PLAYER), game.getPlayer());
+            if (machines == null) {
+                throw new IOException("Save file is missing section " + SECTION_MACHINES);
+            }
+            for (MachineRecord machine : join(machines)) {
+                machine.create(game);
+            }
+            readUnplacedMachines(requireSection(sections, SECTION_UNPLACED_MACHINES), game.getPlayer().getInventory());
+            if (sections.containsKey(SECTION_MARKET)) {
+                ByteBuffer market = requireSection(sections, SECTION_MARKET);
+                int rows = SaveBuffer.getVarint(market);
+                for (int i = 0; i < rows; i++) {
+                    readMarketRow(market, game.getMarket());
+                }
+            }
+        }
+    }
+
+    static Map<Integer, Section> readSectionTable(ByteBuffer file) throws IOException {
+        if (file.limit() < HEADER_SIZE || file.getInt(0) != MAGIC) {
+            throw new IOException("Not a binary save file");
+        }
+        int version = file.getShort(4) & 0xFFFF;
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported save version: " + version);
+        }
+        int count = file.getShort(6) & 0xFFFF;
+        if (file.limit() < HEADER_SIZE + count * SECTION_ENTRY_SIZE) {
+            throw new IOException("Truncated section table");
+        }
+
+        Map<Integer, Section> sections = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            int entry = HEADER_SIZE + i * SECTION_ENTRY_SIZE;
+            int id = file.getShort(entry) & 0xFFFF;
+            int flags = file.getShort(entry + 2) & 0xFFFF;
+            long offset = file.getLong(entry + 4);
+            long length = file.getLong(entry + 12);
+            if (offset < 0 || length < 0 || offset + length > file.limit()) {
+                throw new IOException("Section " + id + " points outside the file");
+            }
+            ByteBuffer data = file.duplicate();
+            data.limit((int) (offset + length));
+            data.position((int) offset);
+            sections.put(id, new Section(id, flags, data.slice(), file.getInt(entry + 20), file.getInt(entry + 24)));
+        }
+        return sections;
+    }
+
+    private static ByteBuffer requireSection(Map<Integer, CompletableFuture<ByteBuffer>> sections, int id)
+            throws IOException {
+        CompletableFuture<ByteBuffer> section = sections.get(id);
+        if (section == null) {
+            throw new IOException("Save file is missing section " + id);
+        }
+        return join(section);
+    }
+
+    private static <T> T join(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw e;
+        }
+    }
+
+    static Tile decodeTile(int code, int x, int y) throws IOException {
+        checkTileCode(code, x, y);
+        Tile tile = new Tile(TILE_TYPES[code & TILE_TYPE_MASK]);
+        int resourceIndex = code >>> TILE_TYPE_BITS;
+        if (resourceIndex != 0) {
+            tile.setResource(new Resource(RESOURCE_TYPES[resourceIndex - 1]));
+        }
+        return tile;
+    }
+
+    private static void checkTileCode(int code, int x, int y) throws IOException {
+        if ((code & TILE_TYPE_MASK) >= TILE_TYPES.length || (code >>> TILE_TYPE_BITS) > RESOURCE_TYPES.length) {
+            throw new IOException("Invalid tile code " + code + " at (" + x + ", " + y + ")");
+        }
+    }
+
+    // Readers overwrite whatever the target already holds, so they serve both a fresh
+    // load and journal replay onto an already loaded game
+    static void readPlayer(ByteBuffer in, Player player) throws IOException {
+        int x = SaveBuffer.getSignedVarint(in);
+        int y = SaveBuffer.getSignedVarint(in);
+        player.setPosition(new Position(x, y));
+        readInventory(in, player.getInventory(), true);
+    }
+
+    private static void readInventory(ByteBuffer in, Inventory inventory, boolean includeMoney) throws IOException {
+        if (includeMoney) {
+            int money = SaveBuffer.getSignedVarint(in);
+            inventory.addMoney(money - inventory.getMoney());
+        }
+        for (ResourceType type : RESOURCE_TYPES) {
+            int count = inventory.getResourceCount(type);
+            if (count > 0) {
+                inventory.removeResource(type, count);
+            }
+        }
+        int kinds = SaveBuffer.getVarint(in);
+        for (int i = 0; i < kinds; i++) {
+            ResourceType type = resourceType(SaveBuffer.getVarint(in));
+            inventory.addResource(type, SaveBuffer.getVarint(in));
+        }
+    }
+
+    static Machine readMachine(ByteBuffer in, Game game) throws IOException {
+        return parseMachine(in).create(game);
+    }
+
+    // Records are located through the offset table and parsed in parallel; parsing
+    // touches nothing but the buffer, so no game state is shared between workers
+    static MachineRecord[] parseMachines(ByteBuffer in) throws IOException {
+        int count = SaveBuffer.getVarint(in);
+        MachineRecord[] records = new MachineRecord[count];
+        if (in.remaining() < (long) count * 4) {
+            throw new IOException("Truncated machine offset table");
+        }
+        int tableStart = in.position();
+        int recordsStart = tableStart + count * 4;
+        int[] bounds = new int[count + 1];
+        for (int i = 0; i < count; i++) {
+            bounds[i] = recordsStart + in.getInt(tableStart + i * 4);
+        }
+        bounds[count] = in.limit();
+        for (int i = 0; i < count; i++) {
+            if (bounds[i] < recordsStart || bounds[i] > bounds[i + 1]) {
+                throw new IOException("Machine record " + i + " points outside the section");
+            }
+        }
+        try {
+            IntStream.range(0, count).parallel().forEach(i -> {
+                ByteBuffer record = in.duplicate();
+                record.limit(bounds[i + 1]).position(bounds[i]);
+                try {
+                    records[i] = parseMachine(record);
+                } catch (IOException | RuntimeException e) {
+                    throw new UncheckedIOException(new IOException("Machine record " + i + " is invalid", e));
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return records;
+    }
+
+    static MachineRecord parseMachine(ByteBuffer in) throws IOException {
+        MachineType type = machineType(SaveBuffer.getVarint(in));
+        int x = SaveBuffer.getSignedVarint(in);
+        int y = SaveBuffer.getSignedVarint(in);
+
+        ResourceType target = null;
+        String recipeName = "";
+        if (type.toString().contains("HARVESTER")) {
+            int code = SaveBuffer.getVarint(in);
+            target = code > 0 ? resourceType(code - 1) : null;
+        } else if (type.toString().contains("FACTORY")) {
+            recipeName = SaveBuffer.getString(in);
+        }
+
+        int timesConfigured = SaveBuffer.getVarint(in);
+        int operations = SaveBuffer.getVarint(in);
+        boolean needsMaintenance = in.get() != 0;
+        int[] inventory = new int[RESOURCE_TYPES.length];
+        int kinds = SaveBuffer.getVarint(in);
+        for (int i = 0; i < kinds; i++) {
+            inventory[resourceType(SaveBuffer.getVarint(in)).ordinal()] = SaveBuffer.getVarint(in);
+        }
+        return new MachineRecord(type, x, y, target, recipeName, timesConfigured, operations,
+                needsMaintenance, inventory);
+    }
+
+    static void readUnplacedMachines(ByteBuffer in, Inventory inventory) throws IOException {
+        for (MachineType type : MACHINE_TYPES) {
+            while (inventory.removeMachine(type)) {
+                // drop whatever was there before
+            }
+        }
+        int kinds = SaveBuffer.getVarint(in);
+        for (int i = 0; i < kinds; i++) {
+            MachineType type = machineType(SaveBuffer.getVarint(in));
+            int count = SaveBuffer.getVarint(in);
+            for (int j = 0; j < count; j++) {
+                inventory.addMachine(type);
+            }
+        }
+    }
+
+    static void readMarketRow(ByteBuffer in, Market market) throws IOException {
+        ResourceType type = resourceType(SaveBuffer.getVarint(in));
+        int stock = SaveBuffer.getVarint(in);
+        int buyPrice = SaveBuffer.getVarint(in);
+        int sellPrice = SaveBuffer.getVarint(in);
+        market.restoreResource(type, stock, buyPrice, sellPrice);
+    }
+
+    private static MachineType machineType(int index) throws IOException {
+        if (index < 0 || index >= MACHINE_TYPES.length) {
+            throw new IOException("Invalid machine type " + index);
+        }
+        return MACHINE_TYPES[index];
+    }
+
+    private static ResourceType resourceType(int index) throws IOException {
+        if (index < 0 || index >= RESOURCE_TYPES.length) {
+            throw new IOException("Invalid resource type " + index);
+        }
+        return RESOURCE_TYPES[index];
+    }
+
+    private static Recipe findRecipe(Game game, String recipeName) {
+        if (recipeName.isEmpty()) {
+            return null;
+        }
+        return game.getCraftingSystem().getAllRecipes().stream()
+                .filter(r -> r.getName().equals(recipeName))
+                .findFirst()
+                .orElse(null);
+    }
+
+    // One entry of the section table together with its stored bytes
+    static class Section {
+        final int id;
+        final int flags;
+        final ByteBuffer data;
+        final int rawLength;
+        final int checksum;
+
+        Section(int id, int flags, ByteBuffer data, int rawLength, int checksum) {
+            this.id = id;
+            this.flags = flags;
+            this.data = data;
+            this.rawLength = rawLength;
+            this.checksum = checksum;
+        }
+
+        // Compresses only when that actually saves space
+        static Section encode(int id, SaveBuffer raw, boolean compress) {
+            ByteBuffer rawData = raw.toReadBuffer();
+            if (compress) {
+                SaveBuffer deflated = new SaveBuffer(Math.max(64, raw.size() / 2));
+                Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+                try {
+                    deflate(rawData.duplicate(), deflated, deflater, new byte[4096]);
+                } finally {
+                    deflater.end();
+                }
+                if (deflated.size() < raw.size()) {
+                    ByteBuffer stored = deflated.toReadBuffer();
+                    return new Section(id, FLAG_DEFLATE, stored, raw.size(), checksum(stored));
+                }
+            }
+            return new Section(id, 0, rawData, raw.size(), checksum(rawData));
+        }
+
+        ByteBuffer decode() throws IOException {
+            if (checksum(data) != checksum) {
+                throw new IOException("Save section " + id + " is corrupt (checksum mismatch)");
+            }
+            if ((flags & FLAG_DEFLATE) != 0) {
+                return inflate(data.duplicate(), rawLength);
+            }
+            return data.duplicate();
+        }
+    }
+
+    // Decodes regions on demand from the MAP_REGIONS section read in with the save
+    static class StoredRegionLoader implements RegionLoader {
+        private final ByteBuffer section;
+        private final int regionsX;
+        private final int regionCount;
+        private final boolean compressed;
+
+        StoredRegionLoader(Section regions, int width, int height) throws IOException {
+            this.section = regions.data;
+            this.compressed = (regions.flags & FLAG_DEFLATE) != 0;
+            if (section.limit() < REGION_HEADER_SIZE) {
+                throw new IOException("Truncated region index");
+            }
+            int regionSize = section.getInt(0);
+            this.regionsX = section.getInt(4);
+            int regionsY = section.getInt(8);
+            if (regionSize != GameMap.REGION_SIZE) {
+                throw new IOException("Unsupported region size: " + regionSize);
+            }
+            if (regionsX != (width + GameMap.REGION_SIZE - 1) / GameMap.REGION_SIZE
+                    || regionsY != (height + GameMap.REGION_SIZE - 1) / GameMap.REGION_SIZE) {
+                throw new IOException("Region grid does not match map size");
+            }
+            this.regionCount = regionsX * regionsY;
+            long indexSize = REGION_HEADER_SIZE + (long) regionCount * REGION_ENTRY_SIZE;
+            if (section.limit() < indexSize) {
+                throw new IOException("Truncated region index");
+            }
+            ByteBuffer index = section.duplicate();
+            index.position(0).limit((int) indexSize);
+            if (checksum(index) != regions.checksum) {
+                throw new IOException("Region index is corrupt (checksum mismatch)");
+            }
+            for (int i = 0; i < regionCount; i++) {
+                long end = (long) offsetOf(i) + lengthOf(i);
+                if (offsetOf(i) < 0 || lengthOf(i) < 0 || end > section.limit()) {
+                    throw new IOException("Region " + i + " points outside the save file");
+                }
+            }
+        }
+
+        private int offsetOf(int index) {
+            return section.getInt(REGION_HEADER_SIZE + index * REGION_ENTRY_SIZE);
+        }
+
+        private int lengthOf(int index) {
+            return section.getInt(REGION_HEADER_SIZE + index * REGION_ENTRY_SIZE + 4);
+        }
+
+        int checksumOf(int index) {
+            return section.getInt(REGION_HEADER_SIZE + index * REGION_ENTRY_SIZE + 8);
+        }
+
+        // Stored region bytes can be reused as is only by a file written the same way
+        boolean canCopyTo(boolean compressTarget) {
+            return compressed == compressTarget;
+        }
+
+        ByteBuffer encodedRegion(int index) {
+            ByteBuffer region = section.duplicate();
+            region.limit(offsetOf(index) + lengthOf(index));
+            region.position(offsetOf(index));
+            return region;
+        }
+
+        @Override
+        public void loadRegion(int regionX, int regionY, int regionWidth, int regionHeight, Tile[] tiles) {
+            int index = regionY * regionsX + regionX;
+            ByteBuffer in = encodedRegion(index);
+            int x0 = regionX * GameMap.REGION_SIZE;
+            int y0 = regionY * GameMap.REGION_SIZE;
+            int packedSize = (regionWidth * regionHeight * BITS_PER_TILE + 7) / 8;
+            try {
+                if (checksum(in) != checksumOf(index)) {
+                    throw new IOException("Map region (" + regionX + ", " + regionY + ") is corrupt (checksum mismatch)");
+                }
+                if (compressed) {
+                    in = inflate(in, packedSize);
+                }
+                if (in.remaining() < packedSize) {
+                    throw new IOException("Truncated map region (" + regionX + ", " + regionY + ")");
+                }
+                long bitBuffer = 0;
+                int bitCount = 0;
+                for (int y = 0; y < regionHeight; y++) {
+                    for (int x = 0; x < regionWidth; x++) {
+                        while (bitCount < BITS_PER_TILE) {
+                            bitBuffer |= (long) (in.get() & 0xFF) << bitCount;
+                            bitCount += 8;
+                        }
+                        int code = (int) (bitBuffer & ((1 << BITS_PER_TILE) - 1));
+                        bitBuffer >>>= BITS_PER_TILE;
+                        bitCount -= BITS_PER_TILE;
+                        tiles[y * GameMap.REGION_SIZE + x] = decodeTile(code, x0 + x, y0 + y);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    // A machine as decoded from the save, before it exists in any game
+    static class MachineRecord {
+        final MachineType type;
+        final int x;
+        final int y;
+        final ResourceType target;
+        final String recipeName;
+        final int timesConfigured;
+        final int operations;
+        final boolean needsMaintenance;
+        final int[] inventory; // Count per ResourceType ordinal
+
+        MachineRecord(MachineType type, int x, int y, ResourceType target, String recipeName,
+                      int timesConfigured, int operations, boolean needsMaintenance, int[] inventory) {
+            this.type = type;
+            this.x = x;
+            this.y = y;
+            this.target = target;
+            this.recipeName = recipeName;
+            this.timesConfigured = timesConfigured;
+            this.operations = operations;
+            this.needsMaintenance = needsMaintenance;
+            this.inventory = inventory;
+        }
+
+        // Registers the machine and attaches it to its tile; game thread only
+        Machine create(Game game) {
+            Position pos = new Position(x, y);
+            Machine machine = game.getMachineManager().createMachine(type, pos);
+            if (machine instanceof Harvester) {
+                if (target != null) {
+                    ((Harvester) machine).setTargetResource(target);
+                }
+            } else if (machine instanceof Factory) {
+                Recipe recipe = findRecipe(game, recipeName);
+                if (recipe != null) {
+                    ((Factory) machine).setRecipe(recipe);
+                }
+            }
+
+            Inventory machineInventory = machine.getInventory();
+            for (ResourceType type : RESOURCE_TYPES) {
+                int count = machineInventory.getResourceCount(type);
+                if (count > 0) {
+                    machineInventory.removeResource(type, count);
+                }
+                if (inventory[type.ordinal()] > 0) {
+                    machineInventory.addResource(type, inventory[type.ordinal()]);
+                }
+            }
+            machine.restoreState(timesConfigured, operations, needsMaintenance);
+
+            Tile tile = game.getMap().getTile(pos);
+            if (tile != null) {
+                tile.setMachine(machine);
+            }
+            return machine;
+        }
+    }
+}
@@ -1,7 +1,7 @@
 package com.resourcegame.ui;
 
 import com.resourcegame.core.Game;
-import com.resourcegame.entities.Factory;
+import com.resourcegame.core.WorldSnapshot;
 import com.resourcegame.utils.MachineType;
 import com.resourcegame.utils.Position;
 import com.resourcegame.utils.ResourceType;
@@ -18,7 +18,6 @@ public class ControlPanel extends JPanel {
     private JButton marketButton;
     private JLabel moneyLabel;
     private JButton manageMachinesButton;
-    private static final int TILE_SIZE = 40;
 
     public ControlPanel(Game game) {
         this.game = game;
@@ -32,7 +31,7 @@ public class ControlPanel extends JPanel {
         // Money Display
         add(createSectionPanel("Money", () -> {
             JPanel panel = new JPanel(new BorderLayout());
-            moneyLabel = new JLabel("$" + game.getPlayer().getInventory().getMoney());
+            moneyLabel = new JLabel("$" + game.getSnapshot().getMoney());
             moneyLabel.setFont(new Font("Arial", Font.BOLD, 16));
             moneyLabel.setHorizontalAlignment(SwingConstants.CENTER);
             panel.add(moneyLabel, BorderLayout.CENTER);
@@ -53,7 +52,7 @@ public class ControlPanel extends JPanel {
             scrollPane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED);
 
             panel.add(scrollPane);
-            updateInventoryDisplay(game.getPlayer().getInventory().getInventoryDisplay());
+            updateInventoryDisplay(game.getSnapshot().getInventoryDisplay());
             return panel;
         }));
 
@@ -85,9 +84,9 @@ public class ControlPanel extends JPanel {
     }
 
     private void handleHarvest() {
-        Position selectedTile = game.getMap().getSelectedTile();
+        Position selectedTile = game.getSnapshot().getSelectedTile();
         if (selectedTile != null) {
-            game.harvestResource(selectedTile);
+            game.submitAction(g -> g.harvestResource(selectedTile));
             updateHarvestButton(false);
         }
     }
@@ -107,11 +106,7 @@ public class ControlPanel extends JPanel {
 
     private void handleCraft() {
         if (game.getCraftingSystem() != null) {
-            CraftingPanel craftingPanel = new CraftingPanel(
-                    game.getCraftingSystem(),
-                    game.getPlayer().getInventory(),
-                    this // Pass reference to ControlPanel
-            );
+            CraftingPanel craftingPanel = new CraftingPanel(game);
 
             // Create dialog
             JDialog dialog = new JDialog(
@@ -151,7 +146,7 @@ public class ControlPanel extends JPanel {
 
     private void handleMarket() {
         // Check if player is adjacent to market tile
-        Position playerPos = game.getPlayer().getPosition();
+        Position playerPos = game.getSnapshot().getPlayerPosition();
         Position marketPos = game.getMap().getMarketPosition();
 
         if (!playerPos.isAdjacent(marketPos)) {
@@ -165,7 +160,6 @@ public class ControlPanel extends JPanel {
         // Create and show market dialog
         MarketPanel marketPanel = new MarketPanel(
                 game, game.getMarket(),
-                game.getPlayer().getInventory(),
                 this // Pass reference to ControlPanel for updates
         );
 
@@ -217,8 +211,9 @@ public class ControlPanel extends JPanel {
             inventoryPanel.removeAll();
 
             // Create individual item panels for each resource
+            WorldSnapshot snapshot = game.getSnapshot();
             for (ResourceType type : ResourceType.values()) {
-                int count = game.getPlayer().getInventory().getResourceCount(type);
+                int count = snapshot.getResourceCount(type);
                 if (count > 0) {
                     JPanel itemPanel = new JPanel(new BorderLayout());
                     itemPanel.setBorder(BorderFactory.createEmptyBorder(2, 5, 2, 5));
@@ -235,7 +230,7 @@ public class ControlPanel extends JPanel {
             inventoryPanel.add(Box.createVerticalGlue());
 
             // Update the money display
-            updateMoneyDisplay(game.getPlayer().getInventory().getMoney());
+            updateMoneyDisplay(snapshot.getMoney());
 
             // Update the display
             inventoryPanel.revalidate();
@@ -309,7 +304,7 @@ public class ControlPanel extends JPanel {
             @Override
             public void keyPressed(KeyEvent e) {
                 if (e.getKeyCode() == KeyEvent.VK_ESCAPE) {
-                    game.cancelMachinePlacement();
+                    game.submitAction(Game::cancelMachinePlacement);
                     Window window = SwingUtilities.getWindowAncestor(ControlPanel.this);
                     if (window instanceof JFrame) {
                         JFrame frame = (JFrame) window;
@@ -322,7 +317,7 @@ public class ControlPanel extends JPanel {
                                 frame.requestFocus();
 
                                 // Return machine to inventory only if it wasn't successfully placed
-                                game.getPlayer().getInventory().addMachine(type);
+                                game.submitAction(g -> g.getPlayer().getInventory().addMachine(type));
 
                                 JOptionPane.showMessageDialog(frame,
                                         "Machine placement cancelled",
@@ -341,17 +336,25 @@ public class ControlPanel extends JPanel {
             @Override
             public void mouseClicked(MouseEvent e) {
                 MapPanel mapPanel = (MapPanel) e.getComponent();
-                int tileX = e.getX() / TILE_SIZE;
-                int tileY = e.getY() / TILE_SIZE;
-                Position pos = new Position(tileX, tileY);
+                Position pos = mapPanel.getTileAt(e.getPoint());
 
                 // Always remove the listener first
                 mapPanel.removeMouseListener(this);
 
-                if (game.placeMachine(type, pos)) {
-                    // Successfully placed - remove from inventory
-                    game.getPlayer().getInventory().removeMachine(type);
-                    
+                game.submit(g -> {
+                    boolean placed = g.placeMachine(type, pos);
+                    if (placed) {
+                        // Successfully placed - remove from inventory
+                        g.getPlayer().getInventory().removeMachine(type);
+                    } else {
+                        // Failed to place - add machine back to inventory
+                        g.getPlayer().getInventory().addMachine(type);
+                    }
+                    return placed;
+                }).thenAcceptAsync(placed -> {
+                    if (!placed) {
+                        return;
+                    }
                     JOptionPane.showMessageDialog(mapPanel,
                             "Machine placed successfully!",
                             "Success",
@@ -364,10 +367,7 @@ public class ControlPanel extends JPanel {
                         frame.removeKeyListener(escapeListenerHolder[0]);
                         frame.requestFocus();
                     }
-                } else {
-                    // Failed to place - add machine back to inventory
-                    game.getPlayer().getInventory().addMachine(type);
-                }
+                }, SwingUtilities::invokeLater);
             }
         };
 
@@ -378,9 +378,9 @@ public class ControlPanel extends JPanel {
             Component[] components = frame.getContentPane().getComponents();
             for (Component component : components) {
                 if (component instanceof MapPanel) {
-                    game.startMachinePlacement(type, () -> {
+                    game.submitAction(g -> g.startMachinePlacement(type, () -> {
                         // Success callback
-                    });
+                    }));
                     ((MapPanel) component).addMouseListener(placementListenerHolder[0]);
                     break;
                 }
@@ -389,15 +389,15 @@ public class ControlPanel extends JPanel {
         }
     }
 
-    public void openFactoryInventory(Factory factory) {
+    public void openFactoryInventory(Position factoryPosition) {
         JDialog dialog = new JDialog(
                 (Frame) SwingUtilities.getWindowAncestor(this),
                 "Factory Inventory",
                 true);  // Changed to use Frame parent and made modal
         
         FactoryInventoryPanel factoryPanel = new FactoryInventoryPanel(
-                factory,
-                game.getPlayer().getInventory(),
+                game,
+                factoryPosition,
                 this);
         
         dialog.setContentPane(factoryPanel);
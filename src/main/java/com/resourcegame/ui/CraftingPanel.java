@@ -1,53 +1,70 @@
 package com.resourcegame.ui;
 
+import com.resourcegame.core.Game;
+import com.resourcegame.core.GameEvent;
+import com.resourcegame.core.WorldSnapshot;
 import com.resourcegame.systems.CraftingSystem;
 import com.resourcegame.systems.Recipe;
-import com.resourcegame.entities.Inventory;
 import com.resourcegame.utils.ResourceType;
 
 import javax.swing.*;
 import java.awt.*;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Iterator;
-import java.util.Timer;
-import java.util.TimerTask;
 import com.resourcegame.systems.CraftingSystem.CraftingListener;
 
 public class CraftingPanel extends JPanel implements CraftingListener {
+    private final Game game;
     private final CraftingSystem craftingSystem;
-    private final Inventory playerInventory;
     private JList<Recipe> recipeList;
     private DefaultListModel<Recipe> recipeModel;
     private JTextArea recipeDetails;
     private JButton craftButton;
-    private final Map<String, JPanel> craftingPanels; // Changed to store whole panel
-    private Timer updateTimer;
+    private final Map<String, ActiveCraft> activeCrafts;
+    private final GameUIListener eventListener = this::onGameEvents;
+    private final Timer frameTimer; // Runs only while a progress bar is showing
+    private static final int FRAME_MILLIS = 33;
     private int craftingIdCounter = 0;
     private JLabel statusLabel;
     private JTextArea inventoryDisplay;
-    private ControlPanel controlPanel;
     private JPanel rightPanel; // Store reference to right panel
 
-    public CraftingPanel(CraftingSystem craftingSystem, Inventory playerInventory, ControlPanel controlPanel) {
-        if (craftingSystem == null) {
+    // A running craft's bar, animated from its start time rather than polled
+    private static class ActiveCraft {
+        final JPanel panel;
+        final JProgressBar progressBar;
+        final long startTime;
+        final long duration;
+
+        ActiveCraft(JPanel panel, JProgressBar progressBar, long startTime, long duration) {
+            this.panel = panel;
+            this.progressBar = progressBar;
+            this.startTime = startTime;
+            this.duration = duration;
+        }
+    }
+
+    public CraftingPanel(Game game) {
+        if (game.getCraftingSystem() == null) {
             throw new IllegalArgumentException("CraftingSystem cannot be null");
         }
-        if (playerInventory == null) {
+        if (game.getPlayer().getInventory() == null) {
             throw new IllegalArgumentException("Inventory cannot be null");
         }
 
-        this.craftingSystem = craftingSystem;
-        this.playerInventory = playerInventory;
-        this.controlPanel = controlPanel;
-        this.craftingPanels = new HashMap<>();
+        this.game = game;
+        this.craftingSystem = game.getCraftingSystem();
+        this.activeCrafts = new HashMap<>();
+        this.frameTimer = new Timer(FRAME_MILLIS, e -> updateProgressBars());
         craftingSystem.addCraftingListener(this);
+        game.addUIListener(eventListener);
 
         setLayout(new BorderLayout(10, 10));
         setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
 
         initializeComponents();
-        setupUpdateTimer();
 
         statusLabel = new JLabel(" ");
         statusLabel.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
@@ -144,7 +161,7 @@ public class CraftingPanel extends JPanel implements CraftingListener {
             Recipe recipe = (Recipe) value;
             setText(recipe.getName());
 
-            if (!craftingSystem.canCraft(recipe, playerInventory)) {
+            if (!canCraft(recipe, game.getSnapshot())) {
                 setForeground(Color.GRAY);
             } else {
                 setForeground(isSelected ? list.getSelectionForeground() : list.getForeground());
@@ -162,6 +179,7 @@ public class CraftingPanel extends JPanel implements CraftingListener {
             return;
         }
 
+        WorldSnapshot snapshot = game.getSnapshot();
         StringBuilder details = new StringBuilder();
         details.append("=== ").append(selected.getName()).append(" ===\n\n");
         details.append(selected.getDescription()).append("\n\n");
@@ -170,7 +188,7 @@ public class CraftingPanel extends JPanel implements CraftingListener {
         details.append("┌─ REQUIRED RESOURCES ").append("─".repeat(20)).append("┐\n");
         boolean canCraft = true;
         for (Map.Entry<ResourceType, Integer> ingredient : selected.getIngredients().entrySet()) {
-            int available = playerInventory.getResourceCount(ingredient.getKey());
+            int available = snapshot.getResourceCount(ingredient.getKey());
             int required = ingredient.getValue();
             details.append(String.format("│ %-15s %3d  (Have: %d)  %s\n",
                     ingredient.getKey() + ":",
@@ -202,7 +220,7 @@ public class CraftingPanel extends JPanel implements CraftingListener {
         // Space Check
         int totalResults = selected.getResults().values().stream()
                 .mapToInt(Integer::intValue).sum();
-        if (!playerInventory.hasSpace(totalResults)) {
+        if (!snapshot.hasSpace(totalResults)) {
             details.append("\n⚠ WARNING: Not enough inventory space for results!");
             canCraft = false;
         }
@@ -215,45 +233,57 @@ public class CraftingPanel extends JPanel implements CraftingListener {
         craftButton.setEnabled(canCraft);
     }
 
-    private void setupUpdateTimer() {
-        updateTimer = new Timer();
-        updateTimer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                SwingUtilities.invokeLater(() -> {
-                    updateProgressBars();
-                    recipeList.repaint();
-                    updateRecipeDetails();
-                    updateInventoryDisplay();
-                });
+    // Same check as CraftingSystem.canCraft, against the published snapshot
+    private boolean canCraft(Recipe recipe, WorldSnapshot snapshot) {
+        int totalResultItems = recipe.getResults().values().stream()
+                .mapToInt(Integer::intValue).sum();
+        if (!snapshot.hasSpace(totalResultItems)) {
+            return false;
+        }
+        for (Map.Entry<ResourceType, Integer> ingredient : recipe.getIngredients().entrySet()) {
+            if (snapshot.getResourceCount(ingredient.getKey()) < ingredient.getValue()) {
+                return false;
             }
-        }, 0, 100);
+        }
+        return true;
     }
 
+    // Recipe availability and the inventory text only change with the player's inventory
+    private void onGameEvents(WorldSnapshot snapshot, List<GameEvent> events) {
+        for (GameEvent event : events) {
+            if (event instanceof GameEvent.WorldReset
+                    || (event instanceof GameEvent.InventoryChanged && ((GameEvent.InventoryChanged) event).isPlayer())) {
+                updateInventoryDisplay();
+                updateRecipeDetails();
+                recipeList.repaint();
+                return;
+            }
+        }
+    }
+
+    // Frame callback while crafts are running. A bar stays full until the published snapshot
+    // no longer lists its craft, i.e. the results are in the inventory.
     private void updateProgressBars() {
-        Iterator<Map.Entry<String, JPanel>> it = craftingPanels.entrySet().iterator();
+        long now = System.currentTimeMillis();
+        Map<String, Float> activeProgress = game.getSnapshot().getCraftingProgress();
+        Iterator<Map.Entry<String, ActiveCraft>> it = activeCrafts.entrySet().iterator();
         while (it.hasNext()) {
-            Map.Entry<String, JPanel> entry = it.next();
-            String craftingId = entry.getKey();
-            JPanel panel = entry.getValue();
-            
-            Float progress = craftingSystem.getCraftingProgress(craftingId);
-            
-            if (progress == null || progress >= 1.0f) {
-                rightPanel.remove(panel);
+            Map.Entry<String, ActiveCraft> entry = it.next();
+            ActiveCraft craft = entry.getValue();
+            float progress = Math.min(1.0f, (float) (now - craft.startTime) / craft.duration);
+
+            if (progress >= 1.0f && !activeProgress.containsKey(entry.getKey())) {
+                rightPanel.remove(craft.panel);
                 it.remove();
                 rightPanel.revalidate();
                 rightPanel.repaint();
             } else {
-                for (Component component : panel.getComponents()) {
-                    if (component instanceof JProgressBar) {
-                        JProgressBar progressBar = (JProgressBar) component;
-                        progressBar.setValue((int)(progress * 100));
-                        break;
-                    }
-                }
+                craft.progressBar.setValue((int) (progress * 100));
             }
         }
+        if (activeCrafts.isEmpty()) {
+            frameTimer.stop();
+        }
     }
 
     private void startCrafting() {
@@ -262,14 +292,17 @@ public class CraftingPanel extends JPanel implements CraftingListener {
             return;
     
         String craftingId = "craft_" + (++craftingIdCounter);
-        if (craftingSystem.startCrafting(selected, playerInventory, craftingId)) {
-            if (!selected.isInstant()) {
-                addProgressBar(selected, craftingId);
+        // Completes with the craft's start time, or -1 if it isn't running
+        game.submit(g -> g.getCraftingSystem().startCrafting(selected, g.getPlayer().getInventory(), craftingId)
+                ? g.getCraftingSystem().getCraftingStartTime(craftingId) : -1L)
+                .thenAcceptAsync(startTime -> {
+            if (startTime >= 0 && !selected.isInstant()) {
+                addProgressBar(selected, craftingId, startTime);
             }
-        }
+        }, SwingUtilities::invokeLater);
     }
 
-    private void addProgressBar(Recipe recipe, String craftingId) {
+    private void addProgressBar(Recipe recipe, String craftingId, long startTime) {
         // Create panel for this crafting process
         JPanel progressPanel = new JPanel(new BorderLayout(5, 0));
         progressPanel.setBorder(BorderFactory.createCompoundBorder(
@@ -297,8 +330,9 @@ public class CraftingPanel extends JPanel implements CraftingListener {
         progressBar.setStringPainted(true);
         progressPanel.add(progressBar, BorderLayout.CENTER);
 
-        // Store the whole panel
-        craftingPanels.put(craftingId, progressPanel);
+        activeCrafts.put(craftingId, new ActiveCraft(progressPanel, progressBar, startTime,
+                Math.max(1, recipe.getCraftingTime())));
+        frameTimer.start();
 
         // Add to right panel
         if (rightPanel != null) {
@@ -309,10 +343,9 @@ public class CraftingPanel extends JPanel implements CraftingListener {
     }
 
     public void destroy() {
-        if (updateTimer != null) {
-            updateTimer.cancel();
-            updateTimer.purge(); // Add purge to clean up cancelled tasks
-        }
+        frameTimer.stop();
+        game.removeUIListener(eventListener);
+        craftingSystem.removeCraftingListener(this);
 
         // Clear any remaining progress bars
         if (rightPanel != null) {
@@ -320,16 +353,17 @@ public class CraftingPanel extends JPanel implements CraftingListener {
             rightPanel.revalidate();
             rightPanel.repaint();
         }
-        craftingPanels.clear();
+        activeCrafts.clear();
     }
 
     private void updateInventoryDisplay() {
+        WorldSnapshot snapshot = game.getSnapshot();
         StringBuilder sb = new StringBuilder();
         sb.append("Current Resources:\n");
 
         boolean hasItems = false;
         for (ResourceType type : ResourceType.values()) {
-            int count = playerInventory.getResourceCount(type);
+            int count = snapshot.getResourceCount(type);
             if (count > 0) {
                 if (hasItems) {
                     sb.append("\n");
@@ -344,22 +378,20 @@ public class CraftingPanel extends JPanel implements CraftingListener {
         }
 
         sb.append("\nInventory Space: ")
-                .append(playerInventory.getTotalItems())
+                .append(snapshot.getPlayerItems())
                 .append("/")
                 .append(100); // Assuming max capacity is 100
 
         inventoryDisplay.setText(sb.toString());
     }
 
+    // Called on the simulation thread before the tick's snapshot is out, so only the status
+    // line changes here; the inventory event that follows refreshes the rest
     @Override
     public void onCraftingStarted(Recipe recipe) {
         SwingUtilities.invokeLater(() -> {
             statusLabel.setText("Started crafting: " + recipe.getName());
             statusLabel.setForeground(new Color(0, 100, 0));
-            updateInventoryDisplay();
-            if (controlPanel != null) {
-                controlPanel.updateInventoryDisplay(playerInventory.getInventoryDisplay());
-            }
         });
     }
 
@@ -368,18 +400,6 @@ public class CraftingPanel extends JPanel implements CraftingListener {
         SwingUtilities.invokeLater(() -> {
             statusLabel.setText("Successfully crafted: " + recipe.getName());
             statusLabel.setForeground(new Color(0, 100, 0));
-
-            if (!recipe.isInstant()) {
-                // Force refresh of panels for timed recipes only
-                updateProgressBars();
-            }
-
-            updateInventoryDisplay();
-            if (controlPanel != null) {
-                controlPanel.updateInventoryDisplay(playerInventory.getInventoryDisplay());
-            }
-            updateRecipeDetails();
-            recipeList.repaint();
         });
     }
 
@@ -388,12 +408,6 @@ public class CraftingPanel extends JPanel implements CraftingListener {
         SwingUtilities.invokeLater(() -> {
             statusLabel.setText("Crafting failed: " + reason);
             statusLabel.setForeground(Color.RED);
-            updateInventoryDisplay();
-            if (controlPanel != null) {
-                controlPanel.updateInventoryDisplay(playerInventory.getInventoryDisplay());
-            }
-            updateRecipeDetails();
-            recipeList.repaint();
         });
     }
-}
\ No newline at end of file
+}
@@ -1,7 +1,10 @@
 package com.resourcegame.ui;
 
-import com.resourcegame.entities.Factory;
+import com.resourcegame.core.Game;
+import com.resourcegame.core.WorldSnapshot.MachineView;
 import com.resourcegame.entities.Inventory;
+import com.resourcegame.entities.Machine;
+import com.resourcegame.utils.Position;
 import com.resourcegame.utils.ResourceType;
 import com.resourcegame.systems.Recipe;
 
@@ -10,17 +13,18 @@ import java.awt.*;
 import java.awt.event.*;
 import java.util.Map;
 
+// Shows the factory as of the latest snapshot; changes are submitted as game commands
 public class FactoryInventoryPanel extends JPanel {
-    private final Factory factory;
-    private final Inventory playerInventory;
+    private final Game game;
+    private final Position position;
     private final ControlPanel controlPanel;
     private Timer updateTimer;
     private JPanel inventoryPanel;
     private JPanel recipePanel;
 
-    public FactoryInventoryPanel(Factory factory, Inventory playerInventory, ControlPanel controlPanel) {
-        this.factory = factory;
-        this.playerInventory = playerInventory;
+    public FactoryInventoryPanel(Game game, Position position, ControlPanel controlPanel) {
+        this.game = game;
+        this.position = position;
         this.controlPanel = controlPanel;
 
         setLayout(new BorderLayout(10, 10));
@@ -43,7 +47,7 @@ public class FactoryInventoryPanel extends JPanel {
         recipePanel.add(recipeHeaderPanel, BorderLayout.NORTH);
 
         // Add recipe info
-        Recipe currentRecipe = factory.getSelectedRecipe();
+        Recipe currentRecipe = getSelectedRecipe();
         if (currentRecipe != null) {
             JTextArea recipeInfo = new JTextArea();
             recipeInfo.setEditable(false);
@@ -75,6 +79,16 @@ public class FactoryInventoryPanel extends JPanel {
         add(controlsPanel, BorderLayout.SOUTH);
     }
 
+    private MachineView getFactory() {
+        return game.getSnapshot().getMachineAt(position.getX(), position.getY());
+    }
+
+    private Recipe getSelectedRecipe() {
+        MachineView factory = getFactory();
+        return factory != null && factory.getRecipeName() != null
+                ? game.getCraftingSystem().getRecipe(factory.getRecipeName()) : null;
+    }
+
     private String formatRecipeInfo(Recipe recipe) {
         StringBuilder sb = new StringBuilder();
         sb.append("Recipe: ").append(recipe.getName()).append("\n\n");
@@ -118,8 +132,9 @@ public class FactoryInventoryPanel extends JPanel {
             headerPanel.add(nameLabel, BorderLayout.WEST);
 
             // Current recipe indicator
-            if (factory.getSelectedRecipe() != null &&
-                    factory.getSelectedRecipe().getName().equals(recipe.getName())) {
+            Recipe selectedRecipe = getSelectedRecipe();
+            if (selectedRecipe != null &&
+                    selectedRecipe.getName().equals(recipe.getName())) {
                 JLabel currentLabel = new JLabel("(Current)");
                 currentLabel.setForeground(new Color(0, 128, 0));
                 headerPanel.add(currentLabel, BorderLayout.EAST);
@@ -138,9 +153,9 @@ public class FactoryInventoryPanel extends JPanel {
             // Select button
             JButton selectButton = new JButton("Select Recipe");
             selectButton.addActionListener(e -> {
-                factory.setRecipe(recipe);
                 dialog.dispose();
-                updateRecipeDisplay();
+                game.submitAction(g -> g.configureMachine(position, recipe))
+                        .thenRunAsync(this::updateRecipeDisplay, SwingUtilities::invokeLater);
             });
             recipePanel.add(selectButton, BorderLayout.SOUTH);
 
@@ -168,7 +183,7 @@ public class FactoryInventoryPanel extends JPanel {
         recipePanel.add(recipeHeaderPanel, BorderLayout.NORTH);
 
         // Update recipe info
-        Recipe currentRecipe = factory.getSelectedRecipe();
+        Recipe currentRecipe = getSelectedRecipe();
         if (currentRecipe != null) {
             JTextArea recipeInfo = new JTextArea();
             recipeInfo.setEditable(false);
@@ -186,8 +201,9 @@ public class FactoryInventoryPanel extends JPanel {
         inventoryPanel.removeAll();
 
         // Add inventory items
+        MachineView factory = getFactory();
         for (ResourceType type : ResourceType.values()) {
-            int count = factory.getInventory().getResourceCount(type);
+            int count = factory != null ? factory.getResourceCount(type) : 0;
             if (count > 0) {
                 JPanel itemPanel = new JPanel(new BorderLayout());
                 itemPanel.add(new JLabel(type.toString() + ": " + count), BorderLayout.WEST);
@@ -206,48 +222,68 @@ public class FactoryInventoryPanel extends JPanel {
 
     private void showTransferDialog() {
         Window owner = SwingUtilities.getWindowAncestor(this);
-        TransferDialog dialog = new TransferDialog(owner, factory, playerInventory);
+        TransferDialog dialog = new TransferDialog(owner, game, position);
         dialog.setVisible(true);
         updateInventoryDisplay();
     }
 
     private void collectResource(ResourceType type) {
-        int amount = factory.getInventory().getResourceCount(type);
-        if (amount > 0 && playerInventory.hasSpace(amount)) {
-            factory.getInventory().removeResource(type, amount);
-            playerInventory.addResource(type, amount);
-            updateInventoryDisplay();
-            controlPanel.updateInventoryDisplay(playerInventory.getInventoryDisplay());
-        } else {
-            JOptionPane.showMessageDialog(this,
-                    "Not enough space in your inventory!",
-                    "Transfer Failed",
-                    JOptionPane.WARNING_MESSAGE);
-        }
+        int x = position.getX();
+        int y = position.getY();
+        game.submit(g -> {
+            Machine factory = g.getMachineManager().getMachineAt(x, y);
+            Inventory playerInventory = g.getPlayer().getInventory();
+            int amount = factory != null ? factory.getInventory().getResourceCount(type) : 0;
+            if (amount > 0 && playerInventory.hasSpace(amount)) {
+                factory.getInventory().removeResource(type, amount);
+                playerInventory.addResource(type, amount);
+                return true;
+            }
+            return false;
+        }).thenAcceptAsync(collected -> {
+            if (collected) {
+                updateInventoryDisplay();
+                controlPanel.updateInventoryDisplay(game.getSnapshot().getInventoryDisplay());
+            } else {
+                JOptionPane.showMessageDialog(this,
+                        "Not enough space in your inventory!",
+                        "Transfer Failed",
+                        JOptionPane.WARNING_MESSAGE);
+            }
+        }, SwingUtilities::invokeLater);
     }
 
     private void collectAllResources() {
-        boolean collected = false;
-        for (ResourceType type : ResourceType.values()) {
-            int amount = factory.getInventory().getResourceCount(type);
-            if (amount > 0) {
-                if (playerInventory.hasSpace(amount)) {
+        int x = position.getX();
+        int y = position.getY();
+        // Completes with whether everything fit
+        game.submit(g -> {
+            Machine factory = g.getMachineManager().getMachineAt(x, y);
+            Inventory playerInventory = g.getPlayer().getInventory();
+            if (factory == null) {
+                return true;
+            }
+            for (ResourceType type : ResourceType.values()) {
+                int amount = factory.getInventory().getResourceCount(type);
+                if (amount > 0) {
+                    if (!playerInventory.hasSpace(amount)) {
+                        return false;
+                    }
                     factory.getInventory().removeResource(type, amount);
                     playerInventory.addResource(type, amount);
-                    collected = true;
-                } else {
-                    JOptionPane.showMessageDialog(this,
-                            "Not enough space to collect all resources!",
-                            "Collection Incomplete",
-                            JOptionPane.WARNING_MESSAGE);
-                    break;
                 }
             }
-        }
-        if (collected) {
+            return true;
+        }).thenAcceptAsync(complete -> {
+            if (!complete) {
+                JOptionPane.showMessageDialog(this,
+                        "Not enough space to collect all resources!",
+                        "Collection Incomplete",
+                        JOptionPane.WARNING_MESSAGE);
+            }
             updateInventoryDisplay();
-            controlPanel.updateInventoryDisplay(playerInventory.getInventoryDisplay());
-        }
+            controlPanel.updateInventoryDisplay(game.getSnapshot().getInventoryDisplay());
+        }, SwingUtilities::invokeLater);
     }
 
     private void setupUpdateTimer() {
@@ -3,118 +3,97 @@ package com.resourcegame.ui;
 import com.resourcegame.utils.*;
 import com.resourcegame.core.Game;
 import com.resourcegame.core.GameMap;
+import com.resourcegame.core.RegionLoader;
 import com.resourcegame.core.Tile;
 import com.resourcegame.entities.*;
-import com.resourcegame.systems.Market;
-import com.resourcegame.systems.Recipe;
 
 import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
 
 public class GameState {
+    public static final String SAVE_FILE = "gamestate.sav";
+    public static final String LEGACY_SAVE_FILE = "gamestate.txt";
     private static final String DELIMITER = ",";
+    private static final int PRELOAD_RADIUS = 128; // Tiles around the player decoded right after a load
 
     public static void saveGame(Game game, String filename) throws IOException {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(filename))) {
-            // Save map dimensions first
-            GameMap gameMap = game.getMap();
-            writer.println("MAP_DIMENSIONS");
-            writer.println(gameMap.getWidth() + DELIMITER + gameMap.getHeight());
-
-            // Save map tiles
-            writer.println("MAP_TILES");
-            for (int y = 0; y < gameMap.getHeight(); y++) {
-                for (int x = 0; x < gameMap.getWidth(); x++) {
-                    Position pos = new Position(x, y);
-                    Tile tile = gameMap.getTile(pos);
-                    writer.println(tile.getType() + DELIMITER +
-                            (tile.hasResource() ? tile.getResource().getType() : "NONE"));
-                }
-            }
-
-            // Save player data
-            Player player = game.getPlayer();
-            writer.println("PLAYER");
-            writer.println(player.getPosition().getX() + DELIMITER + player.getPosition().getY());
+        BinaryGameState.save(game, filename);
+    }
 
-            // Save inventory
-            writer.println("INVENTORY");
-            Inventory inv = player.getInventory();
-            writer.println(inv.getMoney());
-            for (ResourceType type : ResourceType.values()) {
-                int count = inv.getResourceCount(type);
-                if (count > 0) {
-                    writer.println(type + DELIMITER + count);
-                }
-            }
+    private static Tile parseMapTile(String line) {
+        String[] parts = line.split(DELIMITER);
+        Tile tile = new Tile(TileType.valueOf(parts[0]));
+        if (!parts[1].equals("NONE")) {
+            tile.setResource(new Resource(ResourceType.valueOf(parts[1])));
+        }
+        return tile;
+    }
 
-            // Save machines
-            writer.println("MACHINES");
-            for (Machine machine : game.getMachineManager().getAllMachines()) {
-                Position pos = machine.getPosition();
-                writer.println(machine.getType() + DELIMITER +
-                        pos.getX() + DELIMITER +
-                        pos.getY());
+    // Builds a game straight from a save: the map is created empty at the saved size,
+    // without running world generation first
+    public static Game loadNewGame(String filename) throws IOException {
+        if (BinaryGameState.isBinarySave(filename)) {
+            BinaryGameState.LoadedSave save = BinaryGameState.read(filename);
+            Game game = new Game(save.getMap());
+            save.apply(game);
+            SaveJournal.replay(game, filename, save.getSaveId());
+            preloadAroundPlayer(game);
+            return game;
+        }
 
-                // Save machine-specific data
-                if (machine instanceof Harvester) {
-                    Harvester harvester = (Harvester) machine;
-                    ResourceType target = harvester.getTargetResource();
-                    writer.println("HARVESTER_CONFIG" + DELIMITER +
-                            (target != null ? target.toString() : "NONE"));
-                } else if (machine instanceof Factory) {
-                    Factory factory = (Factory) machine;
-                    Recipe recipe = factory.getSelectedRecipe();
-                    writer.println("FACTORY_CONFIG" + DELIMITER +
-                            (recipe != null ? recipe.getName() : "NONE"));
-                }
+        int[] dimensions = readTextDimensions(filename);
+        Game game = new Game(new GameMap(dimensions[0], dimensions[1], null));
+        loadTextGame(game, filename);
+        return game;
+    }
 
-                // Save machine inventory
-                Inventory machineInv = machine.getInventory();
-                for (ResourceType type : ResourceType.values()) {
-                    int count = machineInv.getResourceCount(type);
-                    if (count > 0) {
-                        writer.println("MACHINE_INV" + DELIMITER +
-                                type + DELIMITER + count);
-                    }
-                }
-                writer.println("END_MACHINE");
-            }
+    // Binary saves page regions in lazily; decode the ones around the player in parallel now
+    // rather than one by one on the EDT during the first frames
+    private static void preloadAroundPlayer(Game game) {
+        Position player = game.getPlayer().getPosition();
+        game.getMap().preloadRegions(player.getX() - PRELOAD_RADIUS, player.getY() - PRELOAD_RADIUS,
+                2 * PRELOAD_RADIUS + 1, 2 * PRELOAD_RADIUS + 1);
+    }
 
-            // Save unplaced machines in inventory
-            writer.println("UNPLACED_MACHINES");
-            for (MachineType type : MachineType.values()) {
-                int count = player.getInventory().getUnplacedMachineCount(type);
-                if (count > 0) {
-                    writer.println(type + DELIMITER + count);
-                }
+    private static int[] readTextDimensions(String filename) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
+            String line = reader.readLine();
+            String dimensions = reader.readLine();
+            if (!"MAP_DIMENSIONS".equals(line) || dimensions == null) {
+                throw new IOException("Save file does not start with map dimensions");
             }
-
-            // Save market data
-            writer.println("MARKET");
-            Market market = game.getMarket();
-            for (ResourceType type : ResourceType.values()) {
-                writer.println(type + DELIMITER +
-                        market.getStock(type) + DELIMITER +
-                        market.getBuyPrice(type) + DELIMITER +
-                        market.getSellPrice(type));
+            String[] parts = dimensions.split(DELIMITER);
+            try {
+                return new int[] { Integer.parseInt(parts[0]), Integer.parseInt(parts[1]) };
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                throw new IOException("Invalid map dimensions: " + dimensions);
             }
         }
     }
 
-
-    private static void loadMapTile(GameMap gameMap, String[] parts, int x, int y) {
-        TileType tileType = TileType.valueOf(parts[0]);
-        ResourceType resourceType = parts[1].equals("NONE") ? null : ResourceType.valueOf(parts[1]);
-        gameMap.loadTile(x, y, tileType, resourceType);
+    public static void loadGame(Game game, String filename) throws IOException {
+        if (BinaryGameState.isBinarySave(filename)) {
+            long saveId = BinaryGameState.load(game, filename);
+            SaveJournal.replay(game, filename, saveId);
+            preloadAroundPlayer(game);
+        } else {
+            loadTextGame(game, filename);
+        }
     }
 
-    public static void loadGame(Game game, String filename) throws IOException {
+    // The read loop only sorts lines into sections. Tile lines and machine blocks are
+    // parsed afterwards on the fork-join pool, then the machines are attached to the
+    // new map in one single-threaded pass.
+    private static void loadTextGame(Game game, String filename) throws IOException {
+        String[] tileLines = new String[0];
+        List<List<String>> machineBlocks = new ArrayList<>();
+        int mapWidth = 0, mapHeight = 0;
+
         try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
             String line;
             String section = "";
-            Machine currentMachine = null;
-            GameMap gameMap = game.getMap(); // Use existing map
-            int mapWidth = 0, mapHeight = 0;
+            List<String> currentMachine = null;
             int currentRow = 0;
 
             while ((line = reader.readLine()) != null) {
@@ -127,29 +106,20 @@ public class GameState {
                     continue;
                 }
 
+                if (section.equals("MAP_TILES")) {
+                    if (currentRow < tileLines.length) {
+                        tileLines[currentRow++] = line;
+                    }
+                    continue;
+                }
+
                 String[] parts = line.split(DELIMITER);
 
                 switch (section) {
                     case "MAP_DIMENSIONS":
                         mapWidth = Integer.parseInt(parts[0]);
                         mapHeight = Integer.parseInt(parts[1]);
-                        if (game.getMap() == null || 
-                            game.getMap().getWidth() != mapWidth || 
-                            game.getMap().getHeight() != mapHeight) {
-                            gameMap = new GameMap(mapWidth, mapHeight);
-                            game.setMap(gameMap);
-                        } else {
-                            gameMap.clear(); // Clear existing map before loading
-                        }
-                        break;
-
-                    case "MAP_TILES":
-                        if (currentRow < mapHeight * mapWidth) {
-                            int x = currentRow % mapWidth;
-                            int y = currentRow / mapWidth;
-                            loadMapTile(gameMap, parts, x, y);
-                            currentRow++;
-                        }
+                        tileLines = new String[mapWidth * mapHeight];
                         break;
 
                     case "PLAYER":
@@ -174,33 +144,16 @@ public class GameState {
                     case "MACHINES":
                         if (line.equals("END_MACHINE")) {
                             currentMachine = null;
-                        } else if (line.startsWith("HARVESTER_CONFIG")) {
-                            if (currentMachine instanceof Harvester && !parts[1].equals("NONE")) {
-                                ((Harvester) currentMachine).setTargetResource(ResourceType.valueOf(parts[1]));
-                            }
-                        } else if (line.startsWith("FACTORY_CONFIG")) {
-                            if (currentMachine instanceof Factory && !parts[1].equals("NONE")) {
-                                Recipe recipe = findRecipe(game, parts[1]);
-                                if (recipe != null) {
-                                    ((Factory) currentMachine).setRecipe(recipe);
-                                }
-                            }
-                        } else if (line.startsWith("MACHINE_INV")) {
+                        } else if (line.startsWith("HARVESTER_CONFIG") || line.startsWith("FACTORY_CONFIG")
+                                || line.startsWith("MACHINE_INV")) {
                             if (currentMachine != null) {
-                                ResourceType type = ResourceType.valueOf(parts[1]);
-                                int count = Integer.parseInt(parts[2]);
-                                currentMachine.getInventory().addResource(type, count);
+                                currentMachine.add(line);
                             }
                         } else {
                             // New machine entry
-                            MachineType type = MachineType.valueOf(parts[0]);
-                            int x = Integer.parseInt(parts[1]);
-                            int y = Integer.parseInt(parts[2]);
-                            Position pos = new Position(x, y);
-                            currentMachine = game.getMachineManager().createMachine(type, pos);
-                            if (currentMachine != null) {
-                                gameMap.getTile(pos).setMachine(currentMachine);
-                            }
+                            currentMachine = new ArrayList<>();
+                            currentMachine.add(line);
+                            machineBlocks.add(currentMachine);
                         }
                         break;
 
@@ -218,67 +171,73 @@ public class GameState {
                 }
             }
         }
-    }
 
-    private static void handlePlayerLoad(Game game, String[] parts) {
-        int x = Integer.parseInt(parts[0]);
-        int y = Integer.parseInt(parts[1]);
-        game.getPlayer().setPosition(new Position(x, y));
+        // Every tile was read, so start from an empty map rather than generating a world
+        // and clearing it; all regions are decoded up front, in parallel
+        GameMap gameMap = new GameMap(mapWidth, mapHeight, new TextTileLoader(tileLines, mapWidth));
+        gameMap.preloadRegions(0, 0, mapWidth, mapHeight);
+        game.setMap(gameMap);
+
+        BinaryGameState.MachineRecord[] machines = machineBlocks.parallelStream()
+                .map(GameState::parseMachineBlock)
+                .toArray(BinaryGameState.MachineRecord[]::new);
+        for (BinaryGameState.MachineRecord machine : machines) {
+            machine.create(game);
+        }
     }
 
-    private static void handleInventoryLoad(Game game, String[] parts, String line) {
-        try {
-            int money = Integer.parseInt(line);
-            game.getPlayer().getInventory().addMoney(money - 100); // Adjust for starting money
-        } catch (NumberFormatException e) {
-            ResourceType type = ResourceType.valueOf(parts[0]);
-            int count = Integer.parseInt(parts[1]);
-            game.getPlayer().getInventory().addResource(type, count);
+    // One machine line followed by its config and MACHINE_INV lines
+    private static BinaryGameState.MachineRecord parseMachineBlock(List<String> block) {
+        String[] header = block.get(0).split(DELIMITER);
+        MachineType type = MachineType.valueOf(header[0]);
+        int x = Integer.parseInt(header[1]);
+        int y = Integer.parseInt(header[2]);
+        ResourceType target = null;
+        String recipeName = "";
+        int[] inventory = new int[ResourceType.values().length];
+
+        for (int i = 1; i < block.size(); i++) {
+            String line = block.get(i);
+            String[] parts = line.split(DELIMITER);
+            if (line.startsWith("HARVESTER_CONFIG")) {
+                if (type.toString().contains("HARVESTER") && !parts[1].equals("NONE")) {
+                    target = ResourceType.valueOf(parts[1]);
+                }
+            } else if (line.startsWith("FACTORY_CONFIG")) {
+                if (type.toString().contains("FACTORY") && !parts[1].equals("NONE")) {
+                    recipeName = parts[1];
+                }
+            } else {
+                inventory[ResourceType.valueOf(parts[1]).ordinal()] += Integer.parseInt(parts[2]);
+            }
         }
+        // Text saves keep no counters; a configured machine has used one configuration
+        int timesConfigured = target != null || !recipeName.isEmpty() ? 1 : 0;
+        return new BinaryGameState.MachineRecord(type, x, y, target, recipeName, timesConfigured, 0, false, inventory);
     }
 
-    private static Machine handleMachineLoad(Game game, String[] parts, String line, Machine currentMachine) {
-        if (line.equals("END_MACHINE")) {
-            return null;
+    // Serves regions from the MAP_TILES lines of a text save, one line per tile in row order
+    private static class TextTileLoader implements RegionLoader {
+        private final String[] lines;
+        private final int width;
+
+        TextTileLoader(String[] lines, int width) {
+            this.lines = lines;
+            this.width = width;
         }
 
-        if (line.startsWith("HARVESTER_CONFIG")) {
-            if (currentMachine instanceof Harvester && !parts[1].equals("NONE")) {
-                ((Harvester) currentMachine).setTargetResource(ResourceType.valueOf(parts[1]));
-            }
-        } else if (line.startsWith("FACTORY_CONFIG")) {
-            if (currentMachine instanceof Factory && !parts[1].equals("NONE")) {
-                Recipe recipe = findRecipe(game, parts[1]);
-                if (recipe != null) {
-                    ((Factory) currentMachine).setRecipe(recipe);
+        @Override
+        public void loadRegion(int regionX, int regionY, int regionWidth, int regionHeight, Tile[] tiles) {
+            int x0 = regionX * GameMap.REGION_SIZE;
+            int y0 = regionY * GameMap.REGION_SIZE;
+            for (int y = 0; y < regionHeight; y++) {
+                for (int x = 0; x < regionWidth; x++) {
+                    String line = lines[(y0 + y) * width + x0 + x];
+                    if (line != null) {
+                        tiles[y * GameMap.REGION_SIZE + x] = parseMapTile(line);
+                    }
                 }
             }
-        } else if (line.startsWith("MACHINE_INV")) {
-            if (currentMachine != null) {
-                ResourceType type = ResourceType.valueOf(parts[1]);
-                int count = Integer.parseInt(parts[2]);
-                currentMachine.getInventory().addResource(type, count);
-            }
-        } else {
-            MachineType type = MachineType.valueOf(parts[0]);
-            int x = Integer.parseInt(parts[1]);
-            int y = Integer.parseInt(parts[2]);
-            Position pos = new Position(x, y);
-            return game.getMachineManager().createMachine(type, pos);
         }
-
-        return currentMachine;
-    }
-
-    private static void handleMarketLoad(Game game, String[] parts) {
-        // Market state is handled internally by the Market class
-        // Add implementation if needed
-    }
-
-    private static Recipe findRecipe(Game game, String recipeName) {
-        return game.getCraftingSystem().getAllRecipes().stream()
-                .filter(r -> r.getName().equals(recipeName))
-                .findFirst()
-                .orElse(null);
     }
 }
@@ -1,29 +1,43 @@
 package com.resourcegame.ui;
 
 import com.resourcegame.core.Game;
+import com.resourcegame.core.GameEvent;
+import com.resourcegame.core.GameLoop;
 import com.resourcegame.core.GameSettings;
+import com.resourcegame.core.WorldSnapshot;
 import com.resourcegame.utils.Direction;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
-import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletionException;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 
 public class GameUI extends JFrame implements GameUIListener {
     private Game game;
     private MapPanel mapPanel;
+    private MinimapPanel minimapPanel;
+    private JPanel sidePanel;
     private ControlPanel controlPanel;
-    private Timer gameTimer;
+    private GameLoop gameLoop;
     private Timer autosaveTimer;
+    private Timer journalTimer;
+    private final SaveJournal saveJournal = new SaveJournal(GameState.SAVE_FILE);
 
     public GameUI() {
-        this.game = new Game();
+        this(new Game());
+    }
+
+    // Wraps an already built game, e.g. one restored by GameState.loadNewGame
+    public GameUI(Game game) {
+        this.game = game;
         this.game.addUIListener(this); // Register for game updates
+        this.game.publishSnapshot(); // Loaded machines and inventory are not in the last snapshot yet
         initializeUI();
         setupControls();
-        setupGameTimer();
+        setupGameLoop();
         setupAutosaveTimer();
     }
 
@@ -38,12 +52,25 @@ public class GameUI extends JFrame implements GameUIListener {
         game.setControlPanel(controlPanel);
 
         add(mapPanel, BorderLayout.CENTER);
-        add(controlPanel, BorderLayout.EAST);
+        sidePanel = new JPanel(new BorderLayout());
+        sidePanel.add(minimapPanel, BorderLayout.NORTH);
+        sidePanel.add(controlPanel, BorderLayout.CENTER);
+        add(sidePanel, BorderLayout.EAST);
 
         addWindowListener(new WindowAdapter() {
             @Override
             public void windowClosing(WindowEvent e) {
-                saveGameState("gamestate.txt");
+                // The process exits right after this, so wait for the final save to land.
+                // With the loop stopped nothing else touches the world.
+                gameLoop.stop();
+                try {
+                    saveJournal.compact(game).join();
+                } catch (CompletionException ex) {
+                    JOptionPane.showMessageDialog(GameUI.this,
+                            "Failed to save game: " + ex.getCause().getMessage(),
+                            "Save Error",
+                            JOptionPane.ERROR_MESSAGE);
+                }
             }
         });
 
@@ -59,87 +86,90 @@ public class GameUI extends JFrame implements GameUIListener {
             public void keyPressed(KeyEvent e) {
                 switch (e.getKeyCode()) {
                     case KeyEvent.VK_UP:
-                        game.movePlayer(Direction.UP);
+                        game.submitAction(g -> g.movePlayer(Direction.UP));
                         break;
                     case KeyEvent.VK_DOWN:
-                        game.movePlayer(Direction.DOWN);
+                        game.submitAction(g -> g.movePlayer(Direction.DOWN));
                         break;
                     case KeyEvent.VK_LEFT:
-                        game.movePlayer(Direction.LEFT);
+                        game.submitAction(g -> g.movePlayer(Direction.LEFT));
                         break;
                     case KeyEvent.VK_RIGHT:
-                        game.movePlayer(Direction.RIGHT);
+                        game.submitAction(g -> g.movePlayer(Direction.RIGHT));
+                        break;
+                    case KeyEvent.VK_EQUALS:
+                    case KeyEvent.VK_ADD:
+                        mapPanel.zoomIn();
+                        break;
+                    case KeyEvent.VK_MINUS:
+                    case KeyEvent.VK_SUBTRACT:
+                        mapPanel.zoomOut();
                         break;
                     case KeyEvent.VK_SPACE:
-                        // Try to interact with adjacent machine first
-                        if (!game.interactWithAdjacent()) {
-                            // If no machine interaction, try harvesting
-                            game.attemptHarvest();
-                        }
+                        game.submitAction(g -> {
+                            // Try to interact with adjacent machine first
+                            if (!g.interactWithAdjacent()) {
+                                // If no machine interaction, try harvesting
+                                g.attemptHarvest();
+                            }
+                        });
                         break;
                 }
             }
         });
     }
 
-    private void setupGameTimer() {
-        gameTimer = new Timer(100, e -> game.update()); // Update every 100ms
-        gameTimer.start();
-    }
-
-    public void saveGameState(String filename) {
-        try {
-            GameState.saveGame(game, filename);
-        } catch (IOException e) {
-            JOptionPane.showMessageDialog(this,
-                    "Failed to save game: " + e.getMessage(),
-                    "Save Error",
-                    JOptionPane.ERROR_MESSAGE);
-        }
+    private void setupGameLoop() {
+        gameLoop = new GameLoop(game);
+        gameLoop.start();
     }
 
     private void createMapPanel() {
         mapPanel = new MapPanel(game.getMap(), game);
-        game.addUIListener(this); // Ensure UI listener is registered
-    }
-
-    public void loadGameState(String filename) {
-        try {
-            GameState.loadGame(game, filename);
-            
-            // Recreate UI components
-            remove(mapPanel); // Remove old map panel
-            createMapPanel(); // Create new map panel
-            add(mapPanel, BorderLayout.CENTER);
-            
-            // Update control panel
-            if (controlPanel != null) {
-                controlPanel.updateInventoryDisplay(game.getPlayer().getInventory().getInventoryDisplay());
-                controlPanel.updateMarketButton(
-                    game.getPlayer().getPosition().isAdjacent(game.getMap().getMarketPosition())
-                );
-            }
-            
-            // Force a complete UI refresh
-            revalidate();
-            repaint();
-            requestFocus(); // Ensure keyboard focus is restored
-
-            // Trigger an immediate UI update
-            onGameUpdate();
-            
-        } catch (IOException e) {
-            JOptionPane.showMessageDialog(this,
-                    "Failed to load game: " + e.getMessage(),
-                    "Load Error",
-                    JOptionPane.ERROR_MESSAGE);
+        if (sidePanel != null) {
+            sidePanel.remove(minimapPanel);
         }
+        minimapPanel = new MinimapPanel(game, mapPanel);
+        if (sidePanel != null) {
+            sidePanel.add(minimapPanel, BorderLayout.NORTH);
+        }
+        game.addUIListener(this); // Ensure UI listener is registered
     }
 
+    // Small journal flushes every few seconds, a full compacted save every few minutes
     private void setupAutosaveTimer() {
         int interval = GameSettings.getInstance().getAutosaveInterval();
-        autosaveTimer = new Timer(interval * 60 * 1000, e -> saveGameState("gamestate.txt"));
+        autosaveTimer = new Timer(interval * 60 * 1000, e -> compactSave());
         autosaveTimer.start();
+
+        int journalInterval = GameSettings.getInstance().getJournalInterval();
+        journalTimer = new Timer(journalInterval * 1000, e -> flushJournal());
+        journalTimer.start();
+    }
+
+    // Both are captured by a command on the simulation thread, so each save is a consistent cut
+    // of the world; the writing happens on the autosave I/O thread
+    private void flushJournal() {
+        game.submit(saveJournal::flush)
+                .thenCompose(write -> write)
+                .whenComplete((bytes, error) -> reportSaveError(error));
+    }
+
+    private void compactSave() {
+        game.submit(saveJournal::compact)
+                .thenCompose(write -> write)
+                .whenComplete((bytes, error) -> reportSaveError(error));
+    }
+
+    private void reportSaveError(Throwable error) {
+        if (error == null) {
+            return;
+        }
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(this,
+                "Failed to save game: " + cause.getMessage(),
+                "Save Error",
+                JOptionPane.ERROR_MESSAGE));
     }
 
     public void updateAutosaveInterval(int minutes) {
@@ -150,26 +180,58 @@ public class GameUI extends JFrame implements GameUIListener {
         }
     }
 
+    // Each part of the UI only updates for the kinds of change it shows. The map gets the
+    // tile events and repaints just those tiles.
     @Override
-    public void onGameUpdate() {
-        // Update UI components when game state changes
+    public void onGameEvents(WorldSnapshot snapshot, List<GameEvent> events) {
+        boolean reset = false;
+        boolean playerMoved = false;
+        boolean playerInventoryChanged = false;
+        for (GameEvent event : events) {
+            if (event instanceof GameEvent.WorldReset) {
+                reset = true;
+            } else if (event instanceof GameEvent.PlayerMoved) {
+                playerMoved = true;
+            } else if (event instanceof GameEvent.InventoryChanged && ((GameEvent.InventoryChanged) event).isPlayer()) {
+                playerInventoryChanged = true;
+            }
+        }
+
         if (mapPanel != null) {
-            mapPanel.updatePlayerPosition(game.getPlayer().getPosition());
+            if (playerMoved || reset) {
+                mapPanel.updatePlayerPosition(snapshot.getPlayerPosition());
+            }
+            mapPanel.onGameEvents(snapshot, events);
+        }
+        if (minimapPanel != null) {
+            minimapPanel.onSnapshot(snapshot);
         }
         if (controlPanel != null) {
-            controlPanel.updateInventoryDisplay(game.getPlayer().getInventory().getInventoryDisplay());
+            if (playerInventoryChanged || reset) {
+                controlPanel.updateInventoryDisplay(snapshot.getInventoryDisplay());
+            }
+            if (playerMoved || reset) {
+                controlPanel.updateMarketButton(
+                        snapshot.getPlayerPosition().isAdjacent(game.getMap().getMarketPosition()));
+                if (snapshot.getSelectedTile() == null) {
+                    controlPanel.updateHarvestButton(false);
+                }
+            }
         }
-        repaint();
     }
 
     @Override
     public void dispose() {
-        if (gameTimer != null) {
-            gameTimer.stop();
+        if (gameLoop != null) {
+            gameLoop.stop();
         }
         if (autosaveTimer != null) {
             autosaveTimer.stop();
         }
+        if (journalTimer != null) {
+            journalTimer.stop();
+        }
+        saveJournal.shutdown();
         super.dispose();
     }
 
@@ -1,5 +1,11 @@
 package com.resourcegame.ui;
 
+import com.resourcegame.core.GameEvent;
+import com.resourcegame.core.WorldSnapshot;
+
+import java.util.List;
+
 public interface GameUIListener {
-    void onGameUpdate();
-}
\ No newline at end of file
+    // Called on the EDT with the snapshot the events lead up to; never with an empty list
+    void onGameEvents(WorldSnapshot snapshot, List<GameEvent> events);
+}
@@ -1,6 +1,9 @@
 package com.resourcegame.ui;
 
 import com.resourcegame.core.Game;
+import com.resourcegame.core.GameEvent;
+import com.resourcegame.core.WorldSnapshot;
+import com.resourcegame.core.WorldSnapshot.MachineView;
 import com.resourcegame.entities.*;
 import com.resourcegame.systems.*;
 import com.resourcegame.utils.*;
@@ -8,18 +11,28 @@ import javax.swing.*;
 import javax.swing.Timer;
 import javax.swing.border.*;
 import javax.swing.event.*;
+import javax.swing.table.DefaultTableCellRenderer;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.util.*;
 import java.util.List;
+import java.util.function.Consumer;
 
 public class MachineManagementPanel extends JPanel {
     private final Game game;
     private final ControlPanel controlPanel;
     private Timer updateTimer;
     private static final int UPDATE_INTERVAL = 1000;
-    private JPanel machineListPanel;
-    private JPanel unplacedMachinesPanel;
+    private final MachineTableModel machineModel = new MachineTableModel();
+    private final GameUIListener eventListener = this::onGameEvents;
+    private JTable machineTable;
+    private JButton maintainButton;
+    private JButton configureButton;
+    private JButton transferButton;
+    private JButton collectButton;
+    private DefaultListModel<MachineType> unplacedModel;
+    private JList<MachineType> unplacedList;
+    private JButton placeButton;
     private JPanel statsPanel;
     private JTabbedPane tabbedPane;
     private JLabel totalMachinesLabel;
@@ -27,6 +40,9 @@ public class MachineManagementPanel extends JPanel {
     private JTextField searchField;
     private MachineStatistics statistics;
     private String currentSearchTerm = "";
+    private long shownSequence = -1;
+    private int reloadGeneration;
+    private List<Position> changedDuringReload; // Non-null while a reload is in flight
 
 
     public MachineManagementPanel(Game game, ControlPanel controlPanel) {
@@ -36,6 +52,9 @@ public class MachineManagementPanel extends JPanel {
         setLayout(new BorderLayout(10, 10));
         setBorder(new EmptyBorder(10, 10, 10, 10));
         initializeComponents();
+        game.addUIListener(eventListener);
+        reloadMachines();
+        updateUnplacedList(game.getSnapshot());
         setupUpdateTimer();
     }
     private void initializeComponents() {
@@ -65,38 +84,106 @@ public class MachineManagementPanel extends JPanel {
         setMinimumSize(new Dimension(800, 600));
     }
 
-    private void updateMachineList() {
-        machineListPanel.removeAll();
-        unplacedMachinesPanel.removeAll();
-            
-        // Add placed machines to Active Machines tab
-        List<Machine> placedMachines = game.getMachineManager().getAllMachines();
-        for (Machine machine : placedMachines) {
-            if (matchesSearch(machine) && matchesFilter(machine)) {
-                machineListPanel.add(createMachinePanel(machine));
-                machineListPanel.add(Box.createVerticalStrut(10));
-            }
+    // Rows change one machine at a time; a reset or a new filter rebuilds the lists
+    private void onGameEvents(WorldSnapshot snapshot, List<GameEvent> events) {
+        if (snapshot.getSequence() <= shownSequence) {
+            return; // Already reloaded from a newer snapshot
         }
-        
-        // Add unplaced machines to Available Machines tab
-        Map<MachineType, Integer> unplacedMachines = game.getPlayer().getInventory().getUnplacedMachines();
-        for (Map.Entry<MachineType, Integer> entry : unplacedMachines.entrySet()) {
-            for (int i = 0; i < entry.getValue(); i++) {
-                Machine tempMachine = entry.getKey().toString().contains("HARVESTER") ?
-                    new Harvester(new Position(-1, -1), entry.getKey()) :
-                    new Factory(new Position(-1, -1), entry.getKey());
-                
-                if (matchesSearch(tempMachine) && matchesFilter(tempMachine)) {
-                    unplacedMachinesPanel.add(createMachinePanel(tempMachine));
-                    unplacedMachinesPanel.add(Box.createVerticalStrut(10));
+        boolean unplacedChanged = false;
+        for (GameEvent event : events) {
+            if (event instanceof GameEvent.WorldReset) {
+                reloadMachines();
+                updateUnplacedList(snapshot);
+                return;
+            } else if (event instanceof GameEvent.MachineStatusChanged) {
+                GameEvent.MachineStatusChanged change = (GameEvent.MachineStatusChanged) event;
+                if (changedDuringReload != null) {
+                    changedDuringReload.add(change.getPosition());
+                } else {
+                    machineModel.machineChanged(change.getPosition(), change.getMachine());
                 }
+            } else if (event instanceof GameEvent.InventoryChanged) {
+                GameEvent.InventoryChanged change = (GameEvent.InventoryChanged) event;
+                unplacedChanged |= change.isPlayer() && change.isUnplacedMachinesChanged();
             }
         }
-    
-        machineListPanel.revalidate();
-        machineListPanel.repaint();
-        unplacedMachinesPanel.revalidate();
-        unplacedMachinesPanel.repaint();
+        if (changedDuringReload == null) {
+            shownSequence = snapshot.getSequence();
+        }
+        if (unplacedChanged) {
+            updateUnplacedList(snapshot);
+        }
+        updateActionButtons();
+    }
+
+    // The filter runs as a query against the machine manager's indexes on the simulation
+    // thread. Machines that change before the result arrives are checked again afterwards.
+    private void reloadMachines() {
+        MachineQuery query = filterQuery();
+        int generation = ++reloadGeneration;
+        changedDuringReload = new ArrayList<>();
+        game.submit(g -> new QueryResult(g.getSnapshot().getSequence(), g.getMachineManager().query(query)))
+                .thenAcceptAsync(result -> {
+                    if (generation != reloadGeneration) {
+                        return; // A newer filter is on its way
+                    }
+                    WorldSnapshot snapshot = game.getSnapshot();
+                    List<MachineView> machines = new ArrayList<>(result.positions.size());
+                    for (Position position : result.positions) {
+                        MachineView machine = snapshot.getMachineAt(position.getX(), position.getY());
+                        if (machine != null) {
+                            machines.add(machine);
+                        }
+                    }
+                    machineModel.setFilter(machine -> matchesSearch(machine) && matchesFilter(machine), machines);
+                    for (Position position : changedDuringReload) {
+                        machineModel.machineChanged(position, snapshot.getMachineAt(position.getX(), position.getY()));
+                    }
+                    changedDuringReload = null;
+                    // Later changes are applied on top; the snapshot already shows the earlier ones
+                    shownSequence = result.sequence;
+                    updateActionButtons();
+                }, SwingUtilities::invokeLater);
+    }
+
+    private MachineQuery filterQuery() {
+        MachineQuery query = new MachineQuery();
+        String filter = (String) filterComboBox.getSelectedItem();
+        if ("Harvesters".equals(filter)) {
+            query.harvesters();
+        } else if ("Factories".equals(filter)) {
+            query.factories();
+        } else if ("Needs Maintenance".equals(filter)) {
+            query.needingMaintenance();
+        } else if ("Working".equals(filter)) {
+            query.withStatus(MachineStatus.WORKING);
+        }
+        return query;
+    }
+
+    // Result of a filter query: positions, since the machines themselves stay on the simulation thread
+    private static class QueryResult {
+        final long sequence;
+        final List<Position> positions = new ArrayList<>();
+
+        QueryResult(long sequence, List<Machine> machines) {
+            this.sequence = sequence;
+            for (Machine machine : machines) {
+                positions.add(machine.getPosition());
+            }
+        }
+    }
+
+    private void updateUnplacedList(WorldSnapshot snapshot) {
+        MachineType selected = unplacedList.getSelectedValue();
+        unplacedModel.clear();
+        for (MachineType type : MachineType.values()) {
+            if (snapshot.getUnplacedMachineCount(type) > 0 && matchesSearch(type) && matchesFilter(type)) {
+                unplacedModel.addElement(type);
+            }
+        }
+        unplacedList.setSelectedValue(selected, false);
+        placeButton.setEnabled(unplacedList.getSelectedValue() != null);
     }
 
     private JPanel createHeaderPanel() {
@@ -130,7 +217,10 @@ public class MachineManagementPanel extends JPanel {
                 "Needs Maintenance", "Working"
         });
         filterComboBox.setPreferredSize(new Dimension(150, 25));
-        filterComboBox.addActionListener(e -> updateMachineList());
+        filterComboBox.addActionListener(e -> {
+            reloadMachines();
+            updateUnplacedList(game.getSnapshot());
+        });
 
         // Search Panel with better layout
         JPanel searchPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
@@ -187,48 +277,60 @@ public class MachineManagementPanel extends JPanel {
         JButton collectAllButton = new JButton("Collect All Resources");
         collectAllButton.addActionListener(e -> performBulkCollection());
 
+        JButton targetAllButton = new JButton("Set Harvester Targets");
+        targetAllButton.addActionListener(e -> performBulkTargeting());
+
+        JButton recipeAllButton = new JButton("Set Factory Recipes");
+        recipeAllButton.addActionListener(e -> performBulkRecipe());
+
         actionsPanel.add(maintainAllButton);
         actionsPanel.add(collectAllButton);
+        actionsPanel.add(targetAllButton);
+        actionsPanel.add(recipeAllButton);
 
         panel.add(actionsPanel, BorderLayout.CENTER);
         return panel;
     }
 
-    private void handleMaintenance(Machine machine) {
-        int cost = calculateMaintenanceCost(machine);
+    // Machine actions run as game commands against the machine on the card's tile; the
+    // dialogs and statistics are handled back on the EDT once the result is published
+    private void handleMaintenance(MachineView view) {
+        int cost = Machine.getMaintenanceCost(view.getType(), view.getOperationsSinceMaintenance());
         int response = JOptionPane.showConfirmDialog(
                 this,
                 String.format("Maintenance cost: $%d\nProceed with maintenance?", cost),
                 "Confirm Maintenance",
                 JOptionPane.YES_NO_OPTION);
 
-        if (response == JOptionPane.YES_OPTION) {
-            if (game.getPlayer().getInventory().getMoney() >= cost) {
-                game.getPlayer().getInventory().removeMoney(cost);
-                machine.performMaintenance();
-                updateMachineList();
-                controlPanel.updateMoneyDisplay(game.getPlayer().getInventory().getMoney());
+        if (response != JOptionPane.YES_OPTION) {
+            return;
+        }
+
+        // Same path as bulk maintenance, so the machine is priced and charged as it is now
+        MachineQuery query = new MachineQuery().inArea(view.getX(), view.getY(), 1, 1);
+        game.submit(g -> g.getMachineManager().maintain(query, g.getPlayer().getInventory()))
+                .thenAcceptAsync(result -> {
+            controlPanel.updateMoneyDisplay(game.getSnapshot().getMoney());
+            if (!result.isSuccess()) {
+                JOptionPane.showMessageDialog(
+                        this,
+                        "Insufficient funds for maintenance!",
+                        "Maintenance Error",
+                        JOptionPane.ERROR_MESSAGE);
+            } else if (result.getAffected() == 0) {
                 JOptionPane.showMessageDialog(
                         this,
-                        "Maintenance completed successfully!",
+                        "This machine no longer needs maintenance.",
                         "Maintenance",
                         JOptionPane.INFORMATION_MESSAGE);
             } else {
                 JOptionPane.showMessageDialog(
                         this,
-                        "Insufficient funds for maintenance!",
-                        "Maintenance Error",
-                        JOptionPane.ERROR_MESSAGE);
+                        String.format("Maintenance completed successfully for $%d!", result.getCost()),
+                        "Maintenance",
+                        JOptionPane.INFORMATION_MESSAGE);
             }
-        }
-    }
-
-    private int calculateMaintenanceCost(Machine machine) {
-        // Base cost is 10% of machine's original price
-        int baseCost = (int) (machine.getType().getBasePrice() * 0.1);
-        // Add additional cost based on operations since last maintenance
-        int operationsCost = machine.getOperationsSinceMaintenance() * 2;
-        return baseCost + operationsCost;
+        }, SwingUtilities::invokeLater);
     }
 
     private JPanel createStatCard(String title, String value, String unit) {
@@ -264,122 +366,171 @@ public class MachineManagementPanel extends JPanel {
     }
 
     private JPanel createActiveMachinesPanel() {
-        JPanel panel = new JPanel(new BorderLayout());
-        machineListPanel = new JPanel();
-        machineListPanel.setLayout(new BoxLayout(machineListPanel, BoxLayout.Y_AXIS));
-        JScrollPane scrollPane = new JScrollPane(machineListPanel);
+        JPanel panel = new JPanel(new BorderLayout(5, 5));
+        machineTable = new JTable(machineModel);
+        machineTable.setAutoCreateRowSorter(true);
+        machineTable.setFillsViewportHeight(true);
+        machineTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        machineTable.getColumnModel().getColumn(MachineTableModel.STATUS_COLUMN).setCellRenderer(new DefaultTableCellRenderer() {
+            @Override
+            public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
+                                                           boolean hasFocus, int row, int column) {
+                super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+                if (!isSelected) {
+                    MachineView machine = machineModel.getMachine(table.convertRowIndexToModel(row));
+                    setForeground(getStatusColor(machine.getStatus()));
+                }
+                return this;
+            }
+        });
+        machineTable.getSelectionModel().addListSelectionListener(e -> updateActionButtons());
+        JScrollPane scrollPane = new JScrollPane(machineTable);
         scrollPane.setBorder(null);
-        scrollPane.getVerticalScrollBar().setUnitIncrement(16);
         panel.add(scrollPane, BorderLayout.CENTER);
+
+        // Actions work on the selected row
+        JPanel buttonsPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        maintainButton = new JButton("Maintain");
+        maintainButton.addActionListener(e -> withSelectedMachine(this::handleMaintenance));
+        configureButton = new JButton("Configure");
+        configureButton.addActionListener(e -> withSelectedMachine(machine -> {
+            if (machine.isHarvester()) {
+                showTargetDialog(this, machine);
+            } else {
+                showRecipeDialog(this, machine);
+            }
+        }));
+        transferButton = new JButton("Transfer Resources");
+        transferButton.addActionListener(e -> withSelectedMachine(machine -> showTransferDialog(this, machine)));
+        collectButton = new JButton("Collect Resources");
+        collectButton.addActionListener(e -> withSelectedMachine(this::handleResourceCollection));
+        buttonsPanel.add(maintainButton);
+        buttonsPanel.add(configureButton);
+        buttonsPanel.add(transferButton);
+        buttonsPanel.add(collectButton);
+        panel.add(buttonsPanel, BorderLayout.SOUTH);
         return panel;
     }
 
     private JPanel createAvailableMachinesPanel() {
-        JPanel panel = new JPanel(new BorderLayout());
-        unplacedMachinesPanel = new JPanel();
-        unplacedMachinesPanel.setLayout(new BoxLayout(unplacedMachinesPanel, BoxLayout.Y_AXIS));
-        JScrollPane scrollPane = new JScrollPane(unplacedMachinesPanel);
+        JPanel panel = new JPanel(new BorderLayout(5, 5));
+        unplacedModel = new DefaultListModel<>();
+        unplacedList = new JList<>(unplacedModel);
+        unplacedList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        unplacedList.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                                                          boolean isSelected, boolean cellHasFocus) {
+                super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
+                MachineType type = (MachineType) value;
+                setText(String.format("%s - %d available", MachineTableModel.formatMachineName(type),
+                        game.getSnapshot().getUnplacedMachineCount(type)));
+                return this;
+            }
+        });
+        unplacedList.addListSelectionListener(e -> placeButton.setEnabled(unplacedList.getSelectedValue() != null));
+        JScrollPane scrollPane = new JScrollPane(unplacedList);
         scrollPane.setBorder(null);
-        scrollPane.getVerticalScrollBar().setUnitIncrement(16);
         panel.add(scrollPane, BorderLayout.CENTER);
+
+        JPanel buttonsPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        placeButton = new JButton("Place Machine");
+        placeButton.setBackground(new Color(46, 204, 113));
+        placeButton.setForeground(Color.WHITE);
+        placeButton.setEnabled(false);
+        placeButton.addActionListener(e -> {
+            MachineType type = unplacedList.getSelectedValue();
+            if (type != null) {
+                placeMachine(type);
+            }
+        });
+        buttonsPanel.add(placeButton);
+        panel.add(buttonsPanel, BorderLayout.SOUTH);
         return panel;
     }
 
-    private String formatMachineName(Machine machine) {
-        if (machine instanceof Harvester) {
-            return "Harvester" + (machine.getType().toString().contains("ADVANCED") ? " (Advanced)"
-                    : machine.getType().toString().contains("FRAGILE") ? " (Fragile)" : " (Basic)");
-        } else if (machine instanceof Factory) {
-            return "Factory" + (machine.getType().toString().contains("ADVANCED") ? " (Advanced)"
-                    : machine.getType().toString().contains("FRAGILE") ? " (Fragile)" : " (Basic)");
+    private MachineView getSelectedMachine() {
+        int row = machineTable.getSelectedRow();
+        return row < 0 ? null : machineModel.getMachine(machineTable.convertRowIndexToModel(row));
+    }
+
+    private void withSelectedMachine(Consumer<MachineView> action) {
+        MachineView machine = getSelectedMachine();
+        if (machine != null) {
+            action.accept(machine);
         }
-        return "Unknown Machine";
     }
 
-    private void addHarvesterControls(JPanel panel, Harvester harvester) {
-        JButton configButton = new JButton("Set Resource Target");
-        configButton.setEnabled(harvester.canBeReconfigured());
-        configButton.addActionListener(e -> {
-            Window parentWindow = SwingUtilities.getWindowAncestor(panel);
-            JDialog dialog;
+    private void updateActionButtons() {
+        MachineView machine = getSelectedMachine();
+        maintainButton.setEnabled(machine != null && machine.getType().isFragile() && machine.needsMaintenance());
+        configureButton.setEnabled(machine != null && machine.canBeReconfigured());
+        configureButton.setText(machine != null && machine.isHarvester() ? "Set Resource Target" : "Set Recipe");
+        transferButton.setEnabled(machine != null && machine.isFactory());
+        collectButton.setEnabled(machine != null && machine.getInventoryItems() > 0);
+    }
 
-            if (parentWindow instanceof Frame) {
-                dialog = new JDialog((Frame) parentWindow, "Select Resource", true);
-            } else if (parentWindow instanceof Dialog) {
-                dialog = new JDialog((Dialog) parentWindow, "Select Resource", true);
-            } else {
-                dialog = new JDialog();
-                dialog.setTitle("Select Resource");
-                dialog.setModal(true);
-            }
+    private void showTargetDialog(Component parent, MachineView harvester) {
+        Window parentWindow = SwingUtilities.getWindowAncestor(parent);
+        JDialog dialog;
 
-            JPanel resourcePanel = new JPanel();
-            resourcePanel.setLayout(new BoxLayout(resourcePanel, BoxLayout.Y_AXIS));
+        if (parentWindow instanceof Frame) {
+            dialog = new JDialog((Frame) parentWindow, "Select Resource", true);
+        } else if (parentWindow instanceof Dialog) {
+            dialog = new JDialog((Dialog) parentWindow, "Select Resource", true);
+        } else {
+            dialog = new JDialog();
+            dialog.setTitle("Select Resource");
+            dialog.setModal(true);
+        }
 
-            for (ResourceType type : ResourceType.values()) {
-                if (type.getBaseHarvestTime() > 0) {
-                    JButton resourceButton = new JButton(type.toString());
-                    if (type == harvester.getTargetResource()) {
-                        resourceButton.setBackground(new Color(200, 255, 200));
-                    }
-                    resourceButton.addActionListener(event -> {
-                        harvester.setTargetResource(type);
-                        dialog.dispose();
-                        updateMachineList();
-                    });
-                    resourcePanel.add(resourceButton);
-                    resourcePanel.add(Box.createVerticalStrut(5));
+        JPanel resourcePanel = new JPanel();
+        resourcePanel.setLayout(new BoxLayout(resourcePanel, BoxLayout.Y_AXIS));
+
+        for (ResourceType type : ResourceType.values()) {
+            if (type.getBaseHarvestTime() > 0) {
+                JButton resourceButton = new JButton(type.toString());
+                if (type == harvester.getTargetResource()) {
+                    resourceButton.setBackground(new Color(200, 255, 200));
                 }
+                resourceButton.addActionListener(event -> {
+                    int x = harvester.getX();
+                    int y = harvester.getY();
+                    game.submitAction(g -> {
+                        Machine machine = g.getMachineManager().getMachineAt(x, y);
+                        if (machine instanceof Harvester) {
+                            ((Harvester) machine).setTargetResource(type);
+                        }
+                    });
+                    dialog.dispose();
+                });
+                resourcePanel.add(resourceButton);
+                resourcePanel.add(Box.createVerticalStrut(5));
             }
+        }
 
-            dialog.add(resourcePanel);
-            dialog.pack();
-            dialog.setLocationRelativeTo(panel);
-            dialog.setVisible(true);
-        });
-
-        panel.add(configButton);
+        dialog.add(resourcePanel);
+        dialog.pack();
+        dialog.setLocationRelativeTo(parent);
+        dialog.setVisible(true);
     }
 
-    private void addFactoryControls(JPanel panel, Factory factory) {
-        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
-
-        JButton configButton = new JButton("Set Recipe");
-        configButton.setEnabled(factory.canBeReconfigured());
-        configButton.addActionListener(e -> showRecipeDialog(panel, factory));
-
-        JButton transferButton = new JButton("Transfer Resources");
-        transferButton.addActionListener(e -> showTransferDialog(panel, factory));
-
-        buttonPanel.add(configButton);
-        buttonPanel.add(transferButton);
-        panel.add(buttonPanel);
-    }
+    private void placeMachine(MachineType type) {
+        // Close the management panel
+        Window window = SwingUtilities.getWindowAncestor(this);
+        if (window instanceof JDialog) {
+            window.dispose();
+        }
 
+        // Remove the machine from inventory before placement
+        game.submitAction(g -> g.getPlayer().getInventory().removeMachine(type));
 
-    private void addPlaceMachineButton(JPanel buttonsPanel, Machine machine) {
-        JButton placeButton = new JButton("Place Machine");
-        placeButton.setBackground(new Color(46, 204, 113));
-        placeButton.setForeground(Color.WHITE);
-        placeButton.addActionListener(e -> {
-            // Close the management panel
-            Window window = SwingUtilities.getWindowAncestor(this);
-            if (window instanceof JDialog) {
-                window.dispose();
-            }
-            
-            // Remove the machine from inventory before placement
-            game.getPlayer().getInventory().removeMachine(machine.getType());
-            
-            // Start placement process
-            controlPanel.startMachinePlacement(machine.getType());
-        });
-        buttonsPanel.add(placeButton);
+        // Start placement process
+        controlPanel.startMachinePlacement(type);
     }
 
-
-    private void showRecipeDialog(JPanel panel, Factory factory) {
-        Window parentWindow = SwingUtilities.getWindowAncestor(panel);
+    private void showRecipeDialog(Component parent, MachineView factory) {
+        Window parentWindow = SwingUtilities.getWindowAncestor(parent);
         JDialog dialog;
 
         if (parentWindow instanceof Frame) {
@@ -401,13 +552,19 @@ public class MachineManagementPanel extends JPanel {
 
             // Recipe name and selection button
             JButton recipeButton = new JButton(recipe.getName());
-            if (recipe.equals(factory.getSelectedRecipe())) {
+            if (recipe.getName().equals(factory.getRecipeName())) {
                 recipeButton.setBackground(new Color(200, 255, 200));
             }
             recipeButton.addActionListener(event -> {
-                factory.setRecipe(recipe);
+                int x = factory.getX();
+                int y = factory.getY();
+                game.submitAction(g -> {
+                    Machine machine = g.getMachineManager().getMachineAt(x, y);
+                    if (machine instanceof Factory) {
+                        ((Factory) machine).setRecipe(recipe);
+                    }
+                });
                 dialog.dispose();
-                updateMachineList();
             });
             recipeItemPanel.add(recipeButton, BorderLayout.NORTH);
 
@@ -439,12 +596,12 @@ public class MachineManagementPanel extends JPanel {
         scrollPane.setPreferredSize(new Dimension(400, Math.min(500, recipePanel.getPreferredSize().height)));
         dialog.add(scrollPane);
         dialog.pack();
-        dialog.setLocationRelativeTo(panel);
+        dialog.setLocationRelativeTo(parent);
         dialog.setVisible(true);
     }
 
-    private void showTransferDialog(JPanel panel, Factory factory) {
-        Window parentWindow = SwingUtilities.getWindowAncestor(panel);
+    private void showTransferDialog(Component parent, MachineView factory) {
+        Window parentWindow = SwingUtilities.getWindowAncestor(parent);
         JDialog dialog;
 
         if (parentWindow instanceof Frame) {
@@ -461,10 +618,11 @@ public class MachineManagementPanel extends JPanel {
         mainPanel.setLayout(new BoxLayout(mainPanel, BoxLayout.Y_AXIS));
         mainPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
 
-        if (factory.getSelectedRecipe() == null) {
+        Recipe recipe = game.getCraftingSystem().getRecipe(factory.getRecipeName());
+        if (recipe == null) {
             mainPanel.add(new JLabel("Please set a recipe first!"));
         } else {
-            Recipe recipe = factory.getSelectedRecipe();
+            WorldSnapshot snapshot = game.getSnapshot();
 
             // Recipe info panel
             JPanel recipeInfoPanel = new JPanel(new BorderLayout());
@@ -476,8 +634,8 @@ public class MachineManagementPanel extends JPanel {
             for (Map.Entry<ResourceType, Integer> ingredient : recipe.getIngredients().entrySet()) {
                 ResourceType type = ingredient.getKey();
                 int required = ingredient.getValue();
-                int inFactory = factory.getInventory().getResourceCount(type);
-                int inPlayer = game.getPlayer().getInventory().getResourceCount(type);
+                int inFactory = factory.getResourceCount(type);
+                int inPlayer = snapshot.getResourceCount(type);
 
                 JPanel resourcePanel = new JPanel(new BorderLayout(5, 0));
                 resourcePanel.setBorder(BorderFactory.createEmptyBorder(5, 0, 5, 0));
@@ -505,14 +663,15 @@ public class MachineManagementPanel extends JPanel {
                     JButton transferBtn = new JButton("Transfer");
                     transferBtn.addActionListener(e -> {
                         int amount = (Integer) amountSpinner.getValue();
-                        game.getPlayer().getInventory().removeResource(type, amount);
-                        factory.getInventory().addResource(type, amount);
+                        int x = factory.getX();
+                        int y = factory.getY();
+                        game.submitAction(g -> {
+                            Machine machine = g.getMachineManager().getMachineAt(x, y);
+                            if (machine != null && g.getPlayer().getInventory().removeResource(type, amount)) {
+                                machine.getInventory().addResource(type, amount);
+                            }
+                        });
                         dialog.dispose();
-
-                        // Update displays
-                        controlPanel.updateInventoryDisplay(
-                                game.getPlayer().getInventory().getInventoryDisplay());
-                        updateMachineList();
                     });
 
                     transferPanel.add(amountSpinner);
@@ -529,12 +688,12 @@ public class MachineManagementPanel extends JPanel {
         dialog.add(scrollPane);
 
         dialog.pack();
-        dialog.setLocationRelativeTo(panel);
+        dialog.setLocationRelativeTo(parent);
         dialog.setVisible(true);
     }
 
-    private void handleResourceCollection(Machine machine) {
-        if (machine.getInventory().getTotalItems() == 0) {
+    private void handleResourceCollection(MachineView view) {
+        if (view.getInventoryItems() == 0) {
             JOptionPane.showMessageDialog(this,
                     "No resources to collect!",
                     "Empty Inventory",
@@ -542,138 +701,73 @@ public class MachineManagementPanel extends JPanel {
             return;
         }
 
-        // Transfer all resources from machine to player
-        boolean collectedAny = false;
-        StringBuilder collectionReport = new StringBuilder("Collected:\n");
-
-        for (ResourceType type : ResourceType.values()) {
-            int amount = machine.getInventory().getResourceCount(type);
-            if (amount > 0) {
-                if (game.getPlayer().getInventory().hasSpace(amount)) {
+        int x = view.getX();
+        int y = view.getY();
+        game.submit(g -> {
+            // Transfer all resources from machine to player, stopping at the first that doesn't fit
+            CollectionResult collection = new CollectionResult();
+            Machine machine = g.getMachineManager().getMachineAt(x, y);
+            if (machine == null) {
+                return collection;
+            }
+            Inventory playerInventory = g.getPlayer().getInventory();
+            for (ResourceType type : ResourceType.values()) {
+                int amount = machine.getInventory().getResourceCount(type);
+                if (amount > 0) {
+                    if (!playerInventory.hasSpace(amount)) {
+                        collection.inventoryFull = true;
+                        break;
+                    }
                     machine.getInventory().removeResource(type, amount);
-                    game.getPlayer().getInventory().addResource(type, amount);
-                    statistics.recordResourceCollection(type, amount);
-                    collectionReport.append(String.format("%s: %d\n", type, amount));
-                    collectedAny = true;
-                } else {
-                    JOptionPane.showMessageDialog(this,
-                            "Not enough space in player inventory!",
-                            "Inventory Full",
-                            JOptionPane.WARNING_MESSAGE);
-                    break;
+                    playerInventory.addResource(type, amount);
+                    collection.collected.put(type, amount);
                 }
             }
-        }
-
-        if (collectedAny) {
-            JOptionPane.showMessageDialog(this,
-                    collectionReport.toString(),
-                    "Collection Complete",
-                    JOptionPane.INFORMATION_MESSAGE);
-        }
-
-        // Update UI
-        controlPanel.updateInventoryDisplay(game.getPlayer().getInventory().getInventoryDisplay());
-        updateMachineList();
-    }
-
-    private JPanel createMachinePanel(Machine machine) {
-        JPanel panel = new JPanel();
-        panel.setLayout(new BorderLayout(5, 5));
-        panel.setBorder(BorderFactory.createCompoundBorder(
-                BorderFactory.createLineBorder(getStatusColor(machine.getStatus())),
-                new EmptyBorder(5, 5, 5, 5)));
-
-        // Header Panel with type, location, and config info
-        JPanel headerPanel = new JPanel(new BorderLayout());
-        String machineTitle = String.format("%s at %s",
-                formatMachineName(machine),
-                machine.getPosition().toString());
-        JLabel nameLabel = new JLabel(machineTitle);
-        headerPanel.add(nameLabel, BorderLayout.WEST);
-
-        // Configuration limit info
-        if (machine.getType().getConfigurationLimit() > 0) {
-            JLabel configLabel = new JLabel(String.format("Configs left: %d",
-                    machine.getRemainingConfigurations()));
-            configLabel.setForeground(machine.getRemainingConfigurations() > 0 ? new Color(0, 100, 0) : Color.RED);
-            headerPanel.add(configLabel, BorderLayout.EAST);
-        }
-
-        panel.add(headerPanel, BorderLayout.NORTH);
-
-        // Status Panel
-        JPanel statusPanel = new JPanel(new BorderLayout());
-        JLabel statusLabel = new JLabel(machine.getStatusMessage());
-        statusLabel.setForeground(getStatusColor(machine.getStatus()));
-        statusPanel.add(statusLabel, BorderLayout.WEST);
-
-        // Maintenance Info for fragile machines
-        if (machine.getType().isFragile()) {
-            JPanel maintenancePanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
-            int threshold = Machine.getMaintenanceThreshold(machine.getType());
-            JLabel opsLabel = new JLabel(String.format("Operations: %d/%d",
-                    machine.getOperationsSinceMaintenance(),
-                    threshold));
-
-            JButton maintainButton = new JButton("Maintain");
-            maintainButton.setEnabled(machine.needsMaintenance());
-            maintainButton.addActionListener(e -> handleMaintenance(machine));
-
-            if (machine.needsMaintenance()) {
-                opsLabel.setForeground(Color.RED);
-                maintainButton.setBackground(new Color(255, 99, 71));
-                maintainButton.setForeground(Color.WHITE);
-            } else if (machine.getOperationsSinceMaintenance() > threshold * 0.7) {
-                opsLabel.setForeground(new Color(255, 140, 0));
+            return collection;
+        }).thenAcceptAsync(collection -> {
+            if (collection.inventoryFull) {
+                JOptionPane.showMessageDialog(this,
+                        "Not enough space in player inventory!",
+                        "Inventory Full",
+                        JOptionPane.WARNING_MESSAGE);
+            }
+            if (!collection.collected.isEmpty()) {
+                JOptionPane.showMessageDialog(this,
+                        recordCollection(collection.collected),
+                        "Collection Complete",
+                        JOptionPane.INFORMATION_MESSAGE);
             }
 
-            maintenancePanel.add(opsLabel);
-            maintenancePanel.add(maintainButton);
-            statusPanel.add(maintenancePanel, BorderLayout.EAST);
-        }
-
-        panel.add(statusPanel, BorderLayout.CENTER);
-
-        // Controls Panel
-        JPanel controlsPanel = new JPanel(new BorderLayout());
-        JPanel buttonsPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        }, SwingUtilities::invokeLater);
+    }
 
-        // Add Place Machine button for unplaced machines
-       if (machine.getPosition().getX() == -1) {
-        addPlaceMachineButton(buttonsPanel, machine);
-    } else {
-        if (machine instanceof Harvester) {
-            addHarvesterControls(buttonsPanel, (Harvester) machine);
-        } else if (machine instanceof Factory) {
-            addFactoryControls(buttonsPanel, (Factory) machine);
+    private String recordCollection(Map<ResourceType, Integer> collected) {
+        StringBuilder collectionReport = new StringBuilder("Collected:\n");
+        for (Map.Entry<ResourceType, Integer> entry : collected.entrySet()) {
+            statistics.recordResourceCollection(entry.getKey(), entry.getValue());
+            collectionReport.append(String.format("%s: %d\n", entry.getKey(), entry.getValue()));
         }
-
-        JButton collectButton = new JButton("Collect Resources");
-        collectButton.setEnabled(machine.getInventory().getTotalItems() > 0);
-        collectButton.addActionListener(e -> handleResourceCollection(machine));
-        buttonsPanel.add(collectButton);
+        return collectionReport.toString();
     }
 
-        controlsPanel.add(buttonsPanel, BorderLayout.EAST);
-        panel.add(controlsPanel, BorderLayout.SOUTH);
-
-        return panel;
+    // Result of a collection command: what moved into the player's inventory
+    private static class CollectionResult {
+        final Map<ResourceType, Integer> collected = new EnumMap<>(ResourceType.class);
+        boolean inventoryFull;
     }
 
     private void performBulkMaintenance() {
-        List<Machine> machines = game.getMachineManager().getAllMachines();
         int totalCost = 0;
-        List<Machine> needMaintenance = new ArrayList<>();
+        int needMaintenance = 0;
 
-        for (Machine machine : machines) {
+        for (MachineView machine : game.getSnapshot().getMachines()) {
             if (machine.needsMaintenance()) {
-                totalCost += calculateMaintenanceCost(machine);
-                needMaintenance.add(machine);
+                totalCost += Machine.getMaintenanceCost(machine.getType(), machine.getOperationsSinceMaintenance());
+                needMaintenance++;
             }
         }
 
-        if (needMaintenance.isEmpty()) {
+        if (needMaintenance == 0) {
             JOptionPane.showMessageDialog(this,
                     "No machines need maintenance!",
                     "Bulk Maintenance",
@@ -683,25 +777,22 @@ public class MachineManagementPanel extends JPanel {
 
         int response = JOptionPane.showConfirmDialog(this,
                 String.format("Maintain %d machines for $%d?",
-                        needMaintenance.size(), totalCost),
+                        needMaintenance, totalCost),
                 "Confirm Bulk Maintenance",
                 JOptionPane.YES_NO_OPTION);
 
-        if (response == JOptionPane.YES_OPTION) {
-            if (game.getPlayer().getInventory().getMoney() >= totalCost) {
-                game.getPlayer().getInventory().removeMoney(totalCost);
-
-                for (Machine machine : needMaintenance) {
-                    machine.performMaintenance();
-                }
+        if (response != JOptionPane.YES_OPTION) {
+            return;
+        }
 
-                updateMachineList();
-                controlPanel.updateMoneyDisplay(
-                        game.getPlayer().getInventory().getMoney());
+        // The fleet may have changed since the snapshot, so the manager prices it again
+        game.submit(g -> g.getMachineManager().maintain(new MachineQuery(), g.getPlayer().getInventory()))
+                .thenAcceptAsync(result -> {
+            controlPanel.updateMoneyDisplay(game.getSnapshot().getMoney());
 
+            if (result.isSuccess()) {
                 JOptionPane.showMessageDialog(this,
-                        String.format("Successfully maintained %d machines!",
-                                needMaintenance.size()),
+                        String.format("Successfully maintained %d machines!", result.getAffected()),
                         "Bulk Maintenance",
                         JOptionPane.INFORMATION_MESSAGE);
             } else {
@@ -710,27 +801,11 @@ public class MachineManagementPanel extends JPanel {
                         "Maintenance Error",
                         JOptionPane.ERROR_MESSAGE);
             }
-        }
+        }, SwingUtilities::invokeLater);
     }
 
     private void performBulkCollection() {
-        List<Machine> machines = game.getMachineManager().getAllMachines();
-        Map<ResourceType, Integer> totalResources = new HashMap<>();
-        int totalItems = 0;
-
-        // Calculate total resources to collect
-        for (Machine machine : machines) {
-            Inventory machineInv = machine.getInventory();
-            for (ResourceType type : ResourceType.values()) {
-                int amount = machineInv.getResourceCount(type);
-                if (amount > 0) {
-                    totalResources.merge(type, amount, Integer::sum);
-                    totalItems += amount;
-                }
-            }
-        }
-
-        if (totalItems == 0) {
+        if (game.getSnapshot().getMachines().stream().allMatch(machine -> machine.getInventoryItems() == 0)) {
             JOptionPane.showMessageDialog(this,
                     "No resources to collect!",
                     "Bulk Collection",
@@ -738,67 +813,115 @@ public class MachineManagementPanel extends JPanel {
             return;
         }
 
-        // Check player inventory space
-        if (!game.getPlayer().getInventory().hasSpace(totalItems)) {
+        game.submit(g -> g.getMachineManager().collect(new MachineQuery(), g.getPlayer().getInventory()))
+                .thenAcceptAsync(result -> {
+            if (!result.isSuccess()) {
+                JOptionPane.showMessageDialog(this,
+                        "Not enough inventory space to collect all resources!",
+                        "Collection Error",
+                        JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+
             JOptionPane.showMessageDialog(this,
-                    "Not enough inventory space to collect all resources!",
-                    "Collection Error",
-                    JOptionPane.ERROR_MESSAGE);
+                    recordCollection(result.getMoved()),
+                    "Collection Complete",
+                    JOptionPane.INFORMATION_MESSAGE);
+        }, SwingUtilities::invokeLater);
+    }
+
+    // Points every harvester that still has configurations left at one resource
+    private void performBulkTargeting() {
+        List<ResourceType> harvestable = new ArrayList<>();
+        for (ResourceType type : ResourceType.values()) {
+            if (type.getBaseHarvestTime() > 0) {
+                harvestable.add(type);
+            }
+        }
+        ResourceType target = (ResourceType) JOptionPane.showInputDialog(this,
+                "Target resource for all harvesters:",
+                "Set Harvester Targets",
+                JOptionPane.QUESTION_MESSAGE,
+                null,
+                harvestable.toArray(),
+                harvestable.isEmpty() ? null : harvestable.get(0));
+        if (target == null) {
             return;
         }
 
-        // Perform collection
-        StringBuilder collectionReport = new StringBuilder("Collected:\n");
-        for (Machine machine : machines) {
-            Inventory machineInv = machine.getInventory();
-            for (ResourceType type : ResourceType.values()) {
-                int amount = machineInv.getResourceCount(type);
-                if (amount > 0) {
-                    machineInv.removeResource(type, amount);
-                    game.getPlayer().getInventory().addResource(type, amount);
-                    statistics.recordResourceCollection(type, amount);
-                    collectionReport.append(String.format("%s: %d\n", type, amount));
-                }
-            }
+        game.submit(g -> g.getMachineManager().setTarget(new MachineQuery(), target))
+                .thenAcceptAsync(result -> showReconfigured(result, "harvesters"), SwingUtilities::invokeLater);
+    }
+
+    private void performBulkRecipe() {
+        Object[] names = game.getCraftingSystem().getAllRecipes().stream().map(Recipe::getName).toArray();
+        String name = (String) JOptionPane.showInputDialog(this,
+                "Recipe for all factories:",
+                "Set Factory Recipes",
+                JOptionPane.QUESTION_MESSAGE,
+                null,
+                names,
+                names.length > 0 ? names[0] : null);
+        Recipe recipe = name != null ? game.getCraftingSystem().getRecipe(name) : null;
+        if (recipe == null) {
+            return;
         }
 
-        updateMachineList();
-        controlPanel.updateInventoryDisplay(
-                game.getPlayer().getInventory().getInventoryDisplay());
+        game.submit(g -> g.getMachineManager().setRecipe(new MachineQuery(), recipe))
+                .thenAcceptAsync(result -> showReconfigured(result, "factories"), SwingUtilities::invokeLater);
+    }
 
-        JOptionPane.showMessageDialog(this,
-                collectionReport.toString(),
-                "Collection Complete",
-                JOptionPane.INFORMATION_MESSAGE);
+    private void showReconfigured(BulkResult result, String machines) {
+        String message = String.format("Reconfigured %d of %d %s.", result.getAffected(), result.getMatched(), machines);
+        if (result.getAffected() < result.getMatched()) {
+            message += "\nThe rest already had it or have no configurations left.";
+        }
+        JOptionPane.showMessageDialog(this, message, "Bulk Configuration", JOptionPane.INFORMATION_MESSAGE);
     }
 
     private void updateSearch() {
         currentSearchTerm = searchField.getText().toLowerCase().trim();
-        updateMachineList();
+        reloadMachines();
+        updateUnplacedList(game.getSnapshot());
     }
 
-    private boolean matchesSearch(Machine machine) {
+    private boolean matchesSearch(MachineView machine) {
         if (currentSearchTerm.isEmpty())
             return true;
 
         String searchContent = String.format("%s %s %s",
-                formatMachineName(machine),
+                MachineTableModel.formatMachineName(machine),
                 machine.getPosition().toString(),
                 machine.getStatusMessage()).toLowerCase();
 
         return searchContent.contains(currentSearchTerm);
     }
 
-    private boolean matchesFilter(Machine machine) {
+    private boolean matchesSearch(MachineType type) {
+        return currentSearchTerm.isEmpty()
+                || MachineTableModel.formatMachineName(type).toLowerCase().contains(currentSearchTerm);
+    }
+
+    // Unplaced machines have no status, so only the type filters apply
+    private boolean matchesFilter(MachineType type) {
+        String filter = (String) filterComboBox.getSelectedItem();
+        if ("Harvesters".equals(filter))
+            return type.toString().contains("HARVESTER");
+        if ("Factories".equals(filter))
+            return type.toString().contains("FACTORY");
+        return filter == null || filter.equals("All Machines");
+    }
+
+    private boolean matchesFilter(MachineView machine) {
         String filter = (String) filterComboBox.getSelectedItem();
         if (filter == null || filter.equals("All Machines"))
             return true;
 
         switch (filter) {
             case "Harvesters":
-                return machine instanceof Harvester;
+                return machine.isHarvester();
             case "Factories":
-                return machine instanceof Factory;
+                return machine.isFactory();
             case "Needs Maintenance":
                 return machine.needsMaintenance();
             case "Working":
@@ -817,16 +940,14 @@ public class MachineManagementPanel extends JPanel {
                 String.valueOf(statistics.getTotalResourcesCollected()),
                 "items");
 
-        int activeMachines = (int) game.getMachineManager().getAllMachines()
-                .stream().filter(Machine::isWorking).count();
+        // Fleet counts are kept up to date by the machine manager, so reading them is O(1)
+        WorldSnapshot snapshot = game.getSnapshot();
         updateStatCard("Active Machines",
-                String.valueOf(activeMachines),
+                String.valueOf(snapshot.getMachineCount(MachineStatus.WORKING)),
                 "machines");
 
-        int maintenanceNeeded = (int) game.getMachineManager().getAllMachines()
-                .stream().filter(Machine::needsMaintenance).count();
         updateStatCard("Maintenance Required",
-                String.valueOf(maintenanceNeeded),
+                String.valueOf(snapshot.getMachinesNeedingMaintenance()),
                 "machines");
     }
 
@@ -873,7 +994,6 @@ public class MachineManagementPanel extends JPanel {
             updateTimer.stop();
         }
         updateTimer = new Timer(UPDATE_INTERVAL, e -> {
-            updateMachineList();
             updateStatistics();
             updateMachineStatistics();
         });
@@ -881,13 +1001,15 @@ public class MachineManagementPanel extends JPanel {
     }
 
     private void updateMachineStatistics() {
-        List<Machine> placedMachines = game.getMachineManager().getAllMachines();
-        Map<MachineType, Integer> unplacedMachines = game.getPlayer().getInventory().getUnplacedMachines();
+        WorldSnapshot snapshot = game.getSnapshot();
         
-        int totalPlaced = placedMachines.size();
-        int totalUnplaced = unplacedMachines.values().stream().mapToInt(Integer::intValue).sum();
-        int needsMaintenance = (int) placedMachines.stream().filter(Machine::needsMaintenance).count();
-        int working = (int) placedMachines.stream().filter(Machine::isWorking).count();
+        int totalPlaced = snapshot.getMachineCount();
+        int totalUnplaced = 0;
+        for (MachineType type : MachineType.values()) {
+            totalUnplaced += snapshot.getUnplacedMachineCount(type);
+        }
+        int needsMaintenance = snapshot.getMachinesNeedingMaintenance();
+        int working = snapshot.getMachineCount(MachineStatus.WORKING);
     
         totalMachinesLabel.setText(String.format(
             "Total Machines: %d | Working: %d | Needs Maintenance: %d | Available: %d",
@@ -895,6 +1017,7 @@ public class MachineManagementPanel extends JPanel {
     }
 
     public void destroy() {
+        game.removeUIListener(eventListener);
         if (updateTimer != null) {
             updateTimer.stop();
             updateTimer = null;
@@ -0,0 +1,131 @@
+package com.resourcegame.ui;
+
+import com.resourcegame.core.WorldSnapshot.MachineView;
+import com.resourcegame.entities.Machine;
+import com.resourcegame.utils.MachineType;
+import com.resourcegame.utils.Position;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+// Placed machines that pass the management panel's filter. The table only asks for the rows
+// it shows, and a changed machine updates just its own row.
+public class MachineTableModel extends AbstractTableModel {
+    private static final String[] COLUMNS = {
+            "Machine", "Position", "Status", "Target / Recipe", "Items", "Maintenance", "Configs Left"
+    };
+    public static final int STATUS_COLUMN = 2;
+
+    private final List<MachineView> rows = new ArrayList<>();
+    private final Map<Long, Integer> rowByTile = new HashMap<>();
+    private Predicate<MachineView> filter = machine -> true;
+
+    public void setFilter(Predicate<MachineView> filter, List<MachineView> machines) {
+        this.filter = filter;
+        reload(machines);
+    }
+
+    public void reload(List<MachineView> machines) {
+        rows.clear();
+        rowByTile.clear();
+        for (MachineView machine : machines) {
+            if (filter.test(machine)) {
+                rowByTile.put(Position.key(machine.getX(), machine.getY()), rows.size());
+                rows.add(machine);
+            }
+        }
+        fireTableDataChanged();
+    }
+
+    // The machine is null once removed. A change can also move it in or out of the filter.
+    public void machineChanged(Position position, MachineView machine) {
+        long key = Position.key(position.getX(), position.getY());
+        Integer row = rowByTile.get(key);
+        boolean matches = machine != null && filter.test(machine);
+        if (row != null && matches) {
+            rows.set(row, machine);
+            fireTableRowsUpdated(row, row);
+        } else if (row != null) {
+            rows.remove((int) row);
+            rowByTile.remove(key);
+            for (int i = row; i < rows.size(); i++) {
+                rowByTile.put(Position.key(rows.get(i).getX(), rows.get(i).getY()), i);
+            }
+            fireTableRowsDeleted(row, row);
+        } else if (matches) {
+            rowByTile.put(key, rows.size());
+            rows.add(machine);
+            fireTableRowsInserted(rows.size() - 1, rows.size() - 1);
+        }
+    }
+
+    public MachineView getMachine(int row) {
+        return rows.get(row);
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    // Text is only built for cells being painted
+    @Override
+    public Object getValueAt(int row, int column) {
+        MachineView machine = rows.get(row);
+        switch (column) {
+            case 0:
+                return formatMachineName(machine);
+            case 1:
+                return machine.getPosition().toString();
+            case 2:
+                return machine.getStatusMessage();
+            case 3:
+                if (machine.isHarvester()) {
+                    return machine.getTargetResource() != null ? machine.getTargetResource().toString() : "";
+                }
+                return machine.getRecipeName() != null ? machine.getRecipeName() : "";
+            case 4:
+                return machine.getInventoryItems() + "/" + machine.getInventoryCapacity();
+            case 5:
+                if (!machine.getType().isFragile()) {
+                    return "";
+                }
+                return machine.getOperationsSinceMaintenance() + "/" + Machine.getMaintenanceThreshold(machine.getType())
+                        + (machine.needsMaintenance() ? " (due)" : "");
+            case 6:
+                return machine.getType().getConfigurationLimit() > 0
+                        ? String.valueOf(machine.getRemainingConfigurations()) : "";
+            default:
+                return "";
+        }
+    }
+
+    static String formatMachineName(MachineView machine) {
+        return formatMachineName(machine.getType());
+    }
+
+    static String formatMachineName(MachineType type) {
+        String name = type.toString();
+        String grade = name.contains("ADVANCED") ? " (Advanced)" : name.contains("FRAGILE") ? " (Fragile)" : " (Basic)";
+        if (name.contains("HARVESTER")) {
+            return "Harvester" + grade;
+        } else if (name.contains("FACTORY")) {
+            return "Factory" + grade;
+        }
+        return "Unknown Machine";
+    }
+}
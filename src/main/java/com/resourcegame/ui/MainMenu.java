@@ -1,13 +1,12 @@
 package com.resourcegame.ui;
 
+import com.resourcegame.core.Game;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
 import java.io.*;
 
 public class MainMenu extends JFrame {
-    private static final String SAVE_FILE = "gamestate.txt";
-    
     public MainMenu() {
         setTitle("Resource Management Game");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
@@ -52,7 +51,11 @@ public class MainMenu extends JFrame {
     }
     
     private void loadGame() {
-        File saveFile = new File(SAVE_FILE);
+        // Fall back to a save written before the binary format existed
+        File saveFile = new File(GameState.SAVE_FILE);
+        if (!saveFile.exists()) {
+            saveFile = new File(GameState.LEGACY_SAVE_FILE);
+        }
         if (!saveFile.exists()) {
             JOptionPane.showMessageDialog(this, 
                 "No saved game found!", 
@@ -61,10 +64,20 @@ public class MainMenu extends JFrame {
             return;
         }
         
+        Game game;
+        try {
+            game = GameState.loadNewGame(saveFile.getPath());
+        } catch (IOException | RuntimeException e) {
+            JOptionPane.showMessageDialog(this,
+                "Failed to load game: " + e.getMessage(),
+                "Load Error",
+                JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
         dispose();
         SwingUtilities.invokeLater(() -> {
-            GameUI gameUI = new GameUI();
-            gameUI.loadGameState(SAVE_FILE);
+            GameUI gameUI = new GameUI(game);
             gameUI.setVisible(true);
         });
     }
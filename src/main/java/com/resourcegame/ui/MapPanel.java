@@ -1,120 +1,287 @@
 package com.resourcegame.ui;
 
 import com.resourcegame.core.Game;
+import com.resourcegame.core.GameEvent;
 import com.resourcegame.core.GameMap;
-import com.resourcegame.core.Tile;
+import com.resourcegame.core.WorldSnapshot;
+import com.resourcegame.core.WorldSnapshot.MachineView;
 import com.resourcegame.utils.TileType;
 import com.resourcegame.utils.Position;
 import com.resourcegame.utils.ResourceType;
-import com.resourcegame.entities.Factory;
-import com.resourcegame.entities.Harvester;
-import com.resourcegame.entities.Machine;
-import com.resourcegame.entities.Resource;
 import com.resourcegame.systems.Recipe;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 public class MapPanel extends JPanel {
-    private static final int TILE_SIZE = 40;
+    private static final int TILE_SIZE = SpriteAtlas.TILE_SIZE;
+    private static final SpriteAtlas SPRITES = SpriteAtlas.getInstance();
+    private static final Font MESSAGE_FONT = new Font("Arial", Font.BOLD, 14);
+    private static final Color MESSAGE_BACKGROUND = new Color(0, 0, 0, 180);
+    private static final Color GRID_COLOR = new Color(0, 0, 0, 50); // Semi-transparent black
+    private static final Color FILL_BAR_COLOR = new Color(255, 255, 255, 80);
+    private static final Color PROGRESS_BACKGROUND = new Color(0, 0, 0, 100);
+    private static final Color PROGRESS_COLOR = new Color(50, 205, 50);
+    private static final Color PLAYER_MARKER_COLOR = new Color(30, 144, 255);
     private GameMap gameMap;
-    private Position playerPosition;
     private Game game;
     private String statusMessage; // For displaying feedback
     private long statusMessageTime;
     private static final long MESSAGE_DURATION = 2000; // 2 seconds
+    private static final int CHUNK_TILES = 8;
+    private static final int MAX_CACHED_CHUNKS = 96;
+    private static final int VIEW_TILES = 20;   // Preferred view size, the map may be much larger
+    private static final int CAMERA_MARGIN = 3; // Tiles kept between the player and the view's edge
+    // Screen pixels per tile at each zoom level. Levels at or above DETAIL_PIXELS draw the
+    // sprites scaled down, smaller ones only draw colour blocks from the mipmap.
+    private static final double[] ZOOM_TILE_PIXELS = { TILE_SIZE, 20, 10, 4, 2, 1, 0.5, 0.25 };
+    private static final double DETAIL_PIXELS = 20;
+    private static final int[][] NEIGHBOURS = { { 0, -1 }, { 1, 0 }, { 0, 1 }, { -1, 0 } }; // Same as Position.isAdjacent
+
+    // Renders chunks in parallel; the EDT waits for them and then only copies images
+    private static final ForkJoinPool RENDER_POOL = new ForkJoinPool();
+
+    // Tiles are drawn once into a chunk image and only redrawn when the snapshot says they
+    // changed, so a frame is mostly image copies. Least recently drawn chunks are dropped first.
+    private final Map<Long, Chunk> chunks = new LinkedHashMap<Long, Chunk>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Chunk> eldest) {
+            return size() > maxCachedChunks;
+        }
+    };
+    private int maxCachedChunks = MAX_CACHED_CHUNKS;
+    private WorldSnapshot shownSnapshot; // The snapshot painted frames are drawn from
+    private final Timer statusMessageTimer;
+    // Top-left of the view in screen pixels at the current zoom
+    private int cameraX;
+    private int cameraY;
+    private int zoomLevel;
+    private double tilePixels = TILE_SIZE;
+    private final WorldMipmap mipmap;
 
     public MapPanel(GameMap gameMap, Game game) {
         this.gameMap = gameMap;
         this.game = game;
-        this.playerPosition = gameMap.getStartingPosition();
         this.statusMessage = null;
+        this.shownSnapshot = game.getSnapshot();
+        this.statusMessageTimer = new Timer((int) MESSAGE_DURATION, e -> repaint());
+        this.statusMessageTimer.setRepeats(false);
         setPreferredSize(new Dimension(
-                gameMap.getWidth() * TILE_SIZE,
-                gameMap.getHeight() * TILE_SIZE));
+                Math.min(gameMap.getWidth(), VIEW_TILES) * TILE_SIZE,
+                Math.min(gameMap.getHeight(), VIEW_TILES) * TILE_SIZE));
+        this.mipmap = new WorldMipmap(gameMap);
+        this.mipmap.addChangeListener(() -> {
+            if (!isDetailed()) {
+                repaint();
+            }
+        });
+        this.mipmap.update(shownSnapshot);
         setupMouseListener();
+        addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                followPlayer(shownSnapshot.getPlayerPosition());
+                updateInterestArea();
+            }
+        });
+    }
+
+    // Map tile under a point in this panel's coordinates
+    public Position getTileAt(Point point) {
+        return new Position((int) ((point.x + cameraX) / tilePixels), (int) ((point.y + cameraY) / tilePixels));
+    }
+
+    // Shared with the minimap so the world is only coloured once
+    public WorldMipmap getMipmap() {
+        return mipmap;
+    }
+
+    // The tiles currently in view, possibly extending past the map's edges
+    public Rectangle getVisibleTiles() {
+        return new Rectangle((int) (cameraX / tilePixels), (int) (cameraY / tilePixels),
+                (int) Math.ceil(getWidth() / tilePixels), (int) Math.ceil(getHeight() / tilePixels));
+    }
+
+    public void zoomIn() {
+        if (zoomLevel > 0) {
+            setZoomLevel(zoomLevel - 1);
+        }
+    }
+
+    // Stops once the whole map fits in the view
+    public void zoomOut() {
+        boolean mapFits = gameMap.getWidth() * tilePixels <= getWidth()
+                && gameMap.getHeight() * tilePixels <= getHeight();
+        if (zoomLevel < ZOOM_TILE_PIXELS.length - 1 && !mapFits) {
+            setZoomLevel(zoomLevel + 1);
+        }
+    }
+
+    private void setZoomLevel(int level) {
+        int oldLevel = zoomLevel;
+        zoomLevel = level;
+        tilePixels = ZOOM_TILE_PIXELS[level];
+        chunks.clear(); // Chunks are drawn at the zoom's size
+
+        // Start centred on the player, then keep following as usual
+        Position player = shownSnapshot.getPlayerPosition();
+        cameraX = clampCamera((int) ((player.getX() + 0.5) * tilePixels) - getWidth() / 2, getWidth(), gameMap.getWidth());
+        cameraY = clampCamera((int) ((player.getY() + 0.5) * tilePixels) - getHeight() / 2, getHeight(), gameMap.getHeight());
+        updateInterestArea();
+        repaint();
+        firePropertyChange("zoom", oldLevel, level);
+    }
+
+    private boolean isDetailed() {
+        return tilePixels >= DETAIL_PIXELS;
+    }
+
+    // Scrolls just far enough to keep the player CAMERA_MARGIN tiles inside the view, so most
+    // moves leave the camera alone and repaint only the tiles they touched
+    private boolean followPlayer(Position player) {
+        int newX = follow(cameraX, player.getX(), getWidth(), gameMap.getWidth());
+        int newY = follow(cameraY, player.getY(), getHeight(), gameMap.getHeight());
+        if (newX == cameraX && newY == cameraY) {
+            return false;
+        }
+        cameraX = newX;
+        cameraY = newY;
+        updateInterestArea();
+        return true;
+    }
+
+    private int follow(int camera, int playerTile, int viewSize, int mapTiles) {
+        int player = (int) (playerTile * tilePixels);
+        int extent = Math.max(1, (int) Math.ceil(tilePixels));
+        int margin = Math.max(0, Math.min(CAMERA_MARGIN * extent, (viewSize - extent) / 2));
+        if (player < camera + margin) {
+            camera = player - margin;
+        } else if (player + extent > camera + viewSize - margin) {
+            camera = player + extent - viewSize + margin;
+        }
+        return clampCamera(camera, viewSize, mapTiles);
+    }
+
+    private int clampCamera(int camera, int viewSize, int mapTiles) {
+        return Math.max(0, Math.min(camera, (int) Math.ceil(mapTiles * tilePixels) - viewSize));
+    }
+
+    // Asks the simulation for the visible tiles rounded out to whole chunks, so small camera
+    // moves keep the same snapshot area and every visible chunk can be cached. Zoomed out, tiles
+    // aren't drawn individually, so only the player's surroundings are needed.
+    private void updateInterestArea() {
+        int firstX, firstY, endX, endY;
+        if (isDetailed()) {
+            firstX = (int) (cameraX / tilePixels);
+            firstY = (int) (cameraY / tilePixels);
+            endX = (int) Math.ceil((cameraX + getWidth()) / tilePixels);
+            endY = (int) Math.ceil((cameraY + getHeight()) / tilePixels);
+        } else {
+            Position player = shownSnapshot.getPlayerPosition();
+            firstX = Math.max(0, player.getX() - VIEW_TILES / 2);
+            firstY = Math.max(0, player.getY() - VIEW_TILES / 2);
+            endX = player.getX() + VIEW_TILES / 2;
+            endY = player.getY() + VIEW_TILES / 2;
+        }
+        firstX = firstX / CHUNK_TILES * CHUNK_TILES;
+        firstY = firstY / CHUNK_TILES * CHUNK_TILES;
+        endX = (endX + CHUNK_TILES - 1) / CHUNK_TILES * CHUNK_TILES;
+        endY = (endY + CHUNK_TILES - 1) / CHUNK_TILES * CHUNK_TILES;
+        game.setInterestArea(firstX, firstY, endX - firstX, endY - firstY);
+        // Keep at least two views' worth of chunks so scrolling back doesn't redraw them
+        maxCachedChunks = Math.max(MAX_CACHED_CHUNKS, 2 * (endX - firstX) / CHUNK_TILES * (endY - firstY) / CHUNK_TILES);
     }
 
     private void setupMouseListener() {
         MouseAdapter mouseAdapter = new MouseAdapter() {
             @Override
             public void mouseClicked(MouseEvent e) {
-                int tileX = e.getX() / TILE_SIZE;
-                int tileY = e.getY() / TILE_SIZE;
-                Position clickedPos = new Position(tileX, tileY);
-                Tile clickedTile = gameMap.getTile(clickedPos);
-
-                if (clickedTile != null) {
-                    if (clickedTile.hasMachine()) {
-                        handleMachineClick(clickedTile.getMachine());
-                    } else if (clickedTile.hasResource()) {
-                        handleResourceClick(clickedPos, clickedTile, e);
-                    }
+                Position clickedPos = getTileAt(e.getPoint());
+                int tileX = clickedPos.getX();
+                int tileY = clickedPos.getY();
+                WorldSnapshot snapshot = game.getSnapshot();
+
+                MachineView machine = snapshot.getMachineAt(tileX, tileY);
+                if (machine != null) {
+                    handleMachineClick(machine);
+                } else if (snapshot.getResourceType(tileX, tileY) != null) {
+                    handleResourceClick(clickedPos, snapshot, e);
                 }
-                repaint();
             }
         };
         addMouseListener(mouseAdapter);
+        addMouseWheelListener((MouseWheelEvent e) -> {
+            if (e.getWheelRotation() < 0) {
+                zoomIn();
+            } else if (e.getWheelRotation() > 0) {
+                zoomOut();
+            }
+        });
     }
 
-    private void handleResourceClick(Position clickedPos, Tile clickedTile, MouseEvent e) {
-        if (!clickedTile.hasResource())
-            return;
-
-        if (!playerPosition.isAdjacent(clickedPos)) {
+    private void handleResourceClick(Position clickedPos, WorldSnapshot snapshot, MouseEvent e) {
+        if (!snapshot.getPlayerPosition().isAdjacent(clickedPos)) {
             showStatusMessage("Move closer to harvest this resource!");
-            gameMap.setSelectedTile(null);
+            game.submitAction(g -> g.getMap().setSelectedTile(null));
             game.getControlPanel().updateHarvestButton(false);
-        } else if (!clickedTile.getResource().canHarvest()) {
+        } else if (!snapshot.canHarvest(clickedPos.getX(), clickedPos.getY())) {
             showStatusMessage("Resource is regenerating...");
-            gameMap.setSelectedTile(null);
+            game.submitAction(g -> g.getMap().setSelectedTile(null));
             game.getControlPanel().updateHarvestButton(false);
         } else if (SwingUtilities.isMiddleMouseButton(e) ||
                 (e.getClickCount() == 2 && SwingUtilities.isLeftMouseButton(e))) {
             // Middle click or double left click to harvest instantly
-            game.harvestResource(clickedPos);
-            gameMap.setSelectedTile(null);
+            game.submitAction(g -> {
+                g.harvestResource(clickedPos);
+                g.getMap().setSelectedTile(null);
+            });
             game.getControlPanel().updateHarvestButton(false);
 
             // Show feedback
             showStatusMessage("Resource harvested!");
         } else if (SwingUtilities.isLeftMouseButton(e)) {
             // Single left click to select
-            gameMap.setSelectedTile(clickedPos);
+            game.submitAction(g -> g.getMap().setSelectedTile(clickedPos));
             game.getControlPanel().updateHarvestButton(true);
             showStatusMessage("Resource selected. Double-click or press Harvest to collect.");
         }
     }
 
-    private void handleMachineClick(Machine machine) {
-        if (machine instanceof Harvester) {
-            showHarvesterConfig((Harvester) machine);
-        } else if (machine instanceof Factory) {
-            showFactoryConfig((Factory) machine);
+    private void handleMachineClick(MachineView machine) {
+        if (machine.isHarvester()) {
+            showHarvesterConfig(machine.getPosition());
+        } else if (machine.isFactory()) {
+            showFactoryConfig(machine.getPosition());
         }
     }
 
-    private void showHarvesterConfig(Harvester harvester) {
+    private void showHarvesterConfig(Position harvester) {
         JPopupMenu popup = new JPopupMenu();
 
         for (ResourceType type : ResourceType.values()) {
             if (type.getBaseHarvestTime() > 0) {
                 JMenuItem item = new JMenuItem(type.toString());
-                item.addActionListener(e -> {
-                    harvester.setTargetResource(type);
-                    repaint();
-                });
+                item.addActionListener(e -> game.submitAction(g -> g.configureMachine(harvester, type)));
                 popup.add(item);
             }
         }
 
         JMenuItem removeItem = new JMenuItem("Remove Machine");
-        removeItem.addActionListener(e -> {
-            game.removeMachine(harvester.getPosition());
-            repaint();
-        });
+        removeItem.addActionListener(e -> game.submitAction(g -> g.removeMachine(harvester)));
         popup.addSeparator();
         popup.add(removeItem);
 
@@ -123,7 +290,7 @@ public class MapPanel extends JPanel {
         popup.show(this, p.x, p.y);
     }
 
-    private void showFactoryConfig(Factory factory) {
+    private void showFactoryConfig(Position factory) {
         JDialog dialog = new JDialog((Frame) SwingUtilities.getWindowAncestor(this), "Configure Factory", true);
         dialog.setLayout(new BorderLayout());
 
@@ -134,9 +301,8 @@ public class MapPanel extends JPanel {
         for (Recipe recipe : game.getCraftingSystem().getAllRecipes()) {
             JButton recipeButton = new JButton(recipe.getName());
             recipeButton.addActionListener(e -> {
-                factory.setRecipe(recipe);
+                game.submitAction(g -> g.configureMachine(factory, recipe));
                 dialog.dispose();
-                repaint();
             });
             panel.add(recipeButton);
         }
@@ -144,9 +310,8 @@ public class MapPanel extends JPanel {
         // Add remove button
         JButton removeButton = new JButton("Remove Machine");
         removeButton.addActionListener(e -> {
-            game.removeMachine(factory.getPosition());
+            game.submitAction(g -> g.removeMachine(factory));
             dialog.dispose();
-            repaint();
         });
         panel.add(removeButton);
 
@@ -159,37 +324,80 @@ public class MapPanel extends JPanel {
     private void showStatusMessage(String message) {
         statusMessage = message;
         statusMessageTime = System.currentTimeMillis();
+        statusMessageTimer.restart(); // Clears the message once it expires
         repaint();
     }
 
+    // Called with each batch of game events; repaints only the tiles they name. Events are
+    // relative to the last batch, which is never older than the snapshot this panel started from.
+    public void onGameEvents(WorldSnapshot snapshot, List<GameEvent> events) {
+        WorldSnapshot previous = shownSnapshot;
+        if (snapshot.getSequence() <= previous.getSequence()) {
+            return; // Queued before this panel existed
+        }
+        shownSnapshot = snapshot;
+        boolean scrolled = followPlayer(snapshot.getPlayerPosition());
+        mipmap.update(snapshot); // Repaints through its change listener if a machine shows up or goes away
+        boolean detailed = isDetailed();
+        int tileExtent = (int) Math.ceil(tilePixels);
+        boolean comparable = true;
+        boolean playerMoved = false;
+        for (GameEvent event : events) {
+            if (event instanceof GameEvent.TileChanged) {
+                int x = ((GameEvent.TileChanged) event).getX();
+                int y = ((GameEvent.TileChanged) event).getY();
+                Chunk chunk = chunks.get(Position.key(Math.floorDiv(x, CHUNK_TILES), Math.floorDiv(y, CHUNK_TILES)));
+                if (chunk != null) {
+                    chunk.markDirty(x, y);
+                }
+                if (detailed && !scrolled) {
+                    repaint((int) (x * tilePixels) - cameraX, (int) (y * tilePixels) - cameraY, tileExtent, tileExtent);
+                }
+            } else if (event instanceof GameEvent.PlayerMoved) {
+                playerMoved = true;
+            } else if (event instanceof GameEvent.WorldReset) {
+                comparable = false;
+            }
+        }
+        if (!comparable) {
+            chunks.clear();
+        } else if (!snapshot.getArea().equals(previous.getArea())) {
+            // Tiles outside the area aren't compared, so chunks there could go stale unnoticed
+            Rectangle area = snapshot.getArea();
+            chunks.values().removeIf(chunk -> !area.contains(chunk.bounds));
+        }
+        if (detailed) {
+            if (scrolled || !comparable) {
+                repaint();
+            }
+            return;
+        }
+
+        // Zoomed out only placed machines and the player marker show, and a frame is one image copy
+        if (playerMoved) {
+            updateInterestArea();
+        }
+        if (scrolled || playerMoved || !comparable) {
+            repaint();
+        }
+    }
+
+    // Paints only from a published snapshot, so a tick running at the same time never shows up
+    // half applied and painting never waits for one
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
         Graphics2D g2d = (Graphics2D) g;
         g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
-        // Draw tiles
-        for (int x = 0; x < gameMap.getWidth(); x++) {
-            for (int y = 0; y < gameMap.getHeight(); y++) {
-                Position currentPos = new Position(x, y);
-                drawTile(g2d, x, y);
-
-                // Draw selection highlight
-                if (gameMap.getSelectedTile() != null &&
-                        gameMap.getSelectedTile().equals(currentPos)) {
-                    drawSelectionHighlight(g2d, x, y);
-                }
-
-                // Draw adjacent tile indicators
-                if (playerPosition.isAdjacent(currentPos)) {
-                    drawAdjacentIndicator(g2d, x, y);
-                }
-            }
+        WorldSnapshot snapshot = shownSnapshot != null ? shownSnapshot : game.getSnapshot();
+        AffineTransform screen = g2d.getTransform();
+        if (isDetailed()) {
+            drawDetail(g2d, snapshot);
+        } else {
+            drawZoomedOut(g2d, snapshot);
         }
-
-        // Draw player
-        drawPlayer(g2d, playerPosition.getX(), playerPosition.getY());
-        drawGridLines(g2d);
+        g2d.setTransform(screen);
 
         // Draw status message if active
         if (statusMessage != null) {
@@ -202,11 +410,171 @@ public class MapPanel extends JPanel {
         }
     }
 
+    private void drawDetail(Graphics2D g2d, WorldSnapshot snapshot) {
+        Position playerPosition = snapshot.getPlayerPosition();
+        Position selectedTile = snapshot.getSelectedTile();
+
+        // Draw in full size map pixels from here on; the clip then covers only the visible tiles
+        g2d.translate(-cameraX, -cameraY);
+        if (tilePixels != TILE_SIZE) {
+            g2d.scale(tilePixels / TILE_SIZE, tilePixels / TILE_SIZE);
+            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        }
+        Rectangle clip = g2d.getClipBounds() != null
+                ? g2d.getClipBounds() : new Rectangle(cameraX, cameraY, getWidth(), getHeight());
+        int minX = Math.max(0, clip.x / TILE_SIZE);
+        int minY = Math.max(0, clip.y / TILE_SIZE);
+        int maxX = Math.min(snapshot.getMapWidth(), (clip.x + clip.width + TILE_SIZE - 1) / TILE_SIZE);
+        int maxY = Math.min(snapshot.getMapHeight(), (clip.y + clip.height + TILE_SIZE - 1) / TILE_SIZE);
+
+        drawChunks(g2d, snapshot, minX, minY, maxX, maxY);
+
+        // Draw what depends on the selection and where the player stands on top of the chunks
+        if (selectedTile != null) {
+            drawSprite(g2d, SPRITES.getSelection(), selectedTile.getX(), selectedTile.getY());
+        }
+        for (int[] offset : NEIGHBOURS) {
+            int x = playerPosition.getX() + offset[0];
+            int y = playerPosition.getY() + offset[1];
+            if (snapshot.canHarvest(x, y)) {
+                drawSprite(g2d, SPRITES.getAdjacent(), x, y);
+            } else if (snapshot.getTileType(x, y) == TileType.MARKET) {
+                drawSprite(g2d, SPRITES.getMarketHighlight(), x, y);
+            }
+        }
+
+        // Draw player
+        drawSprite(g2d, SPRITES.getPlayer(), playerPosition.getX(), playerPosition.getY());
+        drawMapBorder(g2d, snapshot);
+    }
+
+    // Copies the visible part of the mipmap level whose pixels are closest to one screen pixel,
+    // each pixel already aggregated from the tiles it covers, so no tile is visited per frame
+    private void drawZoomedOut(Graphics2D g2d, WorldSnapshot snapshot) {
+        int level = 0;
+        while (level < mipmap.getLevelCount() - 1 && tilePixels * (2 << level) <= 1) {
+            level++;
+        }
+        double blockPixels = tilePixels * (1 << level);
+
+        g2d.translate(-cameraX, -cameraY);
+        Rectangle clip = g2d.getClipBounds() != null
+                ? g2d.getClipBounds() : new Rectangle(cameraX, cameraY, getWidth(), getHeight());
+        mipmap.draw(g2d, level, blockPixels,
+                (int) (clip.x / blockPixels), (int) (clip.y / blockPixels),
+                (int) Math.ceil((clip.x + clip.width) / blockPixels), (int) Math.ceil((clip.y + clip.height) / blockPixels));
+
+        // The player stays visible however small a tile gets
+        Position player = snapshot.getPlayerPosition();
+        int size = Math.max(3, (int) Math.ceil(tilePixels));
+        int centerX = (int) ((player.getX() + 0.5) * tilePixels);
+        int centerY = (int) ((player.getY() + 0.5) * tilePixels);
+        g2d.setColor(PLAYER_MARKER_COLOR);
+        g2d.fillRect(centerX - size / 2, centerY - size / 2, size, size);
+    }
+
+    // Brings every chunk in the tile range up to date, rendering them in parallel, then copies
+    // them to the screen. Chunks the snapshot only partly covers are drawn tile by tile instead.
+    private void drawChunks(Graphics2D g2d, WorldSnapshot snapshot, int minX, int minY, int maxX, int maxY) {
+        List<ForkJoinTask<?>> renders = new ArrayList<>();
+        for (int cy = minY / CHUNK_TILES; cy * CHUNK_TILES < maxY; cy++) {
+            for (int cx = minX / CHUNK_TILES; cx * CHUNK_TILES < maxX; cx++) {
+                Chunk chunk = getChunk(snapshot, cx, cy);
+                if (chunk != null && !chunk.dirty.isEmpty()) {
+                    // The worker gets its own copy, later changes mark the chunk again
+                    BitSet dirty = (BitSet) chunk.dirty.clone();
+                    chunk.dirty.clear();
+                    renders.add(RENDER_POOL.submit(() -> renderChunk(chunk, dirty, snapshot)));
+                }
+            }
+        }
+        for (ForkJoinTask<?> render : renders) {
+            render.join();
+        }
+
+        // Chunks already have the screen's scale, so they are copied without scaling
+        AffineTransform mapTransform = g2d.getTransform();
+        g2d.scale(TILE_SIZE / tilePixels, TILE_SIZE / tilePixels);
+        int chunkPixels = CHUNK_TILES * (int) tilePixels;
+        for (int cy = minY / CHUNK_TILES; cy * CHUNK_TILES < maxY; cy++) {
+            for (int cx = minX / CHUNK_TILES; cx * CHUNK_TILES < maxX; cx++) {
+                Chunk chunk = chunks.get(Position.key(cx, cy));
+                if (chunk != null) {
+                    g2d.drawImage(chunk.image, cx * chunkPixels, cy * chunkPixels, null);
+                }
+            }
+        }
+        g2d.setTransform(mapTransform);
+
+        for (int cy = minY / CHUNK_TILES; cy * CHUNK_TILES < maxY; cy++) {
+            for (int cx = minX / CHUNK_TILES; cx * CHUNK_TILES < maxX; cx++) {
+                if (chunks.containsKey(Position.key(cx, cy))) {
+                    continue;
+                }
+                for (int x = Math.max(minX, cx * CHUNK_TILES); x < Math.min(maxX, (cx + 1) * CHUNK_TILES); x++) {
+                    for (int y = Math.max(minY, cy * CHUNK_TILES); y < Math.min(maxY, (cy + 1) * CHUNK_TILES); y++) {
+                        drawTile(g2d, snapshot, x, y);
+                    }
+                }
+            }
+        }
+    }
+
+    // A cached chunk, or a new one with every tile dirty if the snapshot covers all of it
+    private Chunk getChunk(WorldSnapshot snapshot, int cx, int cy) {
+        long key = Position.key(cx, cy);
+        Chunk chunk = chunks.get(key);
+        if (chunk != null) {
+            return chunk;
+        }
+
+        int startX = cx * CHUNK_TILES;
+        int startY = cy * CHUNK_TILES;
+        int width = Math.min(CHUNK_TILES, snapshot.getMapWidth() - startX);
+        int height = Math.min(CHUNK_TILES, snapshot.getMapHeight() - startY);
+        if (!snapshot.contains(startX, startY) || !snapshot.contains(startX + width - 1, startY + height - 1)) {
+            return null;
+        }
+
+        int size = (int) tilePixels;
+        GraphicsConfiguration config = getGraphicsConfiguration();
+        BufferedImage image = config != null
+                ? config.createCompatibleImage(width * size, height * size, Transparency.OPAQUE)
+                : new BufferedImage(width * size, height * size, BufferedImage.TYPE_INT_RGB);
+        chunk = new Chunk(image, new Rectangle(startX, startY, width, height), size);
+        chunk.dirty.set(0, CHUNK_TILES * CHUNK_TILES);
+        chunks.put(key, chunk);
+        return chunk;
+    }
+
+    // Runs on the render pool. Each worker draws into its own chunk from an immutable snapshot
+    // and the shared sprites are only read.
+    private void renderChunk(Chunk chunk, BitSet dirty, WorldSnapshot snapshot) {
+        Graphics2D g2d = chunk.image.createGraphics();
+        try {
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            if (chunk.tilePixels != TILE_SIZE) {
+                g2d.scale((double) chunk.tilePixels / TILE_SIZE, (double) chunk.tilePixels / TILE_SIZE);
+                g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            }
+            g2d.translate(-chunk.bounds.x * TILE_SIZE, -chunk.bounds.y * TILE_SIZE);
+            for (int tile = dirty.nextSetBit(0); tile >= 0; tile = dirty.nextSetBit(tile + 1)) {
+                int x = chunk.bounds.x + tile % CHUNK_TILES;
+                int y = chunk.bounds.y + tile / CHUNK_TILES;
+                if (chunk.bounds.contains(x, y)) {
+                    drawTile(g2d, snapshot, x, y);
+                }
+            }
+        } finally {
+            g2d.dispose();
+        }
+    }
+
     private void drawStatusMessage(Graphics2D g2d) {
         if (statusMessage == null)
             return;
 
-        g2d.setFont(new Font("Arial", Font.BOLD, 14));
+        g2d.setFont(MESSAGE_FONT);
         FontMetrics fm = g2d.getFontMetrics();
         int messageWidth = fm.stringWidth(statusMessage);
         int messageHeight = fm.getHeight();
@@ -215,7 +583,7 @@ public class MapPanel extends JPanel {
         int y = getHeight() - 30;
 
         // Draw message background
-        g2d.setColor(new Color(0, 0, 0, 180));
+        g2d.setColor(MESSAGE_BACKGROUND);
         g2d.fillRoundRect(x - 10, y - messageHeight, messageWidth + 20, messageHeight + 10, 10, 10);
 
         // Draw message text
@@ -223,295 +591,123 @@ public class MapPanel extends JPanel {
         g2d.drawString(statusMessage, x, y);
     }
 
-    private void drawAdjacentIndicator(Graphics2D g2d, int x, int y) {
-        Tile tile = gameMap.getTile(new Position(x, y));
-        if (tile.hasResource() && tile.getResource().canHarvest()) {
-            g2d.setColor(new Color(255, 255, 255, 50));
-            g2d.setStroke(new BasicStroke(2, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND, 0, new float[] { 5 }, 0));
-            g2d.drawRect(x * TILE_SIZE + 2, y * TILE_SIZE + 2, TILE_SIZE - 4, TILE_SIZE - 4);
-        }
+    private static void drawSprite(Graphics2D g2d, Image sprite, int x, int y) {
+        g2d.drawImage(sprite, x * TILE_SIZE, y * TILE_SIZE, null);
     }
 
-    private void drawSelectionHighlight(Graphics2D g2d, int x, int y) {
-        g2d.setColor(new Color(255, 255, 0, 100));
-        g2d.setStroke(new BasicStroke(2));
-        g2d.drawRect(
-                x * TILE_SIZE + 2,
-                y * TILE_SIZE + 2,
-                TILE_SIZE - 4,
-                TILE_SIZE - 4);
+    private void drawTile(Graphics2D g2d, WorldSnapshot snapshot, int x, int y) {
+        drawTerrainTile(g2d, snapshot, x, y);
+        drawTileOverlay(g2d, snapshot, x, y);
     }
 
-    private void drawTile(Graphics2D g2d, int x, int y) {
-        Tile tile = gameMap.getTile(new Position(x, y));
-        TileType tileType = tile.getType();
-        Color tileColor = getTileColor(tileType);
-
-        // Draw base tile
-        g2d.setColor(tileColor);
-        g2d.fillRect(x * TILE_SIZE, y * TILE_SIZE, TILE_SIZE, TILE_SIZE);
-
-        // Draw resource indicator if it's a resource tile
-        if (tileType == TileType.RESOURCE && tile.hasResource()) {
-            drawResourceIndicator(g2d, x, y, tile.getResource());
-        }
-
-        // Draw machine if present
-        if (tile.hasMachine()) {
-            drawMachine(g2d, x, y, tile.getMachine());
+    // The parts of a tile that never change: base colour, resource and market symbols, grid lines
+    private void drawTerrainTile(Graphics2D g2d, WorldSnapshot snapshot, int x, int y) {
+        TileType tileType = snapshot.getTileType(x, y);
+        if (tileType == null) {
+            return; // Not captured yet, the next tick's snapshot will include it
         }
+        drawSprite(g2d, SPRITES.getTile(tileType), x, y);
 
-        if (tileType == TileType.MARKET) {
-            boolean isAdjacentToMarket = playerPosition.isAdjacent(new Position(x, y));
-            drawMarketIndicator(g2d, x, y, isAdjacentToMarket);
+        ResourceType resourceType = snapshot.getResourceType(x, y);
+        if (tileType == TileType.RESOURCE && resourceType != null) {
+            drawSprite(g2d, SPRITES.getResource(resourceType), x, y);
         }
     }
 
-    private void drawResourceIndicator(Graphics2D g2d, int x, int y, Resource resource) {
-        int padding = 8;
-        int size = TILE_SIZE - (padding * 2);
-
-        // Draw resource symbol
-        g2d.setColor(new Color(34, 139, 34)); // Darker green
-        g2d.fillOval(
-                x * TILE_SIZE + padding,
-                y * TILE_SIZE + padding,
-                size,
-                size);
-
-        // Draw harvest progress if not harvestable
-        if (!resource.canHarvest()) {
-            g2d.setColor(new Color(0, 0, 0, 100));
-            float progress = 1.0f - resource.getHarvestProgress();
-            int arcExtent = (int) (360 * progress);
-            g2d.fillArc(
-                    x * TILE_SIZE + padding,
-                    y * TILE_SIZE + padding,
-                    size,
-                    size,
-                    90,
-                    arcExtent);
+    // The parts of a tile that change while playing: regrowth and machines
+    private void drawTileOverlay(Graphics2D g2d, WorldSnapshot snapshot, int x, int y) {
+        TileType tileType = snapshot.getTileType(x, y);
+        if (tileType == null) {
+            return;
         }
 
-        // Draw resource type indicator
-        g2d.setColor(Color.WHITE);
-        g2d.setFont(new Font("Arial", Font.BOLD, 10));
-        String resourceType = resource.getType().toString().substring(0, 1);
-        FontMetrics fm = g2d.getFontMetrics();
-        int textX = x * TILE_SIZE + (TILE_SIZE - fm.stringWidth(resourceType)) / 2;
-        int textY = y * TILE_SIZE + (TILE_SIZE + fm.getAscent()) / 2;
-        g2d.drawString(resourceType, textX, textY);
-    }
-
-    private void drawMarketIndicator(Graphics2D g2d, int x, int y, boolean isAdjacent) {
-        int padding = 8;
-        // Draw base market symbol
-        g2d.setColor(new Color(184, 134, 11)); // Market color
-        g2d.fillRect(
-                x * TILE_SIZE + padding,
-                y * TILE_SIZE + padding,
-                TILE_SIZE - (padding * 2),
-                TILE_SIZE - (padding * 2));
-
-        // Draw 'M' for market
-        g2d.setColor(Color.WHITE);
-        g2d.setFont(new Font("Arial", Font.BOLD, 16));
-        FontMetrics fm = g2d.getFontMetrics();
-        g2d.drawString("M",
-                x * TILE_SIZE + (TILE_SIZE - fm.stringWidth("M")) / 2,
-                y * TILE_SIZE + (TILE_SIZE + fm.getAscent()) / 2);
+        ResourceType resourceType = snapshot.getResourceType(x, y);
+        if (tileType == TileType.RESOURCE && resourceType != null && !snapshot.canHarvest(x, y)) {
+            drawSprite(g2d, SPRITES.getRegrowth(resourceType, snapshot.getHarvestProgress(x, y)), x, y);
+        }
 
-        // Draw highlight if adjacent
-        if (isAdjacent) {
-            g2d.setColor(new Color(255, 215, 0, 100)); // Semi-transparent gold
-            g2d.setStroke(new BasicStroke(2));
-            g2d.drawRect(
-                    x * TILE_SIZE + 2,
-                    y * TILE_SIZE + 2,
-                    TILE_SIZE - 4,
-                    TILE_SIZE - 4);
+        // Draw machine if present
+        MachineView machine = snapshot.getMachineAt(x, y);
+        if (machine != null) {
+            drawMachine(g2d, x, y, machine);
         }
     }
 
-    private void drawMachine(Graphics2D g2d, int x, int y, Machine machine) {
+    private void drawMachine(Graphics2D g2d, int x, int y, MachineView machine) {
         int padding = 8;
         int size = TILE_SIZE - (padding * 2);
-    
-        // Draw machine base
-        Color machineColor = getMachineBaseColor(machine);
-        g2d.setColor(machineColor);
-        g2d.fillRect(
-                x * TILE_SIZE + padding,
-                y * TILE_SIZE + padding,
-                size,
-                size);
-    
-        // Draw status indicator
-        drawMachineStatus(g2d, x, y, machine);
-    
+
+        // Body with its type indicator, then the status dot
+        drawSprite(g2d, SPRITES.getMachine(machine.getType(), machine.getTargetResource()), x, y);
+        drawSprite(g2d, SPRITES.getStatusDot(machine.getStatus()), x, y);
+
         // Draw inventory fill level
-        if (machine.getInventory().getTotalItems() > 0) {
-            int fillHeight = (int)((float)machine.getInventory().getTotalItems() 
+        if (machine.getInventoryItems() > 0) {
+            int fillHeight = (int)((float)machine.getInventoryItems()
                                   / machine.getInventoryCapacity() * size);
-            g2d.setColor(new Color(255, 255, 255, 80));
+            g2d.setColor(FILL_BAR_COLOR);
             g2d.fillRect(
                     x * TILE_SIZE + padding,
                     y * TILE_SIZE + padding + (size - fillHeight),
                     3, // width of fill bar
                     fillHeight);
         }
-    
-        // Draw machine type indicator
-        g2d.setColor(Color.WHITE);
-        g2d.setFont(new Font("Arial", Font.BOLD, 10));
-        String typeIndicator = getMachineTypeIndicator(machine);
-        FontMetrics fm = g2d.getFontMetrics();
-        g2d.drawString(typeIndicator,
-                x * TILE_SIZE + (TILE_SIZE - fm.stringWidth(typeIndicator)) / 2,
-                y * TILE_SIZE + (TILE_SIZE + fm.getAscent()) / 2);
-    
+
         // Draw progress bar for factories
-        if (machine instanceof Factory) {
-            drawFactoryProgress(g2d, x, y, (Factory) machine);
+        if (machine.isFactory()) {
+            drawFactoryProgress(g2d, x, y, machine);
         }
     }
 
-    private Color getMachineBaseColor(Machine machine) {
-        if (machine instanceof Harvester) {
-            return machine.getType().toString().contains("ADVANCED") ? 
-                   new Color(70, 130, 180) :  // Steel blue for advanced
-                   new Color(100, 149, 237);  // Cornflower blue for basic
-        } else {
-            return machine.getType().toString().contains("ADVANCED") ? 
-                   new Color(139, 69, 19) :   // Saddle brown for advanced
-                   new Color(160, 82, 45);    // Sienna for basic
-        }
-    }
-
-    private void drawMachineStatus(Graphics2D g2d, int x, int y, Machine machine) {
-        Color statusColor;
-        switch (machine.getStatus()) {
-            case WORKING:
-                statusColor = new Color(50, 205, 50); // Lime green
-                break;
-            case INVENTORY_FULL:
-                statusColor = new Color(255, 0, 0);   // Red
-                break;
-            case INVENTORY_NEARLY_FULL:
-                statusColor = new Color(255, 165, 0); // Orange
-                break;
-            case NEEDS_CONFIG:
-                statusColor = new Color(255, 215, 0); // Yellow
-                break;
-            case INSUFFICIENT_RESOURCES:
-                statusColor = new Color(255, 69, 0);  // Red-Orange
-                break;
-            default:
-                statusColor = new Color(128, 128, 128); // Gray
-        }
-
-        g2d.setColor(statusColor);
-        g2d.fillOval(
-                x * TILE_SIZE + TILE_SIZE - 10,
-                y * TILE_SIZE + 5,
-                6,
-                6);
-    }
-
-    private void drawFactoryProgress(Graphics2D g2d, int x, int y, Factory factory) {
+    private void drawFactoryProgress(Graphics2D g2d, int x, int y, MachineView factory) {
         float progress = factory.getCraftingProgress();
         if (progress > 0) {
             int barHeight = 3;
             int barY = y * TILE_SIZE + TILE_SIZE - barHeight - 2;
-            
+
             // Draw background
-            g2d.setColor(new Color(0, 0, 0, 100));
+            g2d.setColor(PROGRESS_BACKGROUND);
             g2d.fillRect(x * TILE_SIZE + 4, barY, TILE_SIZE - 8, barHeight);
-            
+
             // Draw progress
-            g2d.setColor(new Color(50, 205, 50));
-            g2d.fillRect(x * TILE_SIZE + 4, barY, 
+            g2d.setColor(PROGRESS_COLOR);
+            g2d.fillRect(x * TILE_SIZE + 4, barY,
                     (int)((TILE_SIZE - 8) * progress), barHeight);
         }
     }
 
-    private String getMachineTypeIndicator(Machine machine) {
-        if (machine instanceof Harvester) {
-            Harvester harvester = (Harvester) machine;
-            ResourceType target = harvester.getTargetResource();
-            return target != null ? target.toString().substring(0, 1) : "H";
-        } else {
-            return "F";
-        }
-    }
-
-    private void drawPlayer(Graphics2D g2d, int x, int y) {
-        int padding = 5;
-        // Draw player shadow
-        g2d.setColor(new Color(0, 0, 0, 50));
-        g2d.fillOval(
-                x * TILE_SIZE + padding + 2,
-                y * TILE_SIZE + padding + 2,
-                TILE_SIZE - (padding * 2),
-                TILE_SIZE - (padding * 2));
-        // Draw player
-        g2d.setColor(new Color(30, 144, 255)); // Dodger blue
-        g2d.fillOval(
-                x * TILE_SIZE + padding,
-                y * TILE_SIZE + padding,
-                TILE_SIZE - (padding * 2),
-                TILE_SIZE - (padding * 2));
-    }
-
-    private void drawGridLines(Graphics2D g2d) {
-        g2d.setColor(new Color(0, 0, 0, 50)); // Semi-transparent black
-
-        // Draw vertical lines
-        for (int x = 0; x <= gameMap.getWidth(); x++) {
-            g2d.drawLine(
-                    x * TILE_SIZE,
-                    0,
-                    x * TILE_SIZE,
-                    gameMap.getHeight() * TILE_SIZE);
-        }
-
-        // Draw horizontal lines
-        for (int y = 0; y <= gameMap.getHeight(); y++) {
-            g2d.drawLine(
-                    0,
-                    y * TILE_SIZE,
-                    gameMap.getWidth() * TILE_SIZE,
-                    y * TILE_SIZE);
-        }
-    }
-
-    private Color getTileColor(TileType type) {
-        switch (type) {
-            case EMPTY:
-                return new Color(245, 245, 245); // Light gray
-            case RESOURCE:
-                return new Color(144, 238, 144); // Light green
-            case MARKET:
-                return new Color(255, 223, 186); // Light orange
-            case STARTING:
-                return new Color(176, 196, 222); // Light steel blue
-            case BLOCKED:
-                return new Color(169, 169, 169); // Dark gray
-            default:
-                return Color.WHITE;
-        }
+    private void drawMapBorder(Graphics2D g2d, WorldSnapshot snapshot) {
+        g2d.setColor(GRID_COLOR);
+        int right = snapshot.getMapWidth() * TILE_SIZE;
+        int bottom = snapshot.getMapHeight() * TILE_SIZE;
+        g2d.drawLine(right, 0, right, bottom);
+        g2d.drawLine(0, bottom, right, bottom);
     }
 
     public void updatePlayerPosition(Position newPosition) {
-        this.playerPosition = newPosition;
-
         // Clear selection if we moved away from selected resource
-        Position selectedTile = gameMap.getSelectedTile();
+        Position selectedTile = game.getSnapshot().getSelectedTile();
         if (selectedTile != null && !newPosition.isAdjacent(selectedTile)) {
-            gameMap.setSelectedTile(null);
+            game.submitAction(g -> g.getMap().setSelectedTile(null));
             game.getControlPanel().updateHarvestButton(false);
             showStatusMessage("Moved away from selected resource");
         }
-        repaint();
     }
-}
\ No newline at end of file
+
+    private static class Chunk {
+        final BufferedImage image;
+        final Rectangle bounds; // In tiles, smaller than CHUNK_TILES square at the map's edges
+        final int tilePixels;   // Screen pixels per tile it was drawn at
+        final BitSet dirty = new BitSet(CHUNK_TILES * CHUNK_TILES); // Tiles to redraw, row by row
+
+        Chunk(BufferedImage image, Rectangle bounds, int tilePixels) {
+            this.image = image;
+            this.bounds = bounds;
+            this.tilePixels = tilePixels;
+        }
+
+        void markDirty(int x, int y) {
+            dirty.set((y - bounds.y) * CHUNK_TILES + (x - bounds.x));
+        }
+    }
+}
@@ -1,11 +1,13 @@
 package com.resourcegame.ui;
 
+import com.resourcegame.systems.BasketQuote;
 import com.resourcegame.systems.Market;
+import com.resourcegame.systems.PriceHistory;
 import com.resourcegame.utils.MachineType;
 import com.resourcegame.utils.ResourceType;
-import com.resourcegame.entities.Inventory;
 import com.resourcegame.entities.Machine;
 import com.resourcegame.core.Game;
+import com.resourcegame.core.WorldSnapshot;
 import javax.swing.*;
 import java.awt.*;
 import javax.swing.border.EmptyBorder;
@@ -13,8 +15,8 @@ import java.util.HashMap;
 import java.util.Map;
 
 public class MarketPanel extends JPanel {
+    private final Game game;
     private final Market market;
-    private final Inventory playerInventory;
     private final ControlPanel controlPanel;
     private final JLabel moneyLabel;
     private final Map<ResourceType, JSpinner> quantitySpinners;
@@ -24,9 +26,10 @@ public class MarketPanel extends JPanel {
     private Timer updateTimer;
     private JTabbedPane tabbedPane;
     private Map<MachineType, JButton> machineButtons;
-    public MarketPanel(Game game, Market market, Inventory playerInventory, ControlPanel controlPanel) {
+    private PriceChartPanel priceChart;
+    public MarketPanel(Game game, Market market, ControlPanel controlPanel) {
+        this.game = game;
         this.market = market;
-        this.playerInventory = playerInventory;
         this.controlPanel = controlPanel;
         this.quantitySpinners = new HashMap<>();
         this.stockLabels = new HashMap<>();
@@ -40,9 +43,13 @@ public class MarketPanel extends JPanel {
         // Header Panel with money display
         JPanel headerPanel = new JPanel(new BorderLayout());
         headerPanel.setBorder(new EmptyBorder(0, 0, 10, 0));
-        moneyLabel = new JLabel("Money: $" + playerInventory.getMoney(), SwingConstants.RIGHT);
+        moneyLabel = new JLabel("Money: $" + game.getSnapshot().getMoney(), SwingConstants.RIGHT);
         moneyLabel.setFont(new Font("Arial", Font.BOLD, 16));
         headerPanel.add(moneyLabel, BorderLayout.EAST);
+
+        JButton sellAllButton = new JButton("Sell All Resources");
+        sellAllButton.addActionListener(e -> handleSellAll());
+        headerPanel.add(sellAllButton, BorderLayout.WEST);
         add(headerPanel, BorderLayout.NORTH);
 
         // Create tabbed pane
@@ -56,6 +63,10 @@ public class MarketPanel extends JPanel {
         JPanel machinesPanel = createMachinesPanel();
         tabbedPane.addTab("Machines", new ImageIcon(), machinesPanel, "Purchase machines");
 
+        // Price History Tab
+        JPanel historyPanel = createPriceHistoryPanel();
+        tabbedPane.addTab("Price History", new ImageIcon(), historyPanel, "View price trends");
+
         add(tabbedPane, BorderLayout.CENTER);
         setupUpdateTimer();
     }
@@ -79,6 +90,38 @@ public class MarketPanel extends JPanel {
         return resourcesPanel;
     }
 
+    private JPanel createPriceHistoryPanel() {
+        JPanel historyPanel = new JPanel(new BorderLayout(10, 10));
+        historyPanel.setBorder(new EmptyBorder(10, 10, 10, 10));
+
+        JComboBox<ResourceType> resourceComboBox = new JComboBox<>();
+        for (ResourceType type : ResourceType.values()) {
+            if (type.getBaseHarvestTime() > 0) {
+                resourceComboBox.addItem(type);
+            }
+        }
+        JComboBox<PriceHistory.Resolution> resolutionComboBox =
+                new JComboBox<>(PriceHistory.Resolution.values());
+
+        priceChart = new PriceChartPanel(game,
+                (ResourceType) resourceComboBox.getSelectedItem(),
+                PriceHistory.Resolution.SECOND);
+        resourceComboBox.addActionListener(
+                e -> priceChart.setResourceType((ResourceType) resourceComboBox.getSelectedItem()));
+        resolutionComboBox.addActionListener(
+                e -> priceChart.setResolution((PriceHistory.Resolution) resolutionComboBox.getSelectedItem()));
+
+        JPanel controls = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        controls.add(new JLabel("Resource: "));
+        controls.add(resourceComboBox);
+        controls.add(new JLabel("Interval: "));
+        controls.add(resolutionComboBox);
+
+        historyPanel.add(controls, BorderLayout.NORTH);
+        historyPanel.add(priceChart, BorderLayout.CENTER);
+        return historyPanel;
+    }
+
     private JPanel createMachinesPanel() {
         JPanel machinesPanel = new JPanel(new GridLayout(0, 1, 0, 10));
         machinesPanel.setBorder(new EmptyBorder(10, 10, 10, 10));
@@ -218,12 +261,19 @@ public class MarketPanel extends JPanel {
                 name.replace("_", " ").toLowerCase().substring(1);
     }
 
+    // Trades run as game commands; the replies come back on the EDT once the snapshot
+    // showing their effect has been published
     private void handleMachinePurchase(MachineType type) {
         int price = type.getBasePrice();
     
-        if (playerInventory.getMoney() >= price) {
+        if (game.getSnapshot().getMoney() >= price) {
             // Don't add machine to inventory yet if we're placing immediately
-            if (market.finalizeMachinePurchase(type, playerInventory)) {
+            game.submit(g -> g.getMarket().finalizeMachinePurchase(type, g.getPlayer().getInventory()))
+                    .thenAcceptAsync(purchased -> {
+                if (!purchased) {
+                    showNotification("Failed to purchase machine", false);
+                    return;
+                }
                 updateDisplay();
                 
                 int response = JOptionPane.showConfirmDialog(
@@ -242,7 +292,7 @@ public class MarketPanel extends JPanel {
                     }
                     
                     // Add machine to inventory only if placement fails
-                    playerInventory.addMachine(type);
+                    game.submitAction(g -> g.getPlayer().getInventory().addMachine(type));
                     
                     // Start placement process
                     SwingUtilities.invokeLater(() -> {
@@ -250,18 +300,10 @@ public class MarketPanel extends JPanel {
                     });
                 } else {
                     // Add to inventory only if not placing immediately
-                    playerInventory.addMachine(type);
+                    game.submitAction(g -> g.getPlayer().getInventory().addMachine(type));
                     showNotification("Machine added to inventory. You can place it later from the Machine Management panel.", true);
                 }
-    
-                // Update displays
-                if (controlPanel != null) {
-                    controlPanel.updateInventoryDisplay(playerInventory.getInventoryDisplay());
-                    controlPanel.updateMoneyDisplay(playerInventory.getMoney());
-                }
-            } else {
-                showNotification("Failed to purchase machine", false);
-            }
+            }, SwingUtilities::invokeLater);
         } else {
             showNotification("Not enough money to purchase this machine", false);
         }
@@ -281,7 +323,7 @@ public class MarketPanel extends JPanel {
         headerPanel.add(nameLabel, BorderLayout.WEST);
 
         // Stock display
-        JLabel stockLabel = new JLabel("Stock: " + market.getStock(type));
+        JLabel stockLabel = new JLabel("Stock: " + game.getSnapshot().getMarketStock(type));
         stockLabels.put(type, stockLabel);
         headerPanel.add(stockLabel, BorderLayout.EAST);
         card.add(headerPanel, BorderLayout.NORTH);
@@ -290,12 +332,12 @@ public class MarketPanel extends JPanel {
         JPanel centerPanel = new JPanel(new GridLayout(2, 2, 10, 5));
 
         // Buy price
-        JLabel buyPriceLabel = new JLabel("Buy: $" + market.getBuyPrice(type));
+        JLabel buyPriceLabel = new JLabel("Buy: $" + game.getSnapshot().getMarketBuyPrice(type));
         priceLabels.put(type, buyPriceLabel);
         centerPanel.add(buyPriceLabel);
 
         // Sell price
-        centerPanel.add(new JLabel("Sell: $" + market.getSellPrice(type)));
+        centerPanel.add(new JLabel("Sell: $" + game.getSnapshot().getMarketSellPrice(type)));
 
         // Quantity spinner
         SpinnerNumberModel spinnerModel = new SpinnerNumberModel(1, 1, 100, 1);
@@ -305,7 +347,7 @@ public class MarketPanel extends JPanel {
         centerPanel.add(quantitySpinner);
 
         // Inventory count
-        JLabel inventoryLabel = new JLabel("Owned: " + playerInventory.getResourceCount(type));
+        JLabel inventoryLabel = new JLabel("Owned: " + game.getSnapshot().getResourceCount(type));
         inventoryLabels.put(type, inventoryLabel);
         centerPanel.add(inventoryLabel);
 
@@ -335,15 +377,19 @@ public class MarketPanel extends JPanel {
 
     private void handleBuy(ResourceType type) {
         int quantity = (Integer) quantitySpinners.get(type).getValue();
-        int totalCost = market.getBuyPrice(type) * quantity;
-
-        if (playerInventory.getMoney() >= totalCost && market.getStock(type) >= quantity) {
-            if (market.buyResource(type, playerInventory, quantity)) {
-                updateDisplay();
-                showNotification("Successfully bought " + quantity + " " + type, true);
-            } else {
-                showNotification("Failed to buy " + type, false);
-            }
+        WorldSnapshot snapshot = game.getSnapshot();
+        int totalCost = snapshot.getMarketBuyPrice(type) * quantity;
+
+        if (snapshot.getMoney() >= totalCost && snapshot.getMarketStock(type) >= quantity) {
+            game.submit(g -> g.getMarket().buyResource(type, g.getPlayer().getInventory(), quantity))
+                    .thenAcceptAsync(bought -> {
+                if (bought) {
+                    updateDisplay();
+                    showNotification("Successfully bought " + quantity + " " + type, true);
+                } else {
+                    showNotification("Failed to buy " + type, false);
+                }
+            }, SwingUtilities::invokeLater);
         } else {
             showNotification("Not enough money or market stock", false);
         }
@@ -352,18 +398,58 @@ public class MarketPanel extends JPanel {
     private void handleSell(ResourceType type) {
         int quantity = (Integer) quantitySpinners.get(type).getValue();
 
-        if (playerInventory.getResourceCount(type) >= quantity) {
-            if (market.sellResource(type, playerInventory, quantity)) {
-                updateDisplay();
-                showNotification("Successfully sold " + quantity + " " + type, true);
-            } else {
-                showNotification("Failed to sell " + type, false);
-            }
+        if (game.getSnapshot().getResourceCount(type) >= quantity) {
+            game.submit(g -> g.getMarket().sellResource(type, g.getPlayer().getInventory(), quantity))
+                    .thenAcceptAsync(sold -> {
+                if (sold) {
+                    updateDisplay();
+                    showNotification("Successfully sold " + quantity + " " + type, true);
+                } else {
+                    showNotification("Failed to sell " + type, false);
+                }
+            }, SwingUtilities::invokeLater);
         } else {
             showNotification("Not enough resources to sell", false);
         }
     }
 
+    // The quote is only a preview: sellAll re-prices against whatever the market is when it runs
+    private void handleSellAll() {
+        game.submit(g -> g.getMarket().quoteSellAll(g.getPlayer().getInventory()))
+                .thenAcceptAsync(this::confirmSellAll, SwingUtilities::invokeLater);
+    }
+
+    private void confirmSellAll(BasketQuote quote) {
+        if (!quote.isFeasible()) {
+            showNotification("Cannot sell: " + quote.getFailureReason(), false);
+            return;
+        }
+
+        StringBuilder summary = new StringBuilder("Sell the following?\n\n");
+        for (Map.Entry<ResourceType, Integer> leg : quote.getQuantities().entrySet()) {
+            summary.append(String.format("%s x%d: $%d\n",
+                    leg.getKey(), leg.getValue(), quote.getLegTotal(leg.getKey())));
+        }
+        summary.append(String.format("\nTotal: $%d", quote.getTotal()));
+
+        int response = JOptionPane.showConfirmDialog(this, summary.toString(),
+                "Sell All Resources", JOptionPane.YES_NO_OPTION);
+        if (response != JOptionPane.YES_OPTION) {
+            return;
+        }
+
+        game.submit(g -> g.getMarket().sellAll(g.getPlayer().getInventory()))
+                .thenAcceptAsync(executed -> {
+            updateDisplay();
+            if (executed.isFeasible()) {
+                showNotification(String.format("Sold %d items for $%d",
+                        executed.getTotalItems(), executed.getTotal()), true);
+            } else {
+                showNotification("Failed to sell: " + executed.getFailureReason(), false);
+            }
+        }, SwingUtilities::invokeLater);
+    }
+
     private void showNotification(String message, boolean success) {
         JOptionPane.showMessageDialog(
                 this,
@@ -374,7 +460,8 @@ public class MarketPanel extends JPanel {
 
     private void updateButtonStates(ResourceType type) {
         int quantity = (Integer) quantitySpinners.get(type).getValue();
-        int playerResourceCount = playerInventory.getResourceCount(type);
+        WorldSnapshot snapshot = game.getSnapshot();
+        int playerResourceCount = snapshot.getResourceCount(type);
 
         // Find the buy and sell buttons for this resource
         Container resourcePanel = quantitySpinners.get(type).getParent().getParent();
@@ -384,8 +471,8 @@ public class MarketPanel extends JPanel {
                     if (button instanceof JButton) {
                         JButton btn = (JButton) button;
                         if (btn.getText().equals("Buy")) {
-                            btn.setEnabled(playerInventory.getMoney() >= market.getBuyPrice(type) * quantity
-                                    && market.getStock(type) >= quantity);
+                            btn.setEnabled(snapshot.getMoney() >= snapshot.getMarketBuyPrice(type) * quantity
+                                    && snapshot.getMarketStock(type) >= quantity);
                         } else if (btn.getText().equals("Sell")) {
                             btn.setEnabled(playerResourceCount >= quantity);
                         }
@@ -400,26 +487,29 @@ public class MarketPanel extends JPanel {
         updateTimer.start();
     }
 
+    // Reads only the published snapshot
     public void updateDisplay() {
+        WorldSnapshot snapshot = game.getSnapshot();
+
         // Update money display
-        moneyLabel.setText("Money: $" + playerInventory.getMoney());
+        moneyLabel.setText("Money: $" + snapshot.getMoney());
 
         // Update each resource card
         for (ResourceType type : ResourceType.values()) {
             if (type.getBaseHarvestTime() > 0) {
                 JLabel stockLabel = stockLabels.get(type);
                 if (stockLabel != null) {
-                    stockLabel.setText("Stock: " + market.getStock(type));
+                    stockLabel.setText("Stock: " + snapshot.getMarketStock(type));
                 }
 
                 JLabel priceLabel = priceLabels.get(type);
                 if (priceLabel != null) {
-                    priceLabel.setText("Buy: $" + market.getBuyPrice(type));
+                    priceLabel.setText("Buy: $" + snapshot.getMarketBuyPrice(type));
                 }
 
                 JLabel inventoryLabel = inventoryLabels.get(type);
                 if (inventoryLabel != null) {
-                    inventoryLabel.setText("Owned: " + playerInventory.getResourceCount(type));
+                    inventoryLabel.setText("Owned: " + snapshot.getResourceCount(type));
                 }
 
                 updateButtonStates(type);
@@ -430,14 +520,18 @@ public class MarketPanel extends JPanel {
         for (MachineType type : MachineType.values()) {
             JButton button = machineButtons.get(type);
             if (button != null) {
-                button.setEnabled(playerInventory.getMoney() >= type.getBasePrice());
+                button.setEnabled(snapshot.getMoney() >= type.getBasePrice());
             }
         }
 
         // Update control panel displays
         if (controlPanel != null) {
-            controlPanel.updateInventoryDisplay(playerInventory.getInventoryDisplay());
-            controlPanel.updateMoneyDisplay(playerInventory.getMoney());
+            controlPanel.updateInventoryDisplay(snapshot.getInventoryDisplay());
+            controlPanel.updateMoneyDisplay(snapshot.getMoney());
+        }
+
+        if (priceChart.isShowing()) {
+            priceChart.refresh();
         }
 
         revalidate();
@@ -0,0 +1,87 @@
+package com.resourcegame.ui;
+
+import com.resourcegame.core.Game;
+import com.resourcegame.core.WorldSnapshot;
+import com.resourcegame.utils.Position;
+
+import javax.swing.*;
+import java.awt.*;
+
+// The whole world at one pixel per block of tiles, drawn from the map panel's mipmap level
+// whose longer side first fits in MAX_SIZE. The mipmap already aggregates terrain and
+// machines and repaints this panel when they change; only the player is tracked here.
+public class MinimapPanel extends JPanel {
+    private static final int MAX_SIZE = 160; // Pixels along the map's longer side
+    private static final Color VIEWPORT_COLOR = new Color(255, 255, 255, 200);
+    private static final Color PLAYER_COLOR = new Color(30, 144, 255);
+
+    private final MapPanel mapPanel;
+    private final WorldMipmap mipmap;
+    private final int level;
+    private final int columns;
+    private final int rows;
+    private Position shownPlayer;
+
+    public MinimapPanel(Game game, MapPanel mapPanel) {
+        this.mapPanel = mapPanel;
+        this.mipmap = mapPanel.getMipmap();
+        int fit = 0;
+        while (fit < mipmap.getLevelCount() - 1
+                && Math.max(mipmap.getLevelWidth(fit), mipmap.getLevelHeight(fit)) > MAX_SIZE) {
+            fit++;
+        }
+        this.level = fit;
+        this.columns = mipmap.getLevelWidth(level);
+        this.rows = mipmap.getLevelHeight(level);
+
+        setPreferredSize(new Dimension(MAX_SIZE, MAX_SIZE * rows / columns));
+        setBorder(BorderFactory.createTitledBorder("World"));
+
+        mipmap.addChangeListener(this::repaint);
+        onSnapshot(game.getSnapshot());
+        mapPanel.addPropertyChangeListener("zoom", e -> repaint()); // The viewport rect changes size
+    }
+
+    public void onSnapshot(WorldSnapshot snapshot) {
+        Position player = snapshot.getPlayerPosition();
+        if (shownPlayer == null || player.getX() != shownPlayer.getX() || player.getY() != shownPlayer.getY()) {
+            shownPlayer = player;
+            repaint();
+        }
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        Insets insets = getInsets();
+        int availableWidth = getWidth() - insets.left - insets.right;
+        int availableHeight = getHeight() - insets.top - insets.bottom;
+        if (availableWidth <= 0 || availableHeight <= 0) {
+            return;
+        }
+
+        // One scale for both axes keeps the blocks square
+        float scale = Math.min((float) availableWidth / columns, (float) availableHeight / rows);
+        int width = Math.round(columns * scale);
+        int height = Math.round(rows * scale);
+        int left = insets.left + (availableWidth - width) / 2;
+        int top = insets.top + (availableHeight - height) / 2;
+        Graphics2D g2d = (Graphics2D) g;
+        g2d.translate(left, top);
+        mipmap.draw(g2d, level, scale, 0, 0, columns, rows);
+        g2d.translate(-left, -top);
+
+        // Map tiles to minimap pixels
+        float tileScale = scale / (1 << level);
+        Rectangle view = mapPanel.getVisibleTiles();
+        g.setColor(VIEWPORT_COLOR);
+        g.drawRect(left + (int) (view.x * tileScale), top + (int) (view.y * tileScale),
+                Math.max(1, (int) (view.width * tileScale)), Math.max(1, (int) (view.height * tileScale)));
+
+        if (shownPlayer != null) {
+            g.setColor(PLAYER_COLOR);
+            g.fillRect(left + (int) (shownPlayer.getX() * tileScale) - 1,
+                    top + (int) (shownPlayer.getY() * tileScale) - 1, 3, 3);
+        }
+    }
+}
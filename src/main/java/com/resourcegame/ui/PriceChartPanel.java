@@ -0,0 +1,121 @@
+package com.resourcegame.ui;
+
+import com.resourcegame.core.Game;
+import com.resourcegame.systems.PriceCandle;
+import com.resourcegame.systems.PriceHistory;
+import com.resourcegame.systems.PriceHistory.Resolution;
+import com.resourcegame.utils.ResourceType;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.Collections;
+import java.util.List;
+
+public class PriceChartPanel extends JPanel {
+    private static final Color BACKGROUND_COLOR = new Color(250, 250, 250);
+    private static final Color GRID_COLOR = new Color(220, 220, 220);
+    private static final Color RISING_COLOR = new Color(46, 204, 113);
+    private static final Color FALLING_COLOR = new Color(231, 76, 60);
+    private static final Font LABEL_FONT = new Font("Arial", Font.PLAIN, 10);
+    private static final int MARGIN = 30;
+
+    private final Game game;
+    private ResourceType resourceType;
+    private Resolution resolution;
+    // Copied out of the market by refresh(); painting never touches the live history
+    private List<PriceCandle> candles = Collections.emptyList();
+
+    public PriceChartPanel(Game game, ResourceType resourceType, Resolution resolution) {
+        this.game = game;
+        this.resourceType = resourceType;
+        this.resolution = resolution;
+        setBackground(BACKGROUND_COLOR);
+        setPreferredSize(new Dimension(600, 300));
+        refresh();
+    }
+
+    public void setResourceType(ResourceType resourceType) {
+        this.resourceType = resourceType;
+        refresh();
+    }
+
+    public void setResolution(Resolution resolution) {
+        this.resolution = resolution;
+        refresh();
+    }
+
+    // The market writes its history from the simulation and trader threads, so the copy is
+    // taken on the simulation thread under the market's lock and handed back to the EDT
+    public void refresh() {
+        ResourceType type = resourceType;
+        Resolution requested = resolution;
+        game.submit(g -> g.getMarket().getCandles(type, requested))
+                .thenAcceptAsync(copy -> {
+                    // A newer selection has its own refresh on the way
+                    if (type == resourceType && requested == resolution) {
+                        candles = copy;
+                        repaint();
+                    }
+                }, SwingUtilities::invokeLater);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        Graphics2D g2d = (Graphics2D) g;
+
+        List<PriceCandle> candles = this.candles;
+        int count = candles.size();
+        int chartWidth = getWidth() - MARGIN * 2;
+        int chartHeight = getHeight() - MARGIN * 2;
+        if (count == 0 || chartWidth <= 0 || chartHeight <= 0) {
+            g2d.setColor(Color.GRAY);
+            g2d.setFont(LABEL_FONT);
+            g2d.drawString("No price history yet", MARGIN, MARGIN);
+            return;
+        }
+
+        int minPrice = Integer.MAX_VALUE;
+        int maxPrice = Integer.MIN_VALUE;
+        for (PriceCandle candle : candles) {
+            minPrice = Math.min(minPrice, candle.getLow());
+            maxPrice = Math.max(maxPrice, candle.getHigh());
+        }
+        if (maxPrice == minPrice) {
+            maxPrice++;
+            minPrice = Math.max(0, minPrice - 1);
+        }
+
+        // Horizontal grid with min and max labels
+        g2d.setColor(GRID_COLOR);
+        g2d.drawRect(MARGIN, MARGIN, chartWidth, chartHeight);
+        g2d.drawLine(MARGIN, MARGIN + chartHeight / 2, MARGIN + chartWidth, MARGIN + chartHeight / 2);
+        g2d.setColor(Color.DARK_GRAY);
+        g2d.setFont(LABEL_FONT);
+        g2d.drawString("$" + maxPrice, 2, MARGIN + 4);
+        g2d.drawString("$" + minPrice, 2, MARGIN + chartHeight + 4);
+
+        // Always lay out the full capacity so candles keep a stable width
+        float slotWidth = (float) chartWidth / PriceHistory.ROLLUP_CAPACITY;
+        int bodyWidth = Math.max(1, (int) (slotWidth * 0.7f));
+        int offset = PriceHistory.ROLLUP_CAPACITY - count;
+
+        for (int i = 0; i < count; i++) {
+            PriceCandle candle = candles.get(i);
+            int centerX = MARGIN + (int) ((offset + i + 0.5f) * slotWidth);
+            int highY = toY(candle.getHigh(), minPrice, maxPrice, chartHeight);
+            int lowY = toY(candle.getLow(), minPrice, maxPrice, chartHeight);
+            int openY = toY(candle.getOpen(), minPrice, maxPrice, chartHeight);
+            int closeY = toY(candle.getClose(), minPrice, maxPrice, chartHeight);
+
+            g2d.setColor(candle.getClose() >= candle.getOpen() ? RISING_COLOR : FALLING_COLOR);
+            g2d.drawLine(centerX, highY, centerX, lowY);
+            g2d.fillRect(centerX - bodyWidth / 2, Math.min(openY, closeY),
+                    bodyWidth, Math.max(1, Math.abs(closeY - openY)));
+        }
+    }
+
+    private int toY(int price, int minPrice, int maxPrice, int chartHeight) {
+        return MARGIN + chartHeight - (int) ((long) (price - minPrice) * chartHeight / (maxPrice - minPrice));
+    }
+}
@@ -0,0 +1,128 @@
+package com.resourcegame.ui;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// Growable direct buffer used to build one save section at a time
+public class SaveBuffer {
+    private static final int DEFAULT_CAPACITY = 4096;
+    private ByteBuffer buffer;
+
+    public SaveBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public SaveBuffer(int initialCapacity) {
+        this.buffer = ByteBuffer.allocateDirect(Math.max(16, initialCapacity));
+    }
+
+    private void ensureCapacity(int extra) {
+        if (buffer.remaining() >= extra) {
+            return;
+        }
+        int required = buffer.position() + extra;
+        int newCapacity = Math.max(required, buffer.capacity() * 2);
+        ByteBuffer grown = ByteBuffer.allocateDirect(newCapacity);
+        buffer.flip();
+        grown.put(buffer);
+        buffer = grown;
+    }
+
+    public void putByte(int value) {
+        ensureCapacity(1);
+        buffer.put((byte) value);
+    }
+
+    public void putInt(int value) {
+        ensureCapacity(4);
+        buffer.putInt(value);
+    }
+
+    public void putLong(long value) {
+        ensureCapacity(8);
+        buffer.putLong(value);
+    }
+
+    public void putBytes(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        buffer.put(bytes);
+    }
+
+    public void putBytes(byte[] bytes, int offset, int length) {
+        ensureCapacity(length);
+        buffer.put(bytes, offset, length);
+    }
+
+    public void putBytes(ByteBuffer source) {
+        ensureCapacity(source.remaining());
+        buffer.put(source);
+    }
+
+    // Unsigned LEB128: small values (most coordinates and counts) take one byte
+    public void putVarint(int value) {
+        ensureCapacity(5);
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    // Zigzag keeps small negative values (e.g. -1 for unplaced) short as well
+    public void putSignedVarint(int value) {
+        putVarint((value << 1) ^ (value >> 31));
+    }
+
+    public void putString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        putVarint(bytes.length);
+        putBytes(bytes);
+    }
+
+    public int size() {
+        return buffer.position();
+    }
+
+    // Drops the contents but keeps the allocation, for scratch buffers reused in a loop
+    public void clear() {
+        buffer.clear();
+    }
+
+    // Read-only view of the written bytes, ready to hand to a channel
+    public ByteBuffer toReadBuffer() {
+        ByteBuffer view = buffer.duplicate();
+        view.flip();
+        return view;
+    }
+
+    public static int getVarint(ByteBuffer source) throws IOException {
+        int result = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            if (!source.hasRemaining()) {
+                throw new IOException("Truncated varint in save file");
+            }
+            byte b = source.get();
+            result |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("Malformed varint in save file");
+    }
+
+    public static int getSignedVarint(ByteBuffer source) throws IOException {
+        int raw = getVarint(source);
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    public static String getString(ByteBuffer source) throws IOException {
+        int length = getVarint(source);
+        if (length < 0 || length > source.remaining()) {
+            throw new IOException("Invalid string length in save file");
+        }
+        byte[] bytes = new byte[length];
+        source.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,385 @@
+package com.resourcegame.ui;
+
+import com.resourcegame.core.Game;
+import com.resourcegame.core.GameMap;
+import com.resourcegame.core.Tile;
+import com.resourcegame.entities.Inventory;
+import com.resourcegame.entities.Machine;
+import com.resourcegame.entities.MachineManager;
+import com.resourcegame.entities.Player;
+import com.resourcegame.systems.Market;
+import com.resourcegame.utils.Position;
+import com.resourcegame.utils.ResourceType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32C;
+
+/*
+ * Append-only journal of changes made since the last full binary save.
+ *
+ * Header:  int magic "RGJL", short version, long id of the save it applies to
+ * Records: int payload length, int CRC32C of payload, payload (byte kind + data)
+ *
+ * Each flush appends one batch of records closed by a COMMIT record. On load only
+ * complete, committed batches are replayed, so a torn final write is dropped.
+ * Once the journal grows past half the size of the save it is folded back into
+ * a fresh full save and started over. Change collection happens on the game
+ * thread; all file I/O happens on a single background thread.
+ */
+public class SaveJournal {
+    static final int MAGIC = 0x52474A4C; // "RGJL"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 14;
+    static final int RECORD_HEADER_SIZE = 8;
+
+    static final int RECORD_PLAYER = 2;
+    static final int RECORD_MACHINE = 3;
+    static final int RECORD_MACHINE_REMOVED = 4;
+    static final int RECORD_UNPLACED_MACHINES = 5;
+    static final int RECORD_MARKET_ROW = 6;
+    static final int RECORD_COMMIT = 7;
+
+    private static final long MIN_COMPACTION_BYTES = 64 * 1024;
+    private static final ResourceType[] RESOURCE_TYPES = ResourceType.values();
+
+    private final Path savePath;
+    private final Path journalPath;
+    private final ExecutorService ioExecutor;
+    private volatile boolean needsCompaction;
+    private volatile long saveSize;
+
+    // What was last written, per tracked object
+    private Game trackedGame;
+    private GameMap trackedMap;
+    private MachineManager trackedMachines;
+    private long journalSize;
+    private Map<Long, SavedMachine> machineVersions;
+    private int machineStructureVersion;
+    private int playerX;
+    private int playerY;
+    private int playerInventoryVersion;
+    private int[] marketVersions;
+
+    public SaveJournal(String saveFile) {
+        this.savePath = Paths.get(saveFile);
+        this.journalPath = journalPathFor(saveFile);
+        // One thread keeps journal appends and full saves in submission order
+        this.ioExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "autosave-io");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    static Path journalPathFor(String saveFile) {
+        return Paths.get(saveFile + ".journal");
+    }
+
+    // Collects what changed since the last flush (or snapshots everything when a full save
+    // is due) on the calling game thread, then hands the file work to the I/O thread.
+    // Completes with the number of bytes written.
+    public synchronized CompletableFuture<Long> flush(Game game) {
+        if (needsCompaction || !isTracking(game) || journalSize > Math.max(MIN_COMPACTION_BYTES, saveSize / 2)) {
+            return compact(game);
+        }
+
+        SaveBuffer batch = new SaveBuffer(256);
+        int records = appendChanges(game, batch);
+        if (records == 0) {
+            return CompletableFuture.completedFuture(0L);
+        }
+        appendRecord(batch, RECORD_COMMIT, null);
+        journalSize += batch.size();
+
+        return submit(() -> {
+            try (FileChannel channel = FileChannel.open(journalPath, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND)) {
+                ByteBuffer data = batch.toReadBuffer();
+                while (data.hasRemaining()) {
+                    channel.write(data);
+                }
+                channel.force(false);
+            }
+            return (long) batch.size();
+        });
+    }
+
+    // Full save, then an empty journal stamped with the new save's id. A crash between the
+    // two leaves the old journal behind, which no longer matches and is ignored on load.
+    public synchronized CompletableFuture<Long> compact(Game game) {
+        SaveSnapshot snapshot = BinaryGameState.capture(game);
+        track(game);
+        needsCompaction = false;
+        journalSize = HEADER_SIZE;
+
+        return submit(() -> {
+            long newSaveId = BinaryGameState.write(snapshot, savePath);
+            writeHeader(newSaveId);
+            saveSize = Files.size(savePath);
+            return saveSize + HEADER_SIZE;
+        });
+    }
+
+    public void shutdown() {
+        ioExecutor.shutdown();
+    }
+
+    private CompletableFuture<Long> submit(IoTask task) {
+        CompletableFuture<Long> result = new CompletableFuture<>();
+        ioExecutor.execute(() -> {
+            try {
+                result.complete(task.run());
+            } catch (IOException | RuntimeException e) {
+                // The baseline already moved past what failed to reach disk
+                needsCompaction = true;
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    private interface IoTask {
+        long run() throws IOException;
+    }
+
+    private boolean isTracking(Game game) {
+        return trackedGame == game && trackedMap == game.getMap()
+                && trackedMachines == game.getMachineManager();
+    }
+
+    private void writeHeader(long id) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC);
+        header.putShort((short) VERSION);
+        header.putLong(id);
+        header.flip();
+        try (FileChannel channel = FileChannel.open(journalPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+        }
+    }
+
+    private void track(Game game) {
+        trackedGame = game;
+        trackedMap = game.getMap();
+        trackedMachines = game.getMachineManager();
+
+        machineVersions = new HashMap<>();
+        for (Machine machine : trackedMachines.getAllMachines()) {
+            machineVersions.put(Position.key(machine.getPosition().getX(), machine.getPosition().getY()),
+                    new SavedMachine(machine));
+        }
+        machineStructureVersion = trackedMachines.getStructureVersion();
+
+        Player player = game.getPlayer();
+        playerX = player.getPosition().getX();
+        playerY = player.getPosition().getY();
+        playerInventoryVersion = player.getInventory().getModCount();
+
+        marketVersions = new int[RESOURCE_TYPES.length];
+        for (ResourceType type : RESOURCE_TYPES) {
+            marketVersions[type.ordinal()] = game.getMarket().getVersion(type);
+        }
+    }
+
+    private int appendChanges(Game game, SaveBuffer batch) {
+        int records = 0;
+        SaveBuffer record;
+
+        // Terrain never changes after generation, so the map itself is never journaled;
+        // everything placed on it is covered by the machine records
+        Player player = game.getPlayer();
+        Inventory inventory = player.getInventory();
+        if (player.getPosition().getX() != playerX || player.getPosition().getY() != playerY
+                || inventory.getModCount() != playerInventoryVersion) {
+            record = new SaveBuffer(64);
+            BinaryGameState.writePlayer(record, player);
+            appendRecord(batch, RECORD_PLAYER, record);
+            record = new SaveBuffer(32);
+            BinaryGameState.writeUnplacedMachines(record, inventory);
+            appendRecord(batch, RECORD_UNPLACED_MACHINES, record);
+            playerX = player.getPosition().getX();
+            playerY = player.getPosition().getY();
+            playerInventoryVersion = inventory.getModCount();
+            records += 2;
+        }
+
+        MachineManager machineManager = game.getMachineManager();
+        List<Machine> machines = machineManager.getAllMachines();
+        if (machineManager.getStructureVersion() != machineStructureVersion) {
+            Set<Long> present = new HashSet<>();
+            for (Machine machine : machines) {
+                present.add(Position.key(machine.getPosition().getX(), machine.getPosition().getY()));
+            }
+            for (Long key : new ArrayList<>(machineVersions.keySet())) {
+                if (!present.contains(key)) {
+                    record = new SaveBuffer(16);
+                    record.putSignedVarint(Position.keyX(key));
+                    record.putSignedVarint(Position.keyY(key));
+                    appendRecord(batch, RECORD_MACHINE_REMOVED, record);
+                    machineVersions.remove(key);
+                    records++;
+                }
+            }
+            machineStructureVersion = machineManager.getStructureVersion();
+        }
+        for (Machine machine : machines) {
+            long key = Position.key(machine.getPosition().getX(), machine.getPosition().getY());
+            SavedMachine saved = machineVersions.get(key);
+            // A replaced machine can have the same version as the old one, so compare instances too
+            if (saved == null || saved.machine != machine || saved.version != machine.getStateVersion()) {
+                record = new SaveBuffer(64);
+                BinaryGameState.writeMachine(record, machine);
+                appendRecord(batch, RECORD_MACHINE, record);
+                machineVersions.put(key, new SavedMachine(machine));
+                records++;
+            }
+        }
+
+        Market market = game.getMarket();
+        for (ResourceType type : RESOURCE_TYPES) {
+            int version = market.getVersion(type);
+            if (version != marketVersions[type.ordinal()]) {
+                record = new SaveBuffer(16);
+                BinaryGameState.writeMarketRow(record, market, type);
+                appendRecord(batch, RECORD_MARKET_ROW, record);
+                marketVersions[type.ordinal()] = version;
+                records++;
+            }
+        }
+        return records;
+    }
+
+    // The machine last written for a tile and its state version at the time
+    private static class SavedMachine {
+        final Machine machine;
+        final long version;
+
+        SavedMachine(Machine machine) {
+            this.machine = machine;
+            this.version = machine.getStateVersion();
+        }
+    }
+
+    private static void appendRecord(SaveBuffer batch, int kind, SaveBuffer payload) {
+        ByteBuffer data = payload != null ? payload.toReadBuffer() : ByteBuffer.allocate(0);
+        CRC32C crc = new CRC32C();
+        crc.update(kind);
+        crc.update(data.duplicate());
+        batch.putInt(data.remaining() + 1);
+        batch.putInt((int) crc.getValue());
+        batch.putByte(kind);
+        batch.putBytes(data);
+    }
+
+    // Applies every committed batch from the save's journal, if there is one for this save.
+    // Returns the number of batches replayed.
+    public static int replay(Game game, String saveFile, long saveId) throws IOException {
+        Path path = journalPathFor(saveFile);
+        if (saveId == 0 || !Files.exists(path)) {
+            return 0;
+        }
+
+        ByteBuffer journal = ByteBuffer.wrap(Files.readAllBytes(path));
+        if (journal.limit() < HEADER_SIZE || journal.getInt(0) != MAGIC
+                || journal.getShort(4) != VERSION || journal.getLong(6) != saveId) {
+            return 0; // Left over from an older save
+        }
+        journal.position(HEADER_SIZE);
+
+        Map<Long, Machine> machinesByPosition = new HashMap<>();
+        for (Machine machine : game.getMachineManager().getAllMachines()) {
+            machinesByPosition.put(Position.key(machine.getPosition().getX(), machine.getPosition().getY()), machine);
+        }
+
+        List<ByteBuffer> pending = new ArrayList<>();
+        int batches = 0;
+        while (journal.remaining() >= RECORD_HEADER_SIZE) {
+            int length = journal.getInt(journal.position());
+            int checksum = journal.getInt(journal.position() + 4);
+            if (length < 1 || length > journal.remaining() - RECORD_HEADER_SIZE) {
+                break; // Torn write at the tail
+            }
+            ByteBuffer payload = journal.duplicate();
+            payload.position(journal.position() + RECORD_HEADER_SIZE);
+            payload.limit(payload.position() + length);
+            CRC32C crc = new CRC32C();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            journal.position(payload.limit());
+
+            if (payload.get(payload.position()) == RECORD_COMMIT) {
+                for (ByteBuffer record : pending) {
+                    applyRecord(game, record, machinesByPosition);
+                }
+                pending.clear();
+                batches++;
+            } else {
+                pending.add(payload);
+            }
+        }
+        return batches;
+    }
+
+    private static void applyRecord(Game game, ByteBuffer record, Map<Long, Machine> machinesByPosition)
+            throws IOException {
+        int kind = record.get();
+        switch (kind) {
+            case RECORD_PLAYER:
+                BinaryGameState.readPlayer(record, game.getPlayer());
+                break;
+            case RECORD_UNPLACED_MACHINES:
+                BinaryGameState.readUnplacedMachines(record, game.getPlayer().getInventory());
+                break;
+            case RECORD_MACHINE: {
+                // Peek at the position, replace whatever machine stood there
+                ByteBuffer peek = record.duplicate();
+                SaveBuffer.getVarint(peek);
+                long key = Position.key(SaveBuffer.getSignedVarint(peek), SaveBuffer.getSignedVarint(peek));
+                removeMachine(game, machinesByPosition.remove(key));
+                machinesByPosition.put(key, BinaryGameState.readMachine(record, game));
+                break;
+            }
+            case RECORD_MACHINE_REMOVED: {
+                long key = Position.key(SaveBuffer.getSignedVarint(record), SaveBuffer.getSignedVarint(record));
+                removeMachine(game, machinesByPosition.remove(key));
+                break;
+            }
+            case RECORD_MARKET_ROW:
+                BinaryGameState.readMarketRow(record, game.getMarket());
+                break;
+            default:
+                throw new IOException("Unknown journal record " + kind);
+        }
+    }
+
+    private static void removeMachine(Game game, Machine machine) {
+        if (machine == null) {
+            return;
+        }
+        game.getMachineManager().removeMachine(machine.getPosition());
+        Tile tile = game.getMap().getTile(machine.getPosition());
+        if (tile != null && tile.getMachine() == machine) {
+            tile.setMachine(null);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.resourcegame.ui;
+
+import com.resourcegame.core.RegionLoader;
+import com.resourcegame.core.Tile;
+
+// Consistent cut of the world taken between ticks. The small sections are encoded on the
+// spot; map regions are shared with the live map and only packed when the snapshot is written.
+public class SaveSnapshot {
+    final int width;
+    final int height;
+    final int regionsX;
+    final int regionsY;
+    final Tile[][] regions;
+    final RegionLoader regionSource;
+    final SaveBuffer player;
+    final SaveBuffer machines;
+    final SaveBuffer unplacedMachines;
+    final SaveBuffer market;
+    final boolean compressed;
+
+    SaveSnapshot(int width, int height, int regionsX, int regionsY, Tile[][] regions, RegionLoader regionSource,
+            SaveBuffer player, SaveBuffer machines, SaveBuffer unplacedMachines, SaveBuffer market,
+            boolean compressed) {
+        this.width = width;
+        this.height = height;
+        this.regionsX = regionsX;
+        this.regionsY = regionsY;
+        this.regions = regions;
+        this.regionSource = regionSource;
+        this.player = player;
+        this.machines = machines;
+        this.unplacedMachines = unplacedMachines;
+        this.market = market;
+        this.compressed = compressed;
+    }
+
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+}
@@ -11,6 +11,7 @@ public class SettingsDialog extends JDialog {
     private JCheckBox musicCheckbox;
     private JSlider volumeSlider;
     private JSpinner autosaveSpinner;
+    private JCheckBox compressionCheckbox;
     private boolean settingsChanged = false;
     
     public SettingsDialog(Frame owner) {
@@ -84,6 +85,10 @@ public class SettingsDialog extends JDialog {
         autosavePanel.add(autosaveSpinner);
         
         gamePanel.add(autosavePanel);
+
+        compressionCheckbox = new JCheckBox("Compress Save Files");
+        compressionCheckbox.setFont(new Font("Arial", Font.PLAIN, 14));
+        gamePanel.add(compressionCheckbox);
         
         // Buttons Panel
         JPanel buttonPanel = new JPanel();
@@ -114,6 +119,7 @@ public class SettingsDialog extends JDialog {
         musicCheckbox.addChangeListener(changeListener);
         volumeSlider.addChangeListener(changeListener);
         autosaveSpinner.addChangeListener(changeListener);
+        compressionCheckbox.addChangeListener(changeListener);
         
         // Add all panels to main panel with spacing
         mainPanel.add(audioPanel);
@@ -139,6 +145,7 @@ public class SettingsDialog extends JDialog {
         musicCheckbox.setSelected(settings.isMusicEnabled());
         volumeSlider.setValue(settings.getVolumeLevel());
         autosaveSpinner.setValue(settings.getAutosaveInterval());
+        compressionCheckbox.setSelected(settings.isSaveCompressionEnabled());
         settingsChanged = false;
     }
     
@@ -151,6 +158,7 @@ public class SettingsDialog extends JDialog {
         settings.setMusicEnabled(musicCheckbox.isSelected());
         settings.setVolumeLevel(volumeSlider.getValue());
         settings.setAutosaveInterval((Integer) autosaveSpinner.getValue());
+        settings.setSaveCompressionEnabled(compressionCheckbox.isSelected());
         
         settings.saveSettings();
         applySettings();
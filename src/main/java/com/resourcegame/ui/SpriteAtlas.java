@@ -0,0 +1,289 @@
+package com.resourcegame.ui;
+
+import com.resourcegame.utils.MachineStatus;
+import com.resourcegame.utils.MachineType;
+import com.resourcegame.utils.ResourceType;
+import com.resourcegame.utils.TileType;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+// Every tile-sized glyph the map draws, rendered once so painting a frame is just image copies.
+// Sprites are drawn at a tile's top-left corner.
+public class SpriteAtlas {
+    public static final int TILE_SIZE = 40;
+    public static final int REGROWTH_STEPS = 24;
+
+    private static final int PADDING = 8;
+    private static final Color GRID_COLOR = new Color(0, 0, 0, 50);
+    private static final Color RESOURCE_COLOR = new Color(34, 139, 34); // Darker green
+    private static final Color REGROWTH_SHADE = new Color(0, 0, 0, 100);
+    private static final Color MARKET_COLOR = new Color(184, 134, 11);
+    private static final Color MARKET_HIGHLIGHT = new Color(255, 215, 0, 100); // Semi-transparent gold
+    private static final Color SELECTION_COLOR = new Color(255, 255, 0, 100);
+    private static final Color ADJACENT_COLOR = new Color(255, 255, 255, 50);
+    private static final Font SMALL_LABEL = new Font("Arial", Font.BOLD, 10);
+    private static final Font MARKET_LABEL = new Font("Arial", Font.BOLD, 16);
+
+    private static SpriteAtlas instance;
+
+    private final GraphicsConfiguration config;
+    private final BufferedImage[] tiles = new BufferedImage[TileType.values().length];
+    private final BufferedImage[] resources = new BufferedImage[ResourceType.values().length];
+    private final BufferedImage[][] regrowth = new BufferedImage[ResourceType.values().length][REGROWTH_STEPS];
+    // Harvesters have one sprite per target letter plus one for no target; factories just one
+    private final BufferedImage[][] machines = new BufferedImage[MachineType.values().length][];
+    private final BufferedImage[] statusDots = new BufferedImage[MachineStatus.values().length];
+    private final BufferedImage player;
+    private final BufferedImage selection;
+    private final BufferedImage adjacent;
+    private final BufferedImage marketHighlight;
+
+    public static synchronized SpriteAtlas getInstance() {
+        if (instance == null) {
+            instance = new SpriteAtlas();
+        }
+        return instance;
+    }
+
+    private SpriteAtlas() {
+        config = GraphicsEnvironment.isHeadless() ? null
+                : GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+
+        for (TileType type : TileType.values()) {
+            tiles[type.ordinal()] = renderTile(type);
+        }
+        for (ResourceType type : ResourceType.values()) {
+            resources[type.ordinal()] = renderResource(type);
+            for (int step = 0; step < REGROWTH_STEPS; step++) {
+                regrowth[type.ordinal()][step] = renderRegrowth(type, step);
+            }
+        }
+        for (MachineType type : MachineType.values()) {
+            if (isHarvester(type)) {
+                BufferedImage[] byTarget = new BufferedImage[ResourceType.values().length + 1];
+                for (ResourceType target : ResourceType.values()) {
+                    byTarget[target.ordinal()] = renderMachine(type, target.toString().substring(0, 1));
+                }
+                byTarget[ResourceType.values().length] = renderMachine(type, "H");
+                machines[type.ordinal()] = byTarget;
+            } else {
+                machines[type.ordinal()] = new BufferedImage[] { renderMachine(type, "F") };
+            }
+        }
+        for (MachineStatus status : MachineStatus.values()) {
+            statusDots[status.ordinal()] = renderStatusDot(status);
+        }
+        player = renderPlayer();
+        selection = renderOutline(SELECTION_COLOR, new BasicStroke(2));
+        adjacent = renderOutline(ADJACENT_COLOR,
+                new BasicStroke(2, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND, 0, new float[] { 5 }, 0));
+        marketHighlight = renderOutline(MARKET_HIGHLIGHT, new BasicStroke(2));
+    }
+
+    // Base colour, the market symbol and the tile's left and top grid lines
+    public BufferedImage getTile(TileType type) {
+        return tiles[type.ordinal()];
+    }
+
+    public BufferedImage getResource(ResourceType type) {
+        return resources[type.ordinal()];
+    }
+
+    // Shading for a resource that is growing back, progress 0..1
+    public BufferedImage getRegrowth(ResourceType type, float progress) {
+        int step = Math.max(0, Math.min(REGROWTH_STEPS - 1, (int) (progress * REGROWTH_STEPS)));
+        return regrowth[type.ordinal()][step];
+    }
+
+    public BufferedImage getMachine(MachineType type, ResourceType target) {
+        BufferedImage[] sprites = machines[type.ordinal()];
+        if (sprites.length == 1) {
+            return sprites[0];
+        }
+        return sprites[target != null ? target.ordinal() : sprites.length - 1];
+    }
+
+    public BufferedImage getStatusDot(MachineStatus status) {
+        return statusDots[status.ordinal()];
+    }
+
+    public BufferedImage getPlayer() { return player; }
+    public BufferedImage getSelection() { return selection; }
+    public BufferedImage getAdjacent() { return adjacent; }
+    public BufferedImage getMarketHighlight() { return marketHighlight; }
+
+    public static Color getTileColor(TileType type) {
+        switch (type) {
+            case EMPTY:
+                return new Color(245, 245, 245); // Light gray
+            case RESOURCE:
+                return new Color(144, 238, 144); // Light green
+            case MARKET:
+                return new Color(255, 223, 186); // Light orange
+            case STARTING:
+                return new Color(176, 196, 222); // Light steel blue
+            case BLOCKED:
+                return new Color(169, 169, 169); // Dark gray
+            default:
+                return Color.WHITE;
+        }
+    }
+
+    // Flat colour of a resource for views too small for its sprite
+    public static Color getResourceColor(ResourceType type) {
+        switch (type) {
+            case WOOD:
+                return new Color(34, 139, 34);   // Forest green
+            case STONE:
+                return new Color(128, 128, 128); // Gray
+            case IRON:
+                return new Color(176, 196, 222); // Steel
+            case GOLD:
+                return new Color(255, 215, 0);   // Gold
+            case FOOD:
+                return new Color(154, 205, 50);  // Yellow green
+            default:
+                return new Color(144, 238, 144); // Light green
+        }
+    }
+
+    public static Color getMachineColor(MachineType type) {
+        if (isHarvester(type)) {
+            return type.toString().contains("ADVANCED") ?
+                   new Color(70, 130, 180) :  // Steel blue for advanced
+                   new Color(100, 149, 237);  // Cornflower blue for basic
+        } else {
+            return type.toString().contains("ADVANCED") ?
+                   new Color(139, 69, 19) :   // Saddle brown for advanced
+                   new Color(160, 82, 45);    // Sienna for basic
+        }
+    }
+
+    public static Color getStatusColor(MachineStatus status) {
+        switch (status) {
+            case WORKING:
+                return new Color(50, 205, 50); // Lime green
+            case INVENTORY_FULL:
+                return new Color(255, 0, 0);   // Red
+            case INVENTORY_NEARLY_FULL:
+                return new Color(255, 165, 0); // Orange
+            case NEEDS_CONFIG:
+                return new Color(255, 215, 0); // Yellow
+            case INSUFFICIENT_RESOURCES:
+                return new Color(255, 69, 0);  // Red-Orange
+            default:
+                return new Color(128, 128, 128); // Gray
+        }
+    }
+
+    private static boolean isHarvester(MachineType type) {
+        return type.toString().contains("HARVESTER");
+    }
+
+    private BufferedImage createSprite(boolean opaque) {
+        if (config != null) {
+            return config.createCompatibleImage(TILE_SIZE, TILE_SIZE,
+                    opaque ? Transparency.OPAQUE : Transparency.TRANSLUCENT);
+        }
+        return new BufferedImage(TILE_SIZE, TILE_SIZE, opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+    }
+
+    private static Graphics2D begin(BufferedImage sprite) {
+        Graphics2D g2d = sprite.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        return g2d;
+    }
+
+    private BufferedImage renderTile(TileType type) {
+        BufferedImage sprite = createSprite(true);
+        Graphics2D g2d = begin(sprite);
+        g2d.setColor(getTileColor(type));
+        g2d.fillRect(0, 0, TILE_SIZE, TILE_SIZE);
+
+        if (type == TileType.MARKET) {
+            g2d.setColor(MARKET_COLOR);
+            g2d.fillRect(PADDING, PADDING, TILE_SIZE - (PADDING * 2), TILE_SIZE - (PADDING * 2));
+            drawCenteredLabel(g2d, "M", MARKET_LABEL);
+        }
+
+        // The map's right and bottom edges are drawn separately
+        g2d.setColor(GRID_COLOR);
+        g2d.drawLine(0, 0, 0, TILE_SIZE - 1);
+        g2d.drawLine(1, 0, TILE_SIZE - 1, 0);
+        g2d.dispose();
+        return sprite;
+    }
+
+    private BufferedImage renderResource(ResourceType type) {
+        BufferedImage sprite = createSprite(false);
+        Graphics2D g2d = begin(sprite);
+        g2d.setColor(RESOURCE_COLOR);
+        g2d.fillOval(PADDING, PADDING, TILE_SIZE - (PADDING * 2), TILE_SIZE - (PADDING * 2));
+        drawCenteredLabel(g2d, type.toString().substring(0, 1), SMALL_LABEL);
+        g2d.dispose();
+        return sprite;
+    }
+
+    // Drawn over the resource sprite; repeats the letter so it stays above the shading
+    private BufferedImage renderRegrowth(ResourceType type, int step) {
+        BufferedImage sprite = createSprite(false);
+        Graphics2D g2d = begin(sprite);
+        float progress = (float) step / REGROWTH_STEPS;
+        g2d.setColor(REGROWTH_SHADE);
+        g2d.fillArc(PADDING, PADDING, TILE_SIZE - (PADDING * 2), TILE_SIZE - (PADDING * 2),
+                90, (int) (360 * (1.0f - progress)));
+        drawCenteredLabel(g2d, type.toString().substring(0, 1), SMALL_LABEL);
+        g2d.dispose();
+        return sprite;
+    }
+
+    private BufferedImage renderMachine(MachineType type, String indicator) {
+        BufferedImage sprite = createSprite(false);
+        Graphics2D g2d = begin(sprite);
+        g2d.setColor(getMachineColor(type));
+        g2d.fillRect(PADDING, PADDING, TILE_SIZE - (PADDING * 2), TILE_SIZE - (PADDING * 2));
+        drawCenteredLabel(g2d, indicator, SMALL_LABEL);
+        g2d.dispose();
+        return sprite;
+    }
+
+    private BufferedImage renderStatusDot(MachineStatus status) {
+        BufferedImage sprite = createSprite(false);
+        Graphics2D g2d = begin(sprite);
+        g2d.setColor(getStatusColor(status));
+        g2d.fillOval(TILE_SIZE - 10, 5, 6, 6);
+        g2d.dispose();
+        return sprite;
+    }
+
+    private BufferedImage renderPlayer() {
+        int padding = 5;
+        BufferedImage sprite = createSprite(false);
+        Graphics2D g2d = begin(sprite);
+        // Shadow, then the player
+        g2d.setColor(new Color(0, 0, 0, 50));
+        g2d.fillOval(padding + 2, padding + 2, TILE_SIZE - (padding * 2), TILE_SIZE - (padding * 2));
+        g2d.setColor(new Color(30, 144, 255)); // Dodger blue
+        g2d.fillOval(padding, padding, TILE_SIZE - (padding * 2), TILE_SIZE - (padding * 2));
+        g2d.dispose();
+        return sprite;
+    }
+
+    private BufferedImage renderOutline(Color color, Stroke stroke) {
+        BufferedImage sprite = createSprite(false);
+        Graphics2D g2d = begin(sprite);
+        g2d.setColor(color);
+        g2d.setStroke(stroke);
+        g2d.drawRect(2, 2, TILE_SIZE - 4, TILE_SIZE - 4);
+        g2d.dispose();
+        return sprite;
+    }
+
+    private static void drawCenteredLabel(Graphics2D g2d, String label, Font font) {
+        g2d.setColor(Color.WHITE);
+        g2d.setFont(font);
+        FontMetrics fm = g2d.getFontMetrics();
+        g2d.drawString(label, (TILE_SIZE - fm.stringWidth(label)) / 2, (TILE_SIZE + fm.getAscent()) / 2);
+    }
+}
@@ -1,7 +1,10 @@
 package com.resourcegame.ui;
 
-import com.resourcegame.entities.Factory;
-import com.resourcegame.entities.Inventory;
+import com.resourcegame.core.Game;
+import com.resourcegame.core.WorldSnapshot;
+import com.resourcegame.core.WorldSnapshot.MachineView;
+import com.resourcegame.entities.Machine;
+import com.resourcegame.utils.Position;
 import com.resourcegame.utils.ResourceType;
 import com.resourcegame.systems.Recipe;
 
@@ -10,14 +13,14 @@ import java.awt.*;
 import java.util.Map;
 
 public class TransferDialog extends JDialog {
-    private final Factory factory;
-    private final Inventory playerInventory;
+    private final Game game;
+    private final Position position;
     private JPanel mainPanel;
 
-public TransferDialog(Window owner, Factory factory, Inventory playerInventory) {
+public TransferDialog(Window owner, Game game, Position position) {
     super(owner, "Transfer Resources", ModalityType.APPLICATION_MODAL);
-    this.factory = factory;
-    this.playerInventory = playerInventory;
+    this.game = game;
+    this.position = position;
     
     initializeComponents();
     
@@ -31,14 +34,18 @@ public TransferDialog(Window owner, Factory factory, Inventory playerInventory)
         mainPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
 
         // Get current recipe requirements
-        Recipe recipe = factory.getSelectedRecipe();
+        WorldSnapshot snapshot = game.getSnapshot();
+        MachineView factory = snapshot.getMachineAt(position.getX(), position.getY());
+        Recipe recipe = factory != null && factory.getRecipeName() != null
+                ? game.getCraftingSystem().getRecipe(factory.getRecipeName()) : null;
         if (recipe != null) {
             // Add recipe info section
             addRecipeInfoSection(recipe);
             
             // Add transfer controls for each required resource
             for (Map.Entry<ResourceType, Integer> ingredient : recipe.getIngredients().entrySet()) {
-                addResourceTransferPanel(ingredient.getKey(), ingredient.getValue());
+                addResourceTransferPanel(ingredient.getKey(), ingredient.getValue(),
+                        factory.getResourceCount(ingredient.getKey()), snapshot.getResourceCount(ingredient.getKey()));
             }
         } else {
             mainPanel.add(new JLabel("No recipe selected in factory"));
@@ -75,7 +82,7 @@ public TransferDialog(Window owner, Factory factory, Inventory playerInventory)
         mainPanel.add(Box.createVerticalStrut(10));
     }
 
-    private void addResourceTransferPanel(ResourceType type, int required) {
+    private void addResourceTransferPanel(ResourceType type, int required, int inFactory, int inPlayer) {
         JPanel resourcePanel = new JPanel(new BorderLayout(5, 0));
         resourcePanel.setBorder(BorderFactory.createCompoundBorder(
                 BorderFactory.createLineBorder(Color.LIGHT_GRAY),
@@ -85,8 +92,6 @@ public TransferDialog(Window owner, Factory factory, Inventory playerInventory)
         JPanel infoPanel = new JPanel(new GridLayout(2, 1));
         infoPanel.add(new JLabel(type.toString()));
         
-        int inFactory = factory.getInventory().getResourceCount(type);
-        int inPlayer = playerInventory.getResourceCount(type);
         JLabel countLabel = new JLabel(String.format("Required: %d | In Factory: %d | You have: %d",
                 required, inFactory, inPlayer));
         infoPanel.add(countLabel);
@@ -110,10 +115,20 @@ public TransferDialog(Window owner, Factory factory, Inventory playerInventory)
             JButton transferButton = new JButton("Transfer");
             transferButton.addActionListener(e -> {
                 int amount = (Integer) amountSpinner.getValue();
-                if (playerInventory.removeResource(type, amount)) {
-                    factory.getInventory().addResource(type, amount);
-                    dispose();  // Close dialog after transfer
-                }
+                int x = position.getX();
+                int y = position.getY();
+                game.submit(g -> {
+                    Machine factory = g.getMachineManager().getMachineAt(x, y);
+                    if (factory != null && g.getPlayer().getInventory().removeResource(type, amount)) {
+                        factory.getInventory().addResource(type, amount);
+                        return true;
+                    }
+                    return false;
+                }).thenAcceptAsync(transferred -> {
+                    if (transferred) {
+                        dispose();  // Close dialog after transfer
+                    }
+                }, SwingUtilities::invokeLater);
             });
 
             transferPanel.add(amountSpinner);
@@ -0,0 +1,179 @@
+package com.resourcegame.ui;
+
+import com.resourcegame.core.GameEvent;
+import com.resourcegame.core.WorldSnapshot;
+import com.resourcegame.utils.Position;
+import com.resourcegame.utils.ResourceType;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Carries game events from the simulation thread to the EDT. Everything posted before the
+// next delivery is merged: one event per tile, machine, inventory owner and market resource,
+// and only the latest snapshot. At most one delivery is queued on the EDT at a time, and
+// deliveries are at least a frame apart.
+public class UIEventBus {
+    private static final int FRAME_MILLIS = 16;
+
+    private final List<GameUIListener> listeners = new CopyOnWriteArrayList<>();
+    private final Object lock = new Object();
+    private final Timer frameTimer;
+
+    // Pending batch, guarded by lock
+    private WorldSnapshot pendingSnapshot;
+    private boolean reset;
+    private final Map<Long, GameEvent.TileChanged> tiles = new LinkedHashMap<>();
+    private final Map<Long, GameEvent.MachineStatusChanged> machines = new LinkedHashMap<>();
+    private final Map<Long, GameEvent.InventoryChanged> machineInventories = new LinkedHashMap<>();
+    private GameEvent.InventoryChanged playerInventory;
+    private final Map<ResourceType, GameEvent.MarketChanged> market = new EnumMap<>(ResourceType.class);
+    private GameEvent.PlayerMoved playerMoved;
+    private boolean scheduled;
+
+    private long lastDelivery; // EDT only
+
+    public UIEventBus() {
+        frameTimer = new Timer(FRAME_MILLIS, e -> deliver());
+        frameTimer.setRepeats(false);
+    }
+
+    public void addListener(GameUIListener listener) {
+        if (listener != null && !listeners.contains(listener)) {
+            listeners.add(listener);
+        }
+    }
+
+    public void removeListener(GameUIListener listener) {
+        listeners.remove(listener);
+    }
+
+    // Safe to call from any thread
+    public void post(WorldSnapshot snapshot, List<GameEvent> events) {
+        synchronized (lock) {
+            pendingSnapshot = snapshot;
+            for (GameEvent event : events) {
+                merge(event);
+            }
+            if (scheduled) {
+                return;
+            }
+            scheduled = true;
+        }
+        SwingUtilities.invokeLater(this::deliverWhenDue);
+    }
+
+    private void merge(GameEvent event) {
+        if (event instanceof GameEvent.WorldReset) {
+            // Listeners redraw everything anyway
+            clearPending();
+            reset = true;
+        } else if (reset) {
+            return;
+        } else if (event instanceof GameEvent.TileChanged) {
+            GameEvent.TileChanged tile = (GameEvent.TileChanged) event;
+            GameEvent.TileChanged old = tiles.put(Position.key(tile.getX(), tile.getY()), tile);
+            if (old != null && old.isTerrainChanged() && !tile.isTerrainChanged()) {
+                tiles.put(Position.key(tile.getX(), tile.getY()), old);
+            }
+        } else if (event instanceof GameEvent.MachineStatusChanged) {
+            GameEvent.MachineStatusChanged machine = (GameEvent.MachineStatusChanged) event;
+            long key = Position.key(machine.getPosition().getX(), machine.getPosition().getY());
+            GameEvent.MachineStatusChanged old = machines.get(key);
+            if (old == null) {
+                machines.put(key, machine);
+            } else if (old.isPlaced() && machine.isRemoved()) {
+                // Never shown, and neither is anything that happened to its inventory
+                machines.remove(key);
+                machineInventories.remove(key);
+            } else {
+                machines.put(key, new GameEvent.MachineStatusChanged(machine.getPosition(),
+                        old.getOldStatus(), machine.getNewStatus(), machine.getMachine()));
+            }
+        } else if (event instanceof GameEvent.InventoryChanged) {
+            GameEvent.InventoryChanged inventory = (GameEvent.InventoryChanged) event;
+            if (inventory.isPlayer()) {
+                playerInventory = combine(playerInventory, inventory);
+            } else {
+                long key = Position.key(inventory.getOwner().getX(), inventory.getOwner().getY());
+                machineInventories.put(key, combine(machineInventories.get(key), inventory));
+            }
+        } else if (event instanceof GameEvent.MarketChanged) {
+            GameEvent.MarketChanged change = (GameEvent.MarketChanged) event;
+            market.put(change.getType(), change);
+        } else if (event instanceof GameEvent.PlayerMoved) {
+            GameEvent.PlayerMoved move = (GameEvent.PlayerMoved) event;
+            playerMoved = playerMoved == null ? move : new GameEvent.PlayerMoved(playerMoved.getFrom(), move.getTo());
+        }
+    }
+
+    private static GameEvent.InventoryChanged combine(GameEvent.InventoryChanged old, GameEvent.InventoryChanged change) {
+        if (old == null) {
+            return change;
+        }
+        return new GameEvent.InventoryChanged(change.getOwner(),
+                old.getResourceMask() | change.getResourceMask(),
+                old.isMoneyChanged() || change.isMoneyChanged(),
+                old.isUnplacedMachinesChanged() || change.isUnplacedMachinesChanged());
+    }
+
+    private void deliverWhenDue() {
+        long wait = FRAME_MILLIS - (System.currentTimeMillis() - lastDelivery);
+        if (wait > 0) {
+            frameTimer.setInitialDelay((int) wait);
+            frameTimer.restart();
+        } else {
+            deliver();
+        }
+    }
+
+    private void deliver() {
+        WorldSnapshot snapshot;
+        List<GameEvent> events = new ArrayList<>();
+        synchronized (lock) {
+            snapshot = pendingSnapshot;
+            if (reset) {
+                events.add(new GameEvent.WorldReset());
+            }
+            events.addAll(tiles.values());
+            events.addAll(machines.values());
+            events.addAll(machineInventories.values());
+            if (playerInventory != null) {
+                events.add(playerInventory);
+            }
+            events.addAll(market.values());
+            if (playerMoved != null && !samePosition(playerMoved.getFrom(), playerMoved.getTo())) {
+                events.add(playerMoved);
+            }
+            clearPending();
+            reset = false;
+            pendingSnapshot = null;
+            scheduled = false;
+        }
+        lastDelivery = System.currentTimeMillis();
+        if (snapshot == null || events.isEmpty()) {
+            return;
+        }
+        for (GameUIListener listener : listeners) {
+            listener.onGameEvents(snapshot, events);
+        }
+    }
+
+    private void clearPending() {
+        tiles.clear();
+        machines.clear();
+        machineInventories.clear();
+        playerInventory = null;
+        market.clear();
+        playerMoved = null;
+    }
+
+    private static boolean samePosition(Position a, Position b) {
+        return a.getX() == b.getX() && a.getY() == b.getY();
+    }
+}
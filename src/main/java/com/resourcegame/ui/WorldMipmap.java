@@ -0,0 +1,355 @@
+package com.resourcegame.ui;
+
+import com.resourcegame.core.GameMap;
+import com.resourcegame.core.RegionListener;
+import com.resourcegame.core.Tile;
+import com.resourcegame.core.WorldSnapshot;
+import com.resourcegame.core.WorldSnapshot.MachineView;
+import com.resourcegame.utils.MachineType;
+import com.resourcegame.utils.Position;
+import com.resourcegame.utils.TileType;
+
+import javax.swing.SwingUtilities;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Colour pyramid of the map for zoomed-out views. Level 0 has one pixel per tile, each
+// level above halves both sides. The map is never scanned: a region's pixels are filled in
+// when the map pages it in, so parts of a saved world nobody has looked at stay grey. A
+// changed tile only updates its own pixel and the one pixel above it on every level.
+// Pixels are only touched from the EDT.
+public class WorldMipmap implements RegionListener {
+    private static final Color UNKNOWN_COLOR = new Color(60, 60, 60);
+    private static final int UNKNOWN_RGB = UNKNOWN_COLOR.getRGB();
+    private static final int MARKET_RGB = SpriteAtlas.getTileColor(TileType.MARKET).getRGB();
+    private static final int HARVESTER_RGB = SpriteAtlas.getMachineColor(MachineType.BASIC_HARVESTER).getRGB();
+    private static final int FACTORY_RGB = SpriteAtlas.getMachineColor(MachineType.BASIC_FACTORY).getRGB();
+    // Levels are split into square pages allocated on first write, so memory follows what
+    // has been paged in rather than the size of the world
+    private static final int PAGE_SHIFT = 8;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private final GameMap map;
+    private final int[] levelWidths;
+    private final int[] levelHeights;
+    private final int[] pageColumns;
+    private final Page[][] pages; // Per level, row by row; null until a pixel in it is known
+    // Regions coloured on the thread that paged them in, waiting for the EDT
+    private final Queue<RegionColors> loadedRegions = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final List<Runnable> changeListeners = new ArrayList<>();
+    private Map<Long, Boolean> machines = new HashMap<>(); // Tile key -> is a harvester
+    private int structureVersion = -1;
+
+    public WorldMipmap(GameMap map) {
+        this.map = map;
+        int width = map.getWidth();
+        int height = map.getHeight();
+        int levels = 1;
+        while ((width - 1 >> (levels - 1)) > 0 || (height - 1 >> (levels - 1)) > 0) {
+            levels++;
+        }
+        levelWidths = new int[levels];
+        levelHeights = new int[levels];
+        pageColumns = new int[levels];
+        pages = new Page[levels][];
+        for (int level = 0; level < levels; level++) {
+            levelWidths[level] = levelSize(width, level);
+            levelHeights[level] = levelSize(height, level);
+            pageColumns[level] = (levelWidths[level] + PAGE_MASK) >> PAGE_SHIFT;
+            pages[level] = new Page[pageColumns[level] * ((levelHeights[level] + PAGE_MASK) >> PAGE_SHIFT)];
+        }
+
+        map.addRegionListener(this);
+        // Regions paged in before now, all of them for a generated map, are coloured on the
+        // common pool. One that is also reported by the listener is just coloured twice.
+        CompletableFuture.runAsync(() -> {
+            for (int regionY = 0; regionY < map.getRegionsY(); regionY++) {
+                for (int regionX = 0; regionX < map.getRegionsX(); regionX++) {
+                    if (map.isRegionLoaded(regionX, regionY)) {
+                        regionLoaded(regionX, regionY);
+                    }
+                }
+            }
+        });
+    }
+
+    private static int levelSize(int size, int level) {
+        return Math.max(1, (size + (1 << level) - 1) >> level);
+    }
+
+    public int getLevelCount() {
+        return levelWidths.length;
+    }
+
+    public int getLevelWidth(int level) {
+        return levelWidths[level];
+    }
+
+    public int getLevelHeight(int level) {
+        return levelHeights[level];
+    }
+
+    // Run on the EDT whenever pixels change
+    public void addChangeListener(Runnable listener) {
+        changeListeners.add(listener);
+    }
+
+    // Called on the thread that paged the region in. Only this region's tiles are read, and
+    // its colours are handed to the EDT; one drain picks up everything queued until it runs.
+    @Override
+    public void regionLoaded(int regionX, int regionY) {
+        int left = regionX << GameMap.REGION_SHIFT;
+        int top = regionY << GameMap.REGION_SHIFT;
+        int width = Math.min(GameMap.REGION_SIZE, map.getWidth() - left);
+        int height = Math.min(GameMap.REGION_SIZE, map.getHeight() - top);
+        int[] colors = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                colors[y * width + x] = terrainColor(map.getTile(left + x, top + y));
+            }
+        }
+        loadedRegions.add(new RegionColors(left, top, width, height, colors));
+        if (drainScheduled.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(this::drainLoadedRegions);
+        }
+    }
+
+    private static int terrainColor(Tile tile) {
+        return tile.getType() == TileType.RESOURCE && tile.getResource() != null
+                ? SpriteAtlas.getResourceColor(tile.getResource().getType()).getRGB()
+                : SpriteAtlas.getTileColor(tile.getType()).getRGB();
+    }
+
+    private void drainLoadedRegions() {
+        drainScheduled.set(false);
+        boolean changed = false;
+        RegionColors region;
+        while ((region = loadedRegions.poll()) != null) {
+            for (int y = 0; y < region.height; y++) {
+                for (int x = 0; x < region.width; x++) {
+                    int tileX = region.left + x;
+                    int tileY = region.top + y;
+                    Boolean harvester = machines.get(Position.key(tileX, tileY));
+                    setPixel(0, tileX, tileY, harvester != null ? machineColor(harvester) : region.colors[y * region.width + x]);
+                }
+            }
+            propagate(region.left, region.top, region.width, region.height);
+            changed = true;
+        }
+        if (changed) {
+            fireChanged();
+        }
+    }
+
+    // Applies machine placements and removals
+    public void update(WorldSnapshot snapshot) {
+        if (snapshot.getStructureVersion() == structureVersion) {
+            return;
+        }
+        structureVersion = snapshot.getStructureVersion();
+        Map<Long, Boolean> current = new HashMap<>();
+        for (MachineView machine : snapshot.getMachines()) {
+            current.put(Position.key(machine.getX(), machine.getY()), machine.isHarvester());
+        }
+        Map<Long, Boolean> previous = machines;
+        machines = current;
+
+        boolean changed = false;
+        for (Map.Entry<Long, Boolean> machine : previous.entrySet()) {
+            if (!machine.getValue().equals(current.get(machine.getKey()))) {
+                updateTile(machine.getKey());
+                changed = true;
+            }
+        }
+        for (Map.Entry<Long, Boolean> machine : current.entrySet()) {
+            if (!machine.getValue().equals(previous.get(machine.getKey()))) {
+                updateTile(machine.getKey());
+                changed = true;
+            }
+        }
+        if (changed) {
+            fireChanged();
+        }
+    }
+
+    private void fireChanged() {
+        for (Runnable listener : changeListeners) {
+            listener.run();
+        }
+    }
+
+    private static int machineColor(boolean harvester) {
+        return harvester ? HARVESTER_RGB : FACTORY_RGB;
+    }
+
+    // Terrain under a machine that went away is only looked up if its region is already in;
+    // otherwise the pixel goes back to unknown until the region pages in
+    private void updateTile(long key) {
+        int x = Position.keyX(key);
+        int y = Position.keyY(key);
+        Boolean harvester = machines.get(key);
+        if (harvester != null) {
+            setPixel(0, x, y, machineColor(harvester));
+        } else if (map.isRegionLoaded(x >> GameMap.REGION_SHIFT, y >> GameMap.REGION_SHIFT)) {
+            setPixel(0, x, y, terrainColor(map.getTile(x, y)));
+        } else {
+            setPixel(0, x, y, UNKNOWN_RGB);
+        }
+        propagate(x, y, 1, 1);
+    }
+
+    // Re-aggregates every pixel above the given level 0 rectangle
+    private void propagate(int x, int y, int width, int height) {
+        int right = x + width - 1;
+        int bottom = y + height - 1;
+        for (int level = 1; level < levelWidths.length; level++) {
+            for (int ly = y >> level; ly <= bottom >> level; ly++) {
+                for (int lx = x >> level; lx <= right >> level; lx++) {
+                    setPixel(level, lx, ly, aggregate(level, lx, ly));
+                }
+            }
+        }
+    }
+
+    private int getPixel(int level, int x, int y) {
+        Page page = pages[level][(y >> PAGE_SHIFT) * pageColumns[level] + (x >> PAGE_SHIFT)];
+        return page != null ? page.pixels[(y & PAGE_MASK) * page.width + (x & PAGE_MASK)] : UNKNOWN_RGB;
+    }
+
+    private void setPixel(int level, int x, int y, int rgb) {
+        int index = (y >> PAGE_SHIFT) * pageColumns[level] + (x >> PAGE_SHIFT);
+        Page page = pages[level][index];
+        if (page == null) {
+            if (rgb == UNKNOWN_RGB) {
+                return;
+            }
+            int pageWidth = Math.min(PAGE_SIZE, levelWidths[level] - (x & ~PAGE_MASK));
+            int pageHeight = Math.min(PAGE_SIZE, levelHeights[level] - (y & ~PAGE_MASK));
+            page = new Page(pageWidth, pageHeight);
+            pages[level][index] = page;
+        }
+        page.pixels[(y & PAGE_MASK) * page.width + (x & PAGE_MASK)] = rgb;
+    }
+
+    // Combines the up to four pixels below: the market wins, then machines, then the most
+    // common colour, so bases and the market stay visible at any zoom
+    private int aggregate(int level, int x, int y) {
+        int belowWidth = levelWidths[level - 1];
+        int belowHeight = levelHeights[level - 1];
+        int[] colors = new int[4];
+        int count = 0;
+        for (int dy = 0; dy < 2; dy++) {
+            for (int dx = 0; dx < 2; dx++) {
+                int bx = x * 2 + dx;
+                int by = y * 2 + dy;
+                if (bx < belowWidth && by < belowHeight) {
+                    colors[count++] = getPixel(level - 1, bx, by);
+                }
+            }
+        }
+
+        int harvesters = 0;
+        int factories = 0;
+        for (int i = 0; i < count; i++) {
+            if (colors[i] == MARKET_RGB) {
+                return MARKET_RGB;
+            }
+            if (colors[i] == HARVESTER_RGB) {
+                harvesters++;
+            } else if (colors[i] == FACTORY_RGB) {
+                factories++;
+            }
+        }
+        if (harvesters + factories > 0) {
+            return harvesters >= factories ? HARVESTER_RGB : FACTORY_RGB;
+        }
+
+        int best = colors[0];
+        int bestCount = 0;
+        for (int i = 0; i < count; i++) {
+            int matches = 0;
+            for (int j = 0; j < count; j++) {
+                if (colors[j] == colors[i]) {
+                    matches++;
+                }
+            }
+            if (matches > bestCount) {
+                best = colors[i];
+                bestCount = matches;
+            }
+        }
+        return best;
+    }
+
+    // Draws the given pixel rectangle of a level with each pixel pixelSize screen pixels
+    // across, pixel (0, 0) at the current origin. Pages never written draw as unknown.
+    public void draw(Graphics2D g, int level, double pixelSize, int minX, int minY, int maxX, int maxY) {
+        minX = Math.max(0, minX);
+        minY = Math.max(0, minY);
+        maxX = Math.min(levelWidths[level], maxX);
+        maxY = Math.min(levelHeights[level], maxY);
+        for (int pageY = minY & ~PAGE_MASK; pageY < maxY; pageY += PAGE_SIZE) {
+            for (int pageX = minX & ~PAGE_MASK; pageX < maxX; pageX += PAGE_SIZE) {
+                int x0 = Math.max(minX, pageX);
+                int y0 = Math.max(minY, pageY);
+                int x1 = Math.min(maxX, pageX + PAGE_SIZE);
+                int y1 = Math.min(maxY, pageY + PAGE_SIZE);
+                int left = (int) (x0 * pixelSize);
+                int top = (int) (y0 * pixelSize);
+                int right = (int) (x1 * pixelSize);
+                int bottom = (int) (y1 * pixelSize);
+                Page page = pages[level][(pageY >> PAGE_SHIFT) * pageColumns[level] + (pageX >> PAGE_SHIFT)];
+                if (page == null) {
+                    g.setColor(UNKNOWN_COLOR);
+                    g.fillRect(left, top, right - left, bottom - top);
+                } else {
+                    g.drawImage(page.image, left, top, right, bottom,
+                            x0 - pageX, y0 - pageY, x1 - pageX, y1 - pageY, null);
+                }
+            }
+        }
+    }
+
+    // One page of a level; pixels is the image's own buffer, so writes show up on the next draw
+    private static class Page {
+        final BufferedImage image;
+        final int[] pixels;
+        final int width;
+
+        Page(int width, int height) {
+            this.image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            this.pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+            this.width = width;
+            Arrays.fill(pixels, UNKNOWN_RGB);
+        }
+    }
+
+    private static class RegionColors {
+        final int left;
+        final int top;
+        final int width;
+        final int height;
+        final int[] colors;
+
+        RegionColors(int left, int top, int width, int height, int[] colors) {
+            this.left = left;
+            this.top = top;
+            this.width = width;
+            this.height = height;
+            this.colors = colors;
+        }
+    }
+}
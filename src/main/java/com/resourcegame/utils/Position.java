@@ -15,6 +15,19 @@ public class Position {
         this.y = y;
     }
 
+    // Packs a tile, or any other grid cell, into one long for use as a hash key
+    public static long key(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    public static int keyX(long key) {
+        return (int) (key >> 32);
+    }
+
+    public static int keyY(long key) {
+        return (int) key;
+    }
+
     public int getX() {
         return x;
     }